@@ -1,24 +1,28 @@
 package com.tech.rideways;
 
-import org.springframework.boot.CommandLineRunner;
+import com.tech.rideways.cli.CliContext;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.WebApplicationType;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.boot.builder.SpringApplicationBuilder;
-import org.springframework.boot.web.servlet.support.ServletContextApplicationContextInitializer;
-import org.springframework.boot.web.servlet.support.SpringBootServletInitializer;
-import org.springframework.context.annotation.Profile;
 import org.springframework.util.ObjectUtils;
 import springfox.documentation.swagger2.annotations.EnableSwagger2;
 
-import java.util.HashSet;
-import java.util.Set;
-
 @SpringBootApplication
 @EnableSwagger2
 public class Application {
 
+	// Set -Dcli.spring_context=true to run command line queries through the full Spring Boot context.
+	private static final String CLI_SPRING_CONTEXT_PROPERTY = "cli.spring_context";
+
 	public static void main(String[] args) {
+		if (!ObjectUtils.isEmpty(args) && !Boolean.getBoolean(CLI_SPRING_CONTEXT_PROPERTY)) {
+			// Command line queries only need the supplier client, not the Spring context, and one-shot queries are
+			// sent to the service when it is running on this host.
+			CliContext.run(args);
+			return;
+		}
+
 		SpringApplication application =
 				new SpringApplicationBuilder()
 						.sources(Application.class)
@@ -7,10 +7,12 @@ import org.springframework.boot.CommandLineRunner;
 import org.springframework.stereotype.Component;
 import org.springframework.web.client.HttpClientErrorException;
 
+import java.io.BufferedReader;
 import java.io.IOException;
-import java.net.URISyntaxException;
-import java.util.Arrays;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 @Component
 public class CLI implements CommandLineRunner {
@@ -18,8 +20,19 @@ public class CLI implements CommandLineRunner {
     @Autowired
     private RideService rideService;
 
-    private static final List<String> SUPPLIERS = Arrays.asList("dave", "eric", "jeff");
-    private static final String VALIDATION_REGEX = "(\\s*-?\\d+(\\.\\d+)?)(\\s*,\\s*-?\\d+(\\.\\d+)?)";
+    static final String INTERACTIVE_FLAG = "-i";
+
+    /**
+     * Creates a CLI wired by hand, for entry points that run without the Spring context.
+     *
+     * @param rideService
+     * @return cli
+     */
+    public static CLI create(RideService rideService) {
+        CLI cli = new CLI();
+        cli.rideService = rideService;
+        return cli;
+    }
 
     @Override
     public void run(String... args) {
@@ -28,81 +41,79 @@ public class CLI implements CommandLineRunner {
             return;
         }
 
-        if(args.length < 2) {
-            System.out.println("You need to specify at least the pick-up and drop-off coordinates");
+        if (args[0].equals(INTERACTIVE_FLAG)) {
+            repl(new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8)));
             return;
         }
 
+        query(args);
+    }
+
+    /**
+     * Answers queries read line by line until the input ends or "quit" is read, all in the same JVM: the JIT-compiled
+     * code, the supplier connections and the quote cache stay warm between queries. A line holds the arguments of a
+     * one-shot query, and may start with the supplier without -s, e.g. "dave 51.47,-0.45 51.0,1.0 4".
+     *
+     * @param in
+     */
+    void repl(BufferedReader in) {
+        System.out.println("Enter [-s] [{supplier}] {pickup} {dropoff} [{number of passengers}], or quit.");
         try {
-            String supplier = null;
-            String pickup;
-            String dropoff;
-            Integer passengersNo = null;
-
-            // First argument: pickup coordinates (ex: 51.470020,-0.454295)
-            // Second argument: dropoff coordinates (ex: 53.470020,-0.454295)
-            // Third argument: number of passengers (ex: 4)
-
-            // NOTE: if -s is present, then the first argument is the supplier.
-            if (args[0].equals("-s")) {
-                // First argument: supplier (dave, eric, jeff)
-                // Second argument: pickup coordinates (ex: 51.470020,-0.454295)
-                // Third argument: dropoff coordinates (ex: 53.470020,-0.454295)
-                // Fourth argument (optional): number of passengers (ex: 4)
-                supplier = args[1].toLowerCase();
-
-                if (!SUPPLIERS.contains(supplier)) {
-                    System.out.println("No such supplier");
-                    return;
+            for (String line = prompt(in); line != null; line = prompt(in)) {
+                line = line.trim();
+                if (line.isEmpty()) {
+                    continue;
                 }
-
-                pickup = args[2];
-                dropoff = args[3];
-
-                // Validate parameters
-                if (!parametersAreValid(pickup, dropoff)) {
-                    System.out.println("Please make sure you provide valid values for both pickup and dropoff parameters.");
+                if (line.equals("quit") || line.equals("exit")) {
                     return;
                 }
 
-                passengersNo = args.length == 5 ? Integer.parseInt(args[4]) : null;
-
-                List<Option> options
-                        = rideService.findOptionsByPriceDescending(supplier, pickup, dropoff, passengersNo);
-
-                options.forEach(option -> {
-                    System.out.println(option.getCarType() + " - " + option.getPrice());
-                });
-
-            } else {
-
-                pickup = args[0];
-                dropoff = args[1];
+                String[] args = line.split("\\s+");
+                if (CliQuery.SUPPLIERS.contains(args[0].toLowerCase())) {
+                    String[] supplierArgs = new String[args.length + 1];
+                    supplierArgs[0] = "-s";
+                    System.arraycopy(args, 0, supplierArgs, 1, args.length);
+                    args = supplierArgs;
+                }
 
-                // Validate parameters
-                if (!parametersAreValid(pickup, dropoff)) {
-                    System.out.println("Please make sure you provide valid values for both pickup and dropoff parameters.");
-                    return;
+                long start = System.nanoTime();
+                try {
+                    query(args);
+                } catch (RuntimeException e) {
+                    // A mistyped query must not end the session.
+                    System.out.println("Invalid query: " + e);
                 }
+                System.out.println("(" + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) + " ms)");
+            }
+        } catch (IOException e) {
+            System.out.println("Could not read the next query.");
+        }
+    }
 
-                passengersNo = args.length == 3 ? Integer.parseInt(args[2]) : null;
+    private static String prompt(BufferedReader in) throws IOException {
+        System.out.print("> ");
+        System.out.flush();
+        return in.readLine();
+    }
 
-                List<Option> options
-                        = rideService.findOptionsByCarTypeWithCheapestSupplier(pickup, dropoff, passengersNo);
+    private void query(String... args) {
 
-                options.forEach(option -> {
-                    System.out.println(option.getCarType() + " - " + option.getSupplier() + " - " +option.getPrice());
-                });
-            }
+        CliQuery query = CliQuery.parse(args);
+        if (query == null) {
+            return;
+        }
+
+        try {
+            List<Option> options = query.supplier != null
+                    ? rideService.findOptionsByPriceDescending(query.supplier, query.pickup, query.dropoff,
+                            query.passengersNo)
+                    : rideService.findOptionsByCarTypeWithCheapestSupplier(query.pickup, query.dropoff,
+                            query.passengersNo);
+            query.print(options);
 
         } catch (IOException e) {
             System.out.println("Error trying to filter options.");
             e.printStackTrace();
         }
     }
-
-    private boolean parametersAreValid(String pickup, String dropoff) {
-        // Validate parameters
-        return pickup.matches(VALIDATION_REGEX) && dropoff.matches(VALIDATION_REGEX);
-    }
 }
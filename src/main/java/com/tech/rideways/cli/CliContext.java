@@ -0,0 +1,99 @@
+package com.tech.rideways.cli;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import com.tech.rideways.config.AppConfig;
+import com.tech.rideways.entities.Option;
+import com.tech.rideways.service.RideService;
+import com.tech.rideways.service.utils.Client;
+import org.slf4j.LoggerFactory;
+import org.springframework.web.client.RestTemplate;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+import java.util.Properties;
+
+/**
+ * Wires the CLI by hand, without component scanning, the web server, Swagger or validation, so that one-shot
+ * command line queries start in a fraction of the time the full Spring Boot context takes.
+ */
+public final class CliContext {
+
+    private static final String PROPERTIES_FILE = "application.properties";
+    private static final String TAXI_API_PROPERTY = "taxi_api";
+    private static final String DEFAULT_TAXI_API = "https://techtest.rideways.com";
+
+    private CliContext() {
+    }
+
+    /**
+     * Runs a command line query on the CLI daemon of the service if one is running on this host (see CliDaemon), so
+     * that it reuses the warm caches and supplier connections of the service; otherwise in a CLI created in-process.
+     *
+     * @param args
+     */
+    public static void run(String... args) {
+        Properties properties = loadProperties();
+
+        if (!args[0].equals(CLI.INTERACTIVE_FLAG)) {
+            CliQuery query = CliQuery.parse(args);
+            if (query == null) {
+                return;
+            }
+            List<Option> options = CliDaemon.query(query, properties, taxiApiUrl(properties));
+            if (options != null) {
+                query.print(options);
+                return;
+            }
+        }
+
+        create(properties).run(args);
+    }
+
+    /**
+     * Creates a CLI that calls the suppliers directly.
+     *
+     * @return cli
+     */
+    public static CLI create() {
+        return create(loadProperties());
+    }
+
+    private static CLI create(Properties properties) {
+        // Without Spring Boot's logging system, logback would print every HttpClient debug line.
+        ((Logger) LoggerFactory.getLogger(org.slf4j.Logger.ROOT_LOGGER_NAME)).setLevel(Level.OFF);
+
+        AppConfig appConfig = new AppConfig();
+        RestTemplate restTemplate = appConfig.restTemplate(appConfig.httpClient());
+
+        Client client = Client.create(restTemplate);
+        RideService rideService = RideService.create(client, taxiApiUrl(properties));
+
+        return CLI.create(rideService);
+    }
+
+    private static String taxiApiUrl(Properties properties) {
+        return properties.getProperty(TAXI_API_PROPERTY, DEFAULT_TAXI_API);
+    }
+
+    /**
+     * Loads application.properties, letting system properties (-Dtaxi_api=...) override its values.
+     *
+     * @return properties
+     */
+    private static Properties loadProperties() {
+        Properties properties = new Properties();
+
+        try (InputStream in = CliContext.class.getClassLoader().getResourceAsStream(PROPERTIES_FILE)) {
+            if (in != null) {
+                properties.load(in);
+            }
+        } catch (IOException e) {
+            System.out.println("Could not read " + PROPERTIES_FILE + ", using the default settings.");
+        }
+
+        properties.putAll(System.getProperties());
+        return properties;
+    }
+}
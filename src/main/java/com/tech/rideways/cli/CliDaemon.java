@@ -0,0 +1,395 @@
+package com.tech.rideways.cli;
+
+import com.tech.rideways.entities.Option;
+import com.tech.rideways.service.RideService;
+import com.tech.rideways.service.utils.Lane;
+import com.tech.rideways.service.utils.RequestContext;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.ContextClosedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.PosixFileAttributes;
+import java.nio.file.attribute.PosixFilePermission;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.nio.file.attribute.UserPrincipal;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Answers the command line queries of CLI processes on the same host, so that a one-shot query reuses the warm caches
+ * and supplier connections of a running service instead of booting its own. The service listens on a loopback port
+ * and writes the port, with a random token, to a file only its user can read, in a directory only its user can
+ * write to; a CLI finding the file sends its query with the token, and runs it in-process when there is no file, a
+ * file or directory another user could have written, nothing listening or a daemon calling other suppliers.
+ *
+ * A request is one line: the token, the supplier (empty for the cheapest supplier of each car type), the pickup, the
+ * dropoff and the number of passengers (empty for any), separated by tabs. The response is "OK" followed by one line
+ * per option (car type, supplier, price, separated by tabs), or "ERR" and a message.
+ */
+@Component
+public class CliDaemon {
+
+    private static final String ENABLED_PROPERTY = "cli_daemon.enabled";
+    private static final String FILE_PROPERTY = "cli_daemon.file";
+
+    private static final int CONNECT_TIMEOUT_MILLIS = 200;
+    private static final int RESPONSE_TIMEOUT_MILLIS = 10000;
+    private static final int REQUEST_TIMEOUT_MILLIS = 1000;
+    private static final int MAX_REQUEST_LENGTH = 1024;
+
+    private static final Set<PosixFilePermission> FILE_PERMISSIONS =
+            EnumSet.of(PosixFilePermission.OWNER_READ, PosixFilePermission.OWNER_WRITE);
+    private static final Set<PosixFilePermission> DIRECTORY_PERMISSIONS = PosixFilePermissions.fromString("rwx------");
+
+    @Value("${cli_daemon.enabled:true}")
+    private boolean enabled = true;
+
+    // File the port and token are written to, rideways-{user}/cli-daemon in the temporary directory when empty.
+    @Value("${cli_daemon.file:}")
+    private String file = "";
+
+    @Value("${cli_daemon.threads:4}")
+    private int threads = 4;
+
+    @Value("${ride.deadline_ms:3000}")
+    private long deadlineMillis = 3000;
+
+    @Value("${taxi_api}")
+    private String taxiApiUrl = "https://techtest.rideways.com";
+
+    @Autowired
+    private RideService rideService;
+
+    @Autowired(required = false)
+    private Environment environment;
+
+    private ServerSocket serverSocket;
+
+    private ExecutorService workers;
+
+    private Path daemonFile;
+
+    private String token;
+
+    /**
+     * Starts answering CLI queries once the server accepts requests. Command line runs, without a server, do not.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void onReady() {
+        if (!enabled || environment == null || environment.getProperty("local.server.port") == null) {
+            return;
+        }
+        try {
+            start();
+        } catch (IOException e) {
+            System.out.println("Could not start the CLI daemon: " + e.getMessage());
+        }
+    }
+
+    synchronized void start() throws IOException {
+        byte[] secret = new byte[16];
+        new SecureRandom().nextBytes(secret);
+        StringBuilder hex = new StringBuilder();
+        for (byte b : secret) {
+            hex.append(String.format("%02x", b));
+        }
+        token = hex.toString();
+
+        serverSocket = new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+        workers = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "cli-daemon");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        Thread acceptor = new Thread(this::accept, "cli-daemon-acceptor");
+        acceptor.setDaemon(true);
+        acceptor.start();
+
+        Properties daemon = new Properties();
+        daemon.setProperty("port", String.valueOf(serverSocket.getLocalPort()));
+        daemon.setProperty("token", token);
+        daemon.setProperty("taxi_api", taxiApiUrl);
+
+        // Moving the file in place keeps CLIs from reading half of it.
+        daemonFile = daemonFile(file);
+        Path directory = daemonFile.toAbsolutePath().getParent();
+        if (file.isEmpty() && Files.notExists(directory, LinkOption.NOFOLLOW_LINKS)) {
+            if (isPosix()) {
+                Files.createDirectory(directory, PosixFilePermissions.asFileAttribute(DIRECTORY_PERMISSIONS));
+            } else {
+                Files.createDirectory(directory);
+            }
+        }
+        if (!isPrivateDirectory(directory)) {
+            throw new IOException(directory + " is not a directory only " + System.getProperty("user.name")
+                    + " can write to");
+        }
+        Path temporary = Files.createTempFile(directory, ".rideways-cli-daemon", ".tmp");
+        if (isPosix()) {
+            Files.setPosixFilePermissions(temporary, FILE_PERMISSIONS);
+        }
+        try (OutputStream out = Files.newOutputStream(temporary)) {
+            daemon.store(out, null);
+        }
+        Files.move(temporary, daemonFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    @EventListener(ContextClosedEvent.class)
+    public synchronized void stop() {
+        if (serverSocket == null) {
+            return;
+        }
+        try {
+            serverSocket.close();
+        } catch (IOException e) {
+            System.out.println("Could not close the CLI daemon socket.");
+        }
+        workers.shutdownNow();
+
+        // Another instance started since may have taken the file over.
+        if (token.equals(load(daemonFile).getProperty("token"))) {
+            try {
+                Files.deleteIfExists(daemonFile);
+            } catch (IOException e) {
+                System.out.println("Could not delete " + daemonFile + ".");
+            }
+        }
+        serverSocket = null;
+    }
+
+    private void accept() {
+        ServerSocket listening = serverSocket;
+        while (!listening.isClosed()) {
+            try {
+                Socket socket = listening.accept();
+                try {
+                    workers.execute(() -> handle(socket));
+                } catch (RejectedExecutionException e) {
+                    socket.close();
+                }
+            } catch (IOException e) {
+                // Closed by stop(), or a client gone before being accepted.
+            }
+        }
+    }
+
+    private void handle(Socket socket) {
+        try (Socket client = socket) {
+            client.setSoTimeout(REQUEST_TIMEOUT_MILLIS);
+            String request = readRequest(new InputStreamReader(client.getInputStream(), StandardCharsets.UTF_8));
+            Writer out = new OutputStreamWriter(client.getOutputStream(), StandardCharsets.UTF_8);
+            out.write(answer(request));
+            out.flush();
+        } catch (IOException e) {
+            // The CLI gave up, it runs the query itself.
+        }
+    }
+
+    /**
+     * @param request
+     * @return the response to the request
+     */
+    String answer(String request) {
+        String[] fields = request != null ? request.split("\t", -1) : new String[0];
+        if (fields.length != 5 || !MessageDigest.isEqual(fields[0].getBytes(StandardCharsets.UTF_8),
+                token.getBytes(StandardCharsets.UTF_8))) {
+            return "ERR\tinvalid request\n";
+        }
+
+        String supplier = fields[1].isEmpty() ? null : fields[1];
+        if ((supplier != null && !CliQuery.SUPPLIERS.contains(supplier))
+                || !CliQuery.isValid(fields[2]) || !CliQuery.isValid(fields[3])) {
+            return "ERR\tinvalid query\n";
+        }
+
+        RequestContext.open(deadlineMillis, Lane.INTERACTIVE);
+        try {
+            Integer passengersNo = fields[4].isEmpty() ? null : Integer.valueOf(fields[4]);
+            List<Option> options = supplier != null
+                    ? rideService.findOptionsByPriceDescending(supplier, fields[2], fields[3], passengersNo)
+                    : rideService.findOptionsByCarTypeWithCheapestSupplier(fields[2], fields[3], passengersNo);
+
+            StringBuilder response = new StringBuilder("OK\n");
+            for (Option option : options) {
+                response.append(option.getCarType()).append('\t')
+                        .append(option.getSupplier() != null ? option.getSupplier() : "").append('\t')
+                        .append(option.getPrice()).append('\n');
+            }
+            return response.toString();
+        } catch (IOException | RuntimeException e) {
+            return "ERR\t" + e + "\n";
+        } finally {
+            RequestContext.close();
+        }
+    }
+
+    private static String readRequest(Reader in) throws IOException {
+        StringBuilder request = new StringBuilder();
+        for (int c = in.read(); c != '\n'; c = in.read()) {
+            if (c == -1 || request.length() == MAX_REQUEST_LENGTH) {
+                return null;
+            }
+            request.append((char) c);
+        }
+        return request.toString();
+    }
+
+    /**
+     * Sends a query to the CLI daemon of a service running on this host.
+     *
+     * @param query
+     * @param properties the settings of the CLI
+     * @param taxiApiUrl the supplier host of the CLI
+     * @return options, or null if no daemon calling the same supplier host answered
+     */
+    static List<Option> query(CliQuery query, Properties properties, String taxiApiUrl) {
+        if (!Boolean.parseBoolean(properties.getProperty(ENABLED_PROPERTY, "true"))) {
+            return null;
+        }
+
+        Path path = daemonFile(properties.getProperty(FILE_PROPERTY, ""));
+        if (!isPrivateFile(path)) {
+            return null;
+        }
+        Properties daemon = load(path);
+        if (daemon.getProperty("port") == null || !taxiApiUrl.equals(daemon.getProperty("taxi_api"))) {
+            return null;
+        }
+
+        try (Socket socket = new Socket()) {
+            socket.connect(new InetSocketAddress(InetAddress.getLoopbackAddress(),
+                    Integer.parseInt(daemon.getProperty("port"))), CONNECT_TIMEOUT_MILLIS);
+            socket.setSoTimeout(RESPONSE_TIMEOUT_MILLIS);
+
+            Writer out = new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8);
+            out.write(daemon.getProperty("token") + "\t" + (query.supplier != null ? query.supplier : "") + "\t"
+                    + query.pickup + "\t" + query.dropoff + "\t"
+                    + (query.passengersNo != null ? query.passengersNo : "") + "\n");
+            out.flush();
+
+            BufferedReader in =
+                    new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+            if (!"OK".equals(in.readLine())) {
+                return null;
+            }
+            List<Option> options = new ArrayList<>();
+            for (String line = in.readLine(); line != null; line = in.readLine()) {
+                String[] fields = line.split("\t", -1);
+                Option option = new Option(fields[0], Integer.parseInt(fields[2]));
+                option.setSupplier(fields[1].isEmpty() ? null : fields[1]);
+                options.add(option);
+            }
+            return options;
+        } catch (IOException | RuntimeException e) {
+            return null;
+        }
+    }
+
+    private static Path daemonFile(String configured) {
+        if (!configured.isEmpty()) {
+            return Paths.get(configured);
+        }
+        return Paths.get(System.getProperty("java.io.tmpdir"), "rideways-" + System.getProperty("user.name"),
+                "cli-daemon");
+    }
+
+    /**
+     * Tells whether a daemon file can be trusted: a regular file of the current user, only they can read or write
+     * (0600), in a directory only they can write to. Where the file system has no POSIX permissions, whether the
+     * file and the directory belong to the current user.
+     *
+     * @param path
+     * @return true if the file can be trusted
+     */
+    static boolean isPrivateFile(Path path) {
+        if (!isPrivateDirectory(path.toAbsolutePath().getParent())) {
+            return false;
+        }
+        try {
+            if (!isPosix()) {
+                return Files.isRegularFile(path, LinkOption.NOFOLLOW_LINKS) && isCurrentUser(path);
+            }
+            PosixFileAttributes attributes =
+                    Files.readAttributes(path, PosixFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+            return attributes.isRegularFile() && isCurrentUser(attributes.owner())
+                    && attributes.permissions().equals(FILE_PERMISSIONS);
+        } catch (IOException | UnsupportedOperationException e) {
+            return false;
+        }
+    }
+
+    /**
+     * @param directory
+     * @return true if the directory belongs to the current user and nobody else can read, write or enter it
+     */
+    static boolean isPrivateDirectory(Path directory) {
+        try {
+            if (!isPosix()) {
+                return Files.isDirectory(directory, LinkOption.NOFOLLOW_LINKS) && isCurrentUser(directory);
+            }
+            PosixFileAttributes attributes =
+                    Files.readAttributes(directory, PosixFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+            Set<PosixFilePermission> permissions = EnumSet.copyOf(attributes.permissions());
+            permissions.retainAll(DIRECTORY_PERMISSIONS);
+            return attributes.isDirectory() && isCurrentUser(attributes.owner())
+                    && permissions.equals(attributes.permissions());
+        } catch (IOException | UnsupportedOperationException e) {
+            return false;
+        }
+    }
+
+    private static boolean isPosix() {
+        return FileSystems.getDefault().supportedFileAttributeViews().contains("posix");
+    }
+
+    private static boolean isCurrentUser(Path path) throws IOException {
+        return isCurrentUser(Files.getOwner(path, LinkOption.NOFOLLOW_LINKS));
+    }
+
+    private static boolean isCurrentUser(UserPrincipal owner) throws IOException {
+        return owner.equals(FileSystems.getDefault().getUserPrincipalLookupService()
+                .lookupPrincipalByName(System.getProperty("user.name")));
+    }
+
+    private static Properties load(Path path) {
+        Properties properties = new Properties();
+        try (InputStream in = Files.newInputStream(path)) {
+            properties.load(in);
+        } catch (IOException e) {
+            // No daemon.
+        }
+        return properties;
+    }
+}
@@ -0,0 +1,97 @@
+package com.tech.rideways.cli;
+
+import com.tech.rideways.controllers.validation.SearchParameters;
+import com.tech.rideways.entities.Option;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A command line query: the options of one supplier (-s {supplier}), or the cheapest supplier of each car type, for a
+ * route and optionally a number of passengers.
+ */
+final class CliQuery {
+
+    static final List<String> SUPPLIERS = Arrays.asList("dave", "eric", "jeff");
+
+    // Null when the cheapest supplier of each car type is queried.
+    final String supplier;
+    final String pickup;
+    final String dropoff;
+    final Integer passengersNo;
+
+    CliQuery(String supplier, String pickup, String dropoff, Integer passengersNo) {
+        this.supplier = supplier;
+        this.pickup = pickup;
+        this.dropoff = dropoff;
+        this.passengersNo = passengersNo;
+    }
+
+    /**
+     * Reads a query from the command line arguments, telling the user what is wrong with them if anything.
+     *
+     * @param args [-s {supplier}] {pickup} {dropoff} [{number of passengers}]
+     * @return query, or null if the arguments are invalid
+     * @throws NumberFormatException if the number of passengers is not a number
+     */
+    static CliQuery parse(String... args) {
+
+        if (args.length < 2) {
+            System.out.println("You need to specify at least the pick-up and drop-off coordinates");
+            return null;
+        }
+
+        String supplier = null;
+        int first = 0;
+
+        // NOTE: if -s is present, then the first argument is the supplier.
+        if (args[0].equals("-s")) {
+            supplier = args[1].toLowerCase();
+
+            if (!SUPPLIERS.contains(supplier)) {
+                System.out.println("No such supplier");
+                return null;
+            }
+            if (args.length < 4) {
+                System.out.println("You need to specify at least the pick-up and drop-off coordinates");
+                return null;
+            }
+            first = 2;
+        }
+
+        // First argument: pickup coordinates (ex: 51.470020,-0.454295)
+        // Second argument: dropoff coordinates (ex: 53.470020,-0.454295)
+        // Third argument (optional): number of passengers (ex: 4)
+        String pickup = args[first];
+        String dropoff = args[first + 1];
+
+        // Validate parameters
+        if (!isValid(pickup) || !isValid(dropoff)) {
+            System.out.println("Please make sure you provide valid values for both pickup and dropoff parameters.");
+            return null;
+        }
+
+        Integer passengersNo = args.length == first + 3 ? Integer.valueOf(args[first + 2]) : null;
+
+        return new CliQuery(supplier, pickup, dropoff, passengersNo);
+    }
+
+    static boolean isValid(String coordinates) {
+        return SearchParameters.isCoordinates(coordinates);
+    }
+
+    /**
+     * Prints the options found for the query, with their supplier when the cheapest supplier was queried.
+     *
+     * @param options
+     */
+    void print(List<Option> options) {
+        options.forEach(option -> {
+            if (supplier != null) {
+                System.out.println(option.getCarType() + " - " + option.getPrice());
+            } else {
+                System.out.println(option.getCarType() + " - " + option.getSupplier() + " - " + option.getPrice());
+            }
+        });
+    }
+}
@@ -1,27 +1,156 @@
 package com.tech.rideways.config;
 
-import org.springframework.boot.web.client.RestTemplateBuilder;
+import org.apache.http.client.HttpClient;
+import org.apache.http.config.RegistryBuilder;
+import org.apache.http.conn.socket.ConnectionSocketFactory;
+import org.apache.http.conn.socket.PlainConnectionSocketFactory;
+import org.apache.http.conn.ssl.SSLConnectionSocketFactory;
+import org.apache.http.impl.client.HttpClientBuilder;
+import org.apache.http.impl.client.HttpClients;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.converter.StringHttpMessageConverter;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 import org.springframework.validation.beanvalidation.MethodValidationPostProcessor;
 import org.springframework.web.client.RestTemplate;
 
-import java.time.Duration;
+import javax.validation.Validator;
+
+import java.util.Collections;
+import java.util.concurrent.ThreadPoolExecutor;
 
 @Configuration
 public class AppConfig {
 
-    private static final int TIMEOUT_SECONDS = 2;
+    // The test brief gives suppliers 2 seconds to respond.
+    @Value("${supplier.timeout_ms:2000}")
+    private int timeoutMillis = 2000;
+
+    // When enabled, supplier requests carry "Accept-Encoding: gzip,deflate" and compressed bodies are
+    // decompressed as a stream while the response is being read.
+    @Value("${supplier.compression.enabled:true}")
+    private boolean supplierCompressionEnabled = true;
+
+    // Threads blocked on supplier calls for the interactive searches in flight, instead of Tomcat threads.
+    @Value("${async.supplier_threads:64}")
+    private int supplierThreads = 64;
+
+    @Value("${async.supplier_queue:1000}")
+    private int supplierQueue = 1000;
+
+    // Threads of the bulk searches, which mostly wait for the few supplier connections they may use.
+    @Value("${async.bulk_supplier_threads:8}")
+    private int bulkSupplierThreads = 8;
+
+    @Value("${async.bulk_supplier_queue:200}")
+    private int bulkSupplierQueue = 200;
+
+    @Bean
+    public HttpClient httpClient() {
+        HttpClientBuilder builder = HttpClients.custom().useSystemProperties()
+                .setConnectionManager(connectionManager());
+
+        if (!supplierCompressionEnabled) {
+            builder.disableContentCompression();
+        }
+        return builder.build();
+    }
+
+    /**
+     * Builds the connection pool HttpClientBuilder.useSystemProperties() would, timing the connection leases.
+     *
+     * @return connectionManager
+     */
+    private static TimedConnectionManager connectionManager() {
+        TimedConnectionManager connectionManager = new TimedConnectionManager(
+                RegistryBuilder.<ConnectionSocketFactory>create()
+                        .register("http", PlainConnectionSocketFactory.getSocketFactory())
+                        .register("https", SSLConnectionSocketFactory.getSystemSocketFactory())
+                        .build());
+
+        if ("true".equalsIgnoreCase(System.getProperty("http.keepAlive", "true"))) {
+            int maxConnections = maxConnectionsPerRoute();
+            connectionManager.setDefaultMaxPerRoute(maxConnections);
+            connectionManager.setMaxTotal(2 * maxConnections);
+        }
+        return connectionManager;
+    }
+
+    /**
+     * @return the connections the pool keeps to each host, the suppliers all sharing one host
+     */
+    public static int maxConnectionsPerRoute() {
+        return "true".equalsIgnoreCase(System.getProperty("http.keepAlive", "true"))
+                ? Integer.parseInt(System.getProperty("http.maxConnections", "5"))
+                : 2;
+    }
 
     @Bean
-    public RestTemplate restTemplate() {
-        return new RestTemplateBuilder()
-                .setConnectTimeout(Duration.ofSeconds(TIMEOUT_SECONDS))
-                .setReadTimeout(Duration.ofSeconds(TIMEOUT_SECONDS)).build();
+    public RestTemplate restTemplate(HttpClient httpClient) {
+        HttpComponentsClientHttpRequestFactory requestFactory = new HttpComponentsClientHttpRequestFactory(httpClient);
+        requestFactory.setConnectTimeout(timeoutMillis);
+        requestFactory.setReadTimeout(timeoutMillis);
+
+        // Supplier payloads are read as Strings and parsed by RideService, so the String converter is the only one
+        // needed; skipping the default Jackson/XML converters also keeps the CLI start-up short. Parsing from the
+        // response stream instead would save ~7us per single-search payload (CompressionBenchmark.parseGzip vs
+        // parseGzipThroughString), little next to a supplier round trip, while every supplier call path works on the
+        // body as text: the fault injector cuts it or replaces it, the HTTP/2 engine answers with the same type, the
+        // health probe only checks there is one, and findRide tells an invalid payload from a failed call.
+        RestTemplate restTemplate = new RestTemplate(
+                Collections.<HttpMessageConverter<?>>singletonList(new StringHttpMessageConverter()));
+        restTemplate.setRequestFactory(requestFactory);
+        return restTemplate;
+    }
+
+    /**
+     * Builds the executor interactive asynchronous searches call the suppliers on. When its queue is full, the calls
+     * are rejected and the search gets a 503 at once, rather than calling the suppliers on the Tomcat thread.
+     *
+     * @return supplierExecutor
+     */
+    @Bean(name = "supplierExecutor")
+    public ThreadPoolTaskExecutor supplierExecutor() {
+        return supplierExecutor(supplierThreads, supplierQueue, "supplier-");
+    }
+
+    /**
+     * Builds the executor bulk asynchronous searches call the suppliers on, so that bulk calls waiting for a supplier
+     * connection never hold the threads or the queue of the interactive searches.
+     *
+     * @return bulkSupplierExecutor
+     */
+    @Bean(name = "bulkSupplierExecutor")
+    public ThreadPoolTaskExecutor bulkSupplierExecutor() {
+        return supplierExecutor(bulkSupplierThreads, bulkSupplierQueue, "bulk-supplier-");
+    }
+
+    private static ThreadPoolTaskExecutor supplierExecutor(int threads, int queue, String threadNamePrefix) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(threads);
+        executor.setMaxPoolSize(threads);
+        executor.setQueueCapacity(queue);
+        executor.setAllowCoreThreadTimeOut(true);
+        executor.setThreadNamePrefix(threadNamePrefix);
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.AbortPolicy());
+        return executor;
     }
 
+    /**
+     * Validates the constrained parameters of the controllers with the validator Spring MVC already builds, instead of
+     * bootstrapping a second one during start-up. The validator is resolved on the first validated call.
+     *
+     * @param validator
+     * @return methodValidationPostProcessor
+     */
     @Bean
-    public MethodValidationPostProcessor methodValidationPostProcessor() {
-        return new MethodValidationPostProcessor();
+    public static MethodValidationPostProcessor methodValidationPostProcessor(@Lazy Validator validator) {
+        MethodValidationPostProcessor postProcessor = new MethodValidationPostProcessor();
+        postProcessor.setValidator(validator);
+        return postProcessor;
     }
 }
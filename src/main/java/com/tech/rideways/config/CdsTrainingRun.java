@@ -0,0 +1,50 @@
+package com.tech.rideways.config;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+
+/**
+ * Training run used by the cds build profile: once the server is ready it serves one search, so that the classes of
+ * the request path get loaded as well, and then shuts down. The classes loaded along the way end up in the
+ * class-data-sharing archive.
+ */
+@Component
+@ConditionalOnProperty("cds.training_run")
+public class CdsTrainingRun {
+
+    private static final String TRAINING_SEARCH = "/ride?pickup=51.470020,-0.454295&dropoff=53.470020,-0.454295";
+
+    @Autowired
+    private ApplicationContext applicationContext;
+
+    @Autowired
+    private Environment environment;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void run() {
+        try {
+            URL url = new URL("http://localhost:" + environment.getProperty("local.server.port") + TRAINING_SEARCH);
+            HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+            try (InputStream in = connection.getInputStream()) {
+                while (in.read() != -1) {
+                    // Drain the response.
+                }
+            }
+        } catch (IOException e) {
+            System.out.println("Training search failed: " + e.getMessage());
+        }
+
+        System.exit(SpringApplication.exit(applicationContext));
+    }
+}
@@ -0,0 +1,60 @@
+package com.tech.rideways.config;
+
+import com.tech.rideways.controllers.context.RequestContextInterceptor;
+import com.tech.rideways.controllers.limits.ConcurrencyLimitInterceptor;
+import com.tech.rideways.controllers.limits.RateLimitInterceptor;
+import com.tech.rideways.controllers.security.AdminAccessInterceptor;
+import com.tech.rideways.controllers.validation.SearchValidationInterceptor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.AsyncSupportConfigurer;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+@Configuration
+public class WebConfig implements WebMvcConfigurer {
+
+    private static final String[] RIDE_PATHS = {"/ride", "/ride/*"};
+
+    @Value("${ride.deadline_ms:3000}")
+    private long deadlineMillis = 3000;
+
+    // Time left to an asynchronous search past its deadline, e.g. for a supplier attempt started just before it.
+    @Value("${async.timeout_grace_ms:2500}")
+    private long timeoutGraceMillis = 2500;
+
+    @Autowired
+    private RateLimitInterceptor rateLimitInterceptor;
+
+    @Autowired
+    private ConcurrencyLimitInterceptor concurrencyLimitInterceptor;
+
+    @Autowired
+    private RequestContextInterceptor requestContextInterceptor;
+
+    @Autowired
+    private SearchValidationInterceptor searchValidationInterceptor;
+
+    @Autowired
+    private AdminAccessInterceptor adminAccessInterceptor;
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        // The context comes first, the concurrency limit needs the lane of the search. Rate limiting runs next, so a
+        // client over its quota never takes a concurrency slot. Malformed searches still count against the quota, but
+        // are rejected before taking a slot.
+        registry.addInterceptor(requestContextInterceptor).addPathPatterns(RIDE_PATHS);
+        registry.addInterceptor(rateLimitInterceptor).addPathPatterns(RIDE_PATHS);
+        registry.addInterceptor(searchValidationInterceptor).addPathPatterns(RIDE_PATHS);
+        registry.addInterceptor(concurrencyLimitInterceptor).addPathPatterns(RIDE_PATHS);
+
+        registry.addInterceptor(adminAccessInterceptor).addPathPatterns("/admin/**");
+    }
+
+    @Override
+    public void configureAsyncSupport(AsyncSupportConfigurer configurer) {
+        // A search still waiting for its suppliers past its deadline and the grace is answered with a 503.
+        configurer.setDefaultTimeout(deadlineMillis + timeoutGraceMillis);
+    }
+}
@@ -0,0 +1,51 @@
+package com.tech.rideways.config.startup;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.ContextRefreshedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import springfox.documentation.spring.web.plugins.DocumentationPluginsBootstrapper;
+
+/**
+ * Initializes the components searches do not need once the node accepts traffic instead of before, so that it is
+ * ready sooner, e.g. when scaling out during a traffic spike. For now, the Swagger documentation scan: springfox
+ * does not start it itself (springfox.documentation.auto-startup=false), and /v2/api-docs is empty until it ends.
+ */
+@Component
+public class DeferredInitializer {
+
+    // Scans the documentation before the server starts when disabled, as springfox does by default.
+    @Value("${startup.deferred_init:true}")
+    private boolean enabled = true;
+
+    @Autowired(required = false)
+    private DocumentationPluginsBootstrapper documentationBootstrapper;
+
+    @Autowired
+    private StartupTimeline startupTimeline;
+
+    @EventListener(ContextRefreshedEvent.class)
+    public void onRefreshed() {
+        if (!enabled) {
+            initialize();
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onReady() {
+        if (enabled) {
+            Thread thread = new Thread(this::initialize, "deferred-init");
+            thread.setDaemon(true);
+            thread.start();
+        }
+    }
+
+    synchronized void initialize() {
+        if (documentationBootstrapper != null && !documentationBootstrapper.isRunning()) {
+            documentationBootstrapper.start();
+        }
+        startupTimeline.mark("deferred_init");
+    }
+}
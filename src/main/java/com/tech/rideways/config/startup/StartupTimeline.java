@@ -0,0 +1,225 @@
+package com.tech.rideways.config.startup;
+
+import org.springframework.beans.factory.FactoryBean;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.config.BeanFactoryPostProcessor;
+import org.springframework.beans.factory.config.InstantiationAwareBeanPostProcessor;
+import org.springframework.boot.context.event.ApplicationContextInitializedEvent;
+import org.springframework.boot.context.event.ApplicationEnvironmentPreparedEvent;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.boot.context.event.ApplicationStartedEvent;
+import org.springframework.boot.context.event.ApplicationStartingEvent;
+import org.springframework.boot.web.context.WebServerInitializedEvent;
+import org.springframework.context.ApplicationEvent;
+import org.springframework.context.ApplicationListener;
+import org.springframework.context.event.ContextRefreshedEvent;
+import org.springframework.context.support.GenericApplicationContext;
+import org.springframework.core.env.ConfigurableEnvironment;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Records how long the node takes to start: when each start-up phase ended, counted from the start of the JVM, and
+ * how long each bean took to create. Registered in META-INF/spring.factories, so it sees the application from its
+ * first event and every bean of the context, and registered in the context as the "startupTimeline" bean.
+ *
+ * The creation time of a bean includes the creation of the beans it depends on; its self time does not.
+ */
+public class StartupTimeline implements ApplicationListener<ApplicationEvent>, SmartInitializingSingleton {
+
+    private static final String REPORT_PROPERTY = "startup.report";
+    private static final String SLOWEST_BEANS_PROPERTY = "startup.slowest_beans";
+
+    private final long jvmStartNanos = System.nanoTime()
+            - TimeUnit.MILLISECONDS.toNanos(ManagementFactory.getRuntimeMXBean().getUptime());
+
+    private final Map<String, Long> milestones = new ConcurrentHashMap<>();
+
+    private final Map<String, BeanTiming> beans = new ConcurrentHashMap<>();
+
+    // Beans being created by each thread, the innermost last.
+    private final ThreadLocal<Deque<BeanTiming>> creating = ThreadLocal.withInitial(ArrayDeque::new);
+
+    // Beans created once the node is ready, such as request-scoped ones, are not part of the start-up.
+    private volatile boolean timingBeans = true;
+
+    private boolean report = true;
+
+    private int slowestBeans = 10;
+
+    @Override
+    public void onApplicationEvent(ApplicationEvent event) {
+        if (event instanceof ApplicationStartingEvent) {
+            mark("starting");
+        } else if (event instanceof ApplicationEnvironmentPreparedEvent) {
+            ConfigurableEnvironment environment = ((ApplicationEnvironmentPreparedEvent) event).getEnvironment();
+            report = environment.getProperty(REPORT_PROPERTY, Boolean.class, true);
+            slowestBeans = environment.getProperty(SLOWEST_BEANS_PROPERTY, Integer.class, 10);
+            mark("environment_prepared");
+        } else if (event instanceof ApplicationContextInitializedEvent) {
+            GenericApplicationContext context =
+                    (GenericApplicationContext) ((ApplicationContextInitializedEvent) event).getApplicationContext();
+            context.getBeanFactory().addBeanPostProcessor(new BeanTimer());
+            // A bean definition rather than a registered singleton, to be told when all the singletons are created.
+            context.registerBean("startupTimeline", StartupTimeline.class, () -> this);
+            // Bean factory post-processors without an order run last, once the configuration classes are parsed.
+            context.registerBean("startupTimeline.configurationParsed", BeanFactoryPostProcessor.class,
+                    () -> beanFactory -> mark("configuration_parsed"));
+            mark("context_initialized");
+        } else if (event instanceof ContextRefreshedEvent) {
+            mark("context_refreshed");
+        } else if (event instanceof WebServerInitializedEvent) {
+            mark("web_server_started");
+        } else if (event instanceof ApplicationStartedEvent) {
+            mark("started");
+        } else if (event instanceof ApplicationReadyEvent) {
+            mark("ready");
+            timingBeans = false;
+            creating.remove();
+            if (report) {
+                System.out.println(report());
+            }
+        }
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        mark("singletons_created");
+    }
+
+    /**
+     * Records the end of a start-up phase, the first time only.
+     *
+     * @param milestone
+     */
+    public void mark(String milestone) {
+        milestones.putIfAbsent(milestone, System.nanoTime() - jvmStartNanos);
+    }
+
+    /**
+     * @return the milestones reached so far and the slowest beans to create
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Long> milestonesMillis = new LinkedHashMap<>();
+        milestones.entrySet().stream()
+                .sorted(Map.Entry.comparingByValue())
+                .forEach(milestone -> milestonesMillis.put(milestone.getKey(), toMillis(milestone.getValue())));
+
+        List<Map<String, Object>> slowest = new ArrayList<>();
+        slowest(slowestBeans).forEach(bean -> {
+            Map<String, Object> entry = new LinkedHashMap<>();
+            entry.put("bean", bean.name);
+            entry.put("total_ms", toMillis(bean.totalNanos));
+            entry.put("self_ms", toMillis(bean.selfNanos()));
+            slowest.add(entry);
+        });
+
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("milestones_ms", milestonesMillis);
+        stats.put("beans_created", beans.size());
+        stats.put("bean_creation_ms", toMillis(beans.values().stream().mapToLong(BeanTiming::selfNanos).sum()));
+        stats.put("slowest_beans", slowest);
+        return stats;
+    }
+
+    private String report() {
+        StringBuilder report = new StringBuilder("Ready in ")
+                .append(toMillis(milestones.get("ready"))).append(" ms since the JVM started:");
+        List<Map.Entry<String, Long>> sorted = new ArrayList<>(milestones.entrySet());
+        sorted.sort(Map.Entry.comparingByValue());
+        long previous = 0;
+        for (Map.Entry<String, Long> milestone : sorted) {
+            report.append(' ').append(milestone.getKey()).append(" +")
+                    .append(toMillis(milestone.getValue() - previous));
+            previous = milestone.getValue();
+        }
+        report.append(" ms. Slowest beans (self ms):");
+        slowest(slowestBeans).forEach(bean -> report.append(' ').append(bean.name)
+                .append(" ").append(toMillis(bean.selfNanos())));
+        return report.toString();
+    }
+
+    private List<BeanTiming> slowest(int limit) {
+        List<BeanTiming> slowest = new ArrayList<>(beans.values());
+        slowest.sort((first, second) -> Long.compare(second.selfNanos(), first.selfNanos()));
+        return slowest.subList(0, Math.min(limit, slowest.size()));
+    }
+
+    private static long toMillis(long nanos) {
+        return TimeUnit.NANOSECONDS.toMillis(nanos);
+    }
+
+    private static final class BeanTiming {
+
+        private final String name;
+        private final long startNanos = System.nanoTime();
+        private long totalNanos;
+        private long dependenciesNanos;
+
+        private BeanTiming(String name) {
+            this.name = name;
+        }
+
+        private long selfNanos() {
+            return totalNanos - dependenciesNanos;
+        }
+    }
+
+    /**
+     * Times each bean from the start of its instantiation to the end of its initialization, until the node is ready.
+     */
+    private final class BeanTimer implements InstantiationAwareBeanPostProcessor {
+
+        private final Set<String> factoryBeans = ConcurrentHashMap.newKeySet();
+
+        @Override
+        public Object postProcessBeforeInstantiation(Class<?> beanClass, String beanName) {
+            if (!timingBeans) {
+                return null;
+            }
+            creating.get().addLast(new BeanTiming(beanName));
+            return null;
+        }
+
+        @Override
+        public Object postProcessAfterInitialization(Object bean, String beanName) {
+            if (!timingBeans) {
+                return bean;
+            }
+            // The objects made by factory beans are post-processed too, under the name of their factory bean.
+            if (!(bean instanceof FactoryBean) && factoryBeans.contains(beanName)) {
+                return bean;
+            }
+            Deque<BeanTiming> stack = creating.get();
+            if (stack.stream().noneMatch(timing -> timing.name.equals(beanName))) {
+                return bean;
+            }
+            // Factory beans instantiated only to find out the type of their object, and beans whose creation
+            // failed, never reach their end; the beans they were creating count as dependencies of this one.
+            BeanTiming timing = stack.removeLast();
+            while (!timing.name.equals(beanName)) {
+                long dependenciesNanos = timing.dependenciesNanos;
+                timing = stack.removeLast();
+                timing.dependenciesNanos += dependenciesNanos;
+            }
+            if (bean instanceof FactoryBean) {
+                factoryBeans.add(beanName);
+            }
+            timing.totalNanos = System.nanoTime() - timing.startNanos;
+            if (!stack.isEmpty()) {
+                stack.peekLast().dependenciesNanos += timing.totalNanos;
+            }
+            beans.put(beanName, timing);
+            return bean;
+        }
+    }
+}
@@ -0,0 +1,186 @@
+package com.tech.rideways.controllers;
+
+import com.tech.rideways.config.startup.StartupTimeline;
+import com.tech.rideways.controllers.context.SlowRequestLog;
+import com.tech.rideways.controllers.limits.ConcurrencyLimitInterceptor;
+import com.tech.rideways.controllers.limits.RateLimitInterceptor;
+import com.tech.rideways.controllers.validation.SearchValidationInterceptor;
+import com.tech.rideways.service.cache.NegativeQuoteCache;
+import com.tech.rideways.service.cache.OffHeapQuoteStore;
+import com.tech.rideways.service.capability.SupplierCapabilityIndex;
+import com.tech.rideways.service.cluster.ClusterQuoteCache;
+import com.tech.rideways.service.health.SupplierHealthMonitor;
+import com.tech.rideways.service.profiling.OnDemandRecorder;
+import com.tech.rideways.service.utils.Client;
+import com.tech.rideways.service.utils.FaultInjector;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.async.DeferredResult;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Operational endpoints exposing the internal counters of the service.
+ */
+@RestController
+@RequestMapping("/admin")
+public class AdminController {
+
+    private static final long JFR_TIMEOUT_GRACE_SECONDS = 30;
+
+    @Autowired
+    private RateLimitInterceptor rateLimitInterceptor;
+
+    @Autowired
+    private ConcurrencyLimitInterceptor concurrencyLimitInterceptor;
+
+    @Autowired
+    private SearchValidationInterceptor searchValidationInterceptor;
+
+    @Autowired
+    private Client client;
+
+    @Autowired
+    private OffHeapQuoteStore quoteStore;
+
+    @Autowired
+    private NegativeQuoteCache negativeCache;
+
+    @Autowired
+    private ClusterQuoteCache clusterQuoteCache;
+
+    @Autowired
+    private SupplierCapabilityIndex capabilityIndex;
+
+    @Autowired
+    private SlowRequestLog slowRequestLog;
+
+    @Autowired
+    private FaultInjector faultInjector;
+
+    @Autowired
+    private SupplierHealthMonitor healthMonitor;
+
+    @Autowired
+    private OnDemandRecorder onDemandRecorder;
+
+    @Autowired
+    private StartupTimeline startupTimeline;
+
+    @GetMapping("/startup")
+    public ResponseEntity<Map<String, Object>> getStartup() {
+        return ResponseEntity.ok(startupTimeline.getStats());
+    }
+
+    @GetMapping("/rate-limits")
+    public ResponseEntity<Map<String, Object>> getRateLimits() {
+        return ResponseEntity.ok(rateLimitInterceptor.getStats());
+    }
+
+    @GetMapping("/validation")
+    public ResponseEntity<Map<String, Object>> getValidation() {
+        return ResponseEntity.ok(searchValidationInterceptor.getStats());
+    }
+
+    @GetMapping("/concurrency-limit")
+    public ResponseEntity<Map<String, Object>> getConcurrencyLimit() {
+        return ResponseEntity.ok(concurrencyLimitInterceptor.getStats());
+    }
+
+    @GetMapping("/retries")
+    public ResponseEntity<Map<String, Object>> getRetries() {
+        return ResponseEntity.ok(client.getRetryStats());
+    }
+
+    @GetMapping("/quote-store")
+    public ResponseEntity<Map<String, Object>> getQuoteStore() {
+        return ResponseEntity.ok(quoteStore.getStats());
+    }
+
+    @GetMapping("/negative-cache")
+    public ResponseEntity<Map<String, Object>> getNegativeCache() {
+        return ResponseEntity.ok(negativeCache.getStats());
+    }
+
+    @GetMapping("/cluster")
+    public ResponseEntity<Map<String, Object>> getCluster() {
+        return ResponseEntity.ok(clusterQuoteCache.getStats());
+    }
+
+    @GetMapping("/supplier-capabilities")
+    public ResponseEntity<Map<String, Object>> getSupplierCapabilities() {
+        return ResponseEntity.ok(capabilityIndex.getStats());
+    }
+
+    @GetMapping("/slow-requests")
+    public ResponseEntity<List<Map<String, Object>>> getSlowRequests() {
+        return ResponseEntity.ok(slowRequestLog.getRecent());
+    }
+
+    @GetMapping("/supplier-connections")
+    public ResponseEntity<Map<String, Object>> getSupplierConnections() {
+        return ResponseEntity.ok(client.getConnectionStats());
+    }
+
+    @GetMapping("/fault-injection")
+    public ResponseEntity<Map<String, Object>> getFaultInjection() {
+        return ResponseEntity.ok(faultInjector.getStats());
+    }
+
+    @GetMapping("/supplier-health")
+    public ResponseEntity<Map<String, Object>> getSupplierHealth() {
+        return ResponseEntity.ok(healthMonitor.getStats());
+    }
+
+    /**
+     * Takes a Flight Recorder recording of the given duration and returns it, to be opened with JDK Mission Control
+     * or the jfr tool. The response is sent once the recording stops.
+     *
+     * @param durationSeconds
+     * @param settings "default" or "profile"
+     * @return the recording, a 400 if the parameters are invalid or a 409 if a recording is already running
+     */
+    @PostMapping("/jfr")
+    public DeferredResult<ResponseEntity<byte[]>> recordJfr(
+            @RequestParam(value = "duration_s", defaultValue = "30") long durationSeconds,
+            @RequestParam(defaultValue = "profile") String settings) {
+        // The asynchronous timeout of searches is far shorter than a recording.
+        DeferredResult<ResponseEntity<byte[]>> result =
+                new DeferredResult<>(TimeUnit.SECONDS.toMillis(durationSeconds + JFR_TIMEOUT_GRACE_SECONDS));
+
+        CompletableFuture<byte[]> recording;
+        try {
+            recording = onDemandRecorder.record(durationSeconds, settings);
+        } catch (IllegalArgumentException exception) {
+            result.setResult(ResponseEntity.badRequest().build());
+            return result;
+        } catch (IllegalStateException exception) {
+            result.setResult(ResponseEntity.status(HttpStatus.CONFLICT).build());
+            return result;
+        }
+
+        recording.whenComplete((jfr, exception) -> {
+            if (exception != null) {
+                result.setErrorResult(exception);
+            } else {
+                result.setResult(ResponseEntity.ok()
+                        .contentType(MediaType.APPLICATION_OCTET_STREAM)
+                        .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"rideways-"
+                                + System.currentTimeMillis() + ".jfr\"")
+                        .body(jfr));
+            }
+        });
+        return result;
+    }
+}
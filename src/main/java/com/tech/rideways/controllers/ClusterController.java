@@ -0,0 +1,100 @@
+package com.tech.rideways.controllers;
+
+import com.tech.rideways.entities.Option;
+import com.tech.rideways.service.cache.OffHeapQuoteStore;
+import com.tech.rideways.service.cluster.ClusterQuoteCache;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.PutMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Endpoints the nodes of the quote cache cluster call on each other. Quotes are always read from and written to the
+ * local store here: the node calling already worked out that this node owns the route.
+ *
+ * Only mapped when the cluster is enabled, and only answered for callers sending the cluster secret.
+ */
+@RestController
+@RequestMapping("/cluster")
+@ConditionalOnProperty(name = "cluster.enabled", havingValue = "true")
+public class ClusterController {
+
+    @Autowired
+    private ClusterQuoteCache clusterQuoteCache;
+
+    @Autowired
+    private OffHeapQuoteStore quoteStore;
+
+    @GetMapping("/quotes")
+    public ResponseEntity<List<Option>> getQuotes(@RequestHeader(value = ClusterQuoteCache.SECRET_HEADER,
+                                                          required = false) String secret,
+                                                  @RequestParam String supplier,
+                                                  @RequestParam String pickup,
+                                                  @RequestParam String dropoff) {
+        if (!clusterQuoteCache.isAuthorized(secret)) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        }
+        List<Option> options = quoteStore.get(supplier, pickup, dropoff);
+        return options != null ? ResponseEntity.ok(options) : ResponseEntity.noContent().build();
+    }
+
+    @PutMapping("/quotes")
+    public ResponseEntity<Void> putQuotes(@RequestHeader(value = ClusterQuoteCache.SECRET_HEADER,
+                                                  required = false) String secret,
+                                          @RequestParam String supplier,
+                                          @RequestParam String pickup,
+                                          @RequestParam String dropoff,
+                                          @RequestBody List<Option> options) {
+        if (!clusterQuoteCache.isAuthorized(secret)) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        }
+        quoteStore.put(supplier, pickup, dropoff, options);
+        return ResponseEntity.noContent().build();
+    }
+
+    @GetMapping("/nodes")
+    public ResponseEntity<Set<String>> getNodes(@RequestHeader(value = ClusterQuoteCache.SECRET_HEADER,
+                                                        required = false) String secret) {
+        if (!clusterQuoteCache.isAuthorized(secret)) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        }
+        return ResponseEntity.ok(clusterQuoteCache.getNodes());
+    }
+
+    @PostMapping("/nodes")
+    public ResponseEntity<Set<String>> join(@RequestHeader(value = ClusterQuoteCache.SECRET_HEADER,
+                                                    required = false) String secret,
+                                            @RequestParam String url) {
+        if (!clusterQuoteCache.isAuthorized(secret)) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        }
+        try {
+            return ResponseEntity.ok(clusterQuoteCache.join(url));
+        } catch (IllegalArgumentException exception) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    @DeleteMapping("/nodes")
+    public ResponseEntity<Void> leave(@RequestHeader(value = ClusterQuoteCache.SECRET_HEADER,
+                                              required = false) String secret,
+                                      @RequestParam String url) {
+        if (!clusterQuoteCache.isAuthorized(secret)) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        }
+        clusterQuoteCache.leave(url);
+        return ResponseEntity.noContent().build();
+    }
+}
@@ -1,22 +1,44 @@
 package com.tech.rideways.controllers;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.tech.rideways.controllers.cache.CborOptionCodec;
+import com.tech.rideways.controllers.cache.EncodedResponse;
+import com.tech.rideways.controllers.cache.EncodedResponseCache;
+import com.tech.rideways.controllers.cache.RouteVersionStore;
+import com.tech.rideways.controllers.validation.SearchParameters;
 import com.tech.rideways.entities.Option;
+import com.tech.rideways.entities.RideChanges;
+import com.tech.rideways.service.RideFilter;
 import com.tech.rideways.service.RideService;
+import com.tech.rideways.service.utils.RequestContext;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.InvalidMediaTypeException;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
-import org.springframework.web.client.HttpClientErrorException;
 
 import javax.validation.Valid;
-import javax.validation.constraints.Pattern;
-import java.io.IOException;
-import java.net.URISyntaxException;
+import javax.validation.constraints.Min;
+import java.io.UncheckedIOException;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
+/**
+ * Searches are handled asynchronously: the Tomcat thread is released once the supplier calls are started, and the
+ * response is written when they have all answered (see WebConfig for the async request timeout).
+ *
+ * The ride options are written as JSON, or as CBOR for the clients whose Accept header prefers application/cbor.
+ *
+ * The pickup, dropoff and passengers parameters are checked by SearchValidationInterceptor before binding.
+ */
 @RestController
 @Validated
 public class RideController {
@@ -24,31 +46,211 @@ public class RideController {
     @Autowired
     private RideService rideService;
 
-    private static final String VALIDATION_REGEX = "(\\s*-?\\d+(\\.\\d+)?)(\\s*,\\s*-?\\d+(\\.\\d+)?)";
+    @Autowired
+    private EncodedResponseCache responseCache;
+
+    @Autowired
+    private RouteVersionStore routeVersions;
+
+    // Adds the time spent in each stage of a search to its response, see RequestContext.serverTiming().
+    @Value("${timing.server_timing:true}")
+    private boolean serverTimingEnabled = true;
+
+    private static final String SERVER_TIMING = "Server-Timing";
 
     @GetMapping("/ride")
-    public ResponseEntity<List<Option>> getRideOptions(@Valid @Pattern(regexp = VALIDATION_REGEX) @RequestParam String pickup,
-                                                       @Valid @Pattern(regexp = VALIDATION_REGEX) @RequestParam String dropoff,
-                                                       @RequestParam(required = false) String passengers)
-            throws IOException {
+    public CompletableFuture<ResponseEntity<byte[]>> getRideOptions(@RequestParam String pickup,
+                                                 @RequestParam String dropoff,
+                                                 @RequestParam(required = false) String passengers,
+                                                 @RequestParam(value = "car_types", required = false)
+                                                         List<String> carTypes,
+                                                 @RequestParam(value = "max_price", required = false) Integer maxPrice,
+                                                 @Valid @Min(1) @RequestParam(required = false) Integer limit,
+                                                 @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false)
+                                                         String ifNoneMatch,
+                                                 @RequestHeader(value = HttpHeaders.ACCEPT, required = false)
+                                                         String accept) {
+
+        recordValidationTiming();
+
+        Integer passengersNo = passengersNo(passengers);
+        RideFilter filter = new RideFilter(carTypes, maxPrice, limit);
+
+        MediaType format = negotiate(accept);
 
-        Integer passengersNo = passengers != null ? Integer.parseInt(passengers) : null;
+        String key = responseCache.key(null, pickup, dropoff, passengersNo, filter);
+        EncodedResponse response = responseCache.get(key, format);
 
-        List<Option> options = rideService.findOptionsByCarTypeWithCheapestSupplier(pickup, dropoff, passengersNo);
+        if (response != null) {
+            return CompletableFuture.completedFuture(respond(response, ifNoneMatch));
+        }
 
-        return ResponseEntity.ok(options);
+        return rideService.findOptionsByCarTypeWithCheapestSupplierAsync(pickup, dropoff, passengersNo, filter)
+                .thenApply(RequestContext.wrap(options -> respond(encode(key, options, format), ifNoneMatch)));
+    }
+
+    /**
+     * Returns the car types whose cheapest supplier or price changed since the version the client holds, so a client
+     * polling the same search does not download the whole result every time.
+     *
+     * @param pickup
+     * @param dropoff
+     * @param passengers (optional => may be null)
+     * @param since (optional => may be null) version returned by the previous call, the whole result when omitted
+     * @return the changes and the current version
+     */
+    @GetMapping("/ride/changes")
+    public CompletableFuture<ResponseEntity<RideChanges>> getRideOptionChanges(@RequestParam String pickup,
+                                                                               @RequestParam String dropoff,
+                                                                               @RequestParam(required = false) String passengers,
+                                                                               @RequestParam(required = false) Long since) {
+
+        recordValidationTiming();
+
+        Integer passengersNo = passengersNo(passengers);
+        String key = responseCache.key(null, pickup, dropoff, passengersNo, RideFilter.NONE);
+
+        return rideService.findOptionsByCarTypeWithCheapestSupplierAsync(pickup, dropoff, passengersNo, RideFilter.NONE)
+                .thenApply(RequestContext.wrap(options -> ResponseEntity.ok().headers(serverTimingHeaders())
+                        .body(routeVersions.update(key, options, since))));
     }
 
     @GetMapping("/ride/{supplier}")
-    public ResponseEntity<List<Option>> getRideOptions(@PathVariable String supplier,
-                                                       @Valid @Pattern(regexp = VALIDATION_REGEX) @RequestParam String pickup,
-                                                       @Valid @Pattern(regexp = VALIDATION_REGEX) @RequestParam String dropoff,
-                                                       @RequestParam(required = false) String passengers) {
+    public CompletableFuture<ResponseEntity<byte[]>> getRideOptions(@PathVariable String supplier,
+                                                 @RequestParam String pickup,
+                                                 @RequestParam String dropoff,
+                                                 @RequestParam(required = false) String passengers,
+                                                 @RequestParam(value = "car_types", required = false)
+                                                         List<String> carTypes,
+                                                 @RequestParam(value = "max_price", required = false) Integer maxPrice,
+                                                 @Valid @Min(1) @RequestParam(required = false) Integer limit,
+                                                 @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false)
+                                                         String ifNoneMatch,
+                                                 @RequestHeader(value = HttpHeaders.ACCEPT, required = false)
+                                                         String accept) {
+
+        recordValidationTiming();
+
+        Integer passengersNo = passengersNo(passengers);
+        RideFilter filter = new RideFilter(carTypes, maxPrice, limit);
+
+        MediaType format = negotiate(accept);
 
-        Integer passengersNo = passengers != null ? Integer.parseInt(passengers) : null;
-        List<Option> options = rideService.findOptionsByPriceDescending(supplier, pickup, dropoff, passengersNo);
+        String key = responseCache.key(supplier, pickup, dropoff, passengersNo, filter);
+        EncodedResponse response = responseCache.get(key, format);
 
-        return ResponseEntity.ok(options);
+        if (response != null) {
+            return CompletableFuture.completedFuture(respond(response, ifNoneMatch));
+        }
+
+        return rideService.findOptionsByPriceDescendingAsync(supplier, pickup, dropoff, passengersNo, filter)
+                .thenApply(RequestContext.wrap(options -> respond(encode(key, options, format), ifNoneMatch)));
+    }
+
+    /**
+     * Picks the format of the options from the Accept header: CBOR when the client prefers it, JSON otherwise.
+     *
+     * @param accept (optional => may be null)
+     * @return application/json or application/cbor
+     */
+    static MediaType negotiate(String accept) {
+        if (accept == null) {
+            return MediaType.APPLICATION_JSON;
+        }
+
+        List<MediaType> accepted;
+        try {
+            accepted = MediaType.parseMediaTypes(accept);
+        } catch (InvalidMediaTypeException exception) {
+            return MediaType.APPLICATION_JSON;
+        }
+        MediaType.sortBySpecificityAndQuality(accepted);
+
+        for (MediaType mediaType : accepted) {
+            if (mediaType.getQualityValue() == 0) {
+                continue;
+            }
+            // JSON first, so */* and application/* keep getting JSON.
+            if (mediaType.includes(MediaType.APPLICATION_JSON)) {
+                return MediaType.APPLICATION_JSON;
+            }
+            if (mediaType.includes(CborOptionCodec.APPLICATION_CBOR)) {
+                return CborOptionCodec.APPLICATION_CBOR;
+            }
+        }
+        return MediaType.APPLICATION_JSON;
+    }
+
+    /**
+     * Encodes the options of a search and caches them.
+     *
+     * @param key
+     * @param options
+     * @param format
+     * @return the encoded response
+     */
+    private EncodedResponse encode(String key, List<Option> options, MediaType format) {
+        long serializationStart = System.nanoTime();
+        try {
+            return responseCache.put(key, options, format);
+        } catch (JsonProcessingException exception) {
+            throw new UncheckedIOException(exception);
+        } finally {
+            RequestContext.recordTiming("serialization", serializationStart);
+        }
     }
 
+    /**
+     * Writes the pre-encoded response, or a 304 if the client already holds the same representation.
+     *
+     * @param response
+     * @param ifNoneMatch (optional => may be null)
+     * @return responseEntity
+     */
+    private ResponseEntity<byte[]> respond(EncodedResponse response, String ifNoneMatch) {
+        if (response.matches(ifNoneMatch)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(response.getETag())
+                    .varyBy(HttpHeaders.ACCEPT)
+                    .headers(serverTimingHeaders()).build();
+        }
+
+        return ResponseEntity.ok()
+                .eTag(response.getETag())
+                .varyBy(HttpHeaders.ACCEPT)
+                .headers(serverTimingHeaders())
+                .contentType(response.getContentType())
+                .body(response.getBody());
+    }
+
+    /**
+     * @param passengers (optional => may be null) already checked by SearchValidationInterceptor
+     * @return the number of passengers, or null for any
+     */
+    private static Integer passengersNo(String passengers) {
+        int passengersNo = SearchParameters.parsePassengers(passengers);
+        return passengersNo != SearchParameters.ANY_PASSENGERS ? passengersNo : null;
+    }
+
+    /**
+     * Records the time between the start of the search and the handler, spent admitting the search and binding and
+     * validating its parameters.
+     */
+    private void recordValidationTiming() {
+        RequestContext context = RequestContext.current();
+        if (context != null) {
+            context.addTiming("validation", System.nanoTime() - context.getStartNanos());
+        }
+    }
+
+    /**
+     * @return the Server-Timing header of the search handled by the current thread, if any
+     */
+    private HttpHeaders serverTimingHeaders() {
+        HttpHeaders headers = new HttpHeaders();
+        RequestContext context = RequestContext.current();
+        if (serverTimingEnabled && context != null) {
+            headers.set(SERVER_TIMING, context.serverTiming());
+        }
+        return headers;
+    }
 }
@@ -0,0 +1,233 @@
+package com.tech.rideways.controllers.cache;
+
+import com.tech.rideways.entities.Option;
+import org.springframework.http.MediaType;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Encodes ride options as CBOR (RFC 8949), with the same fields and names as their JSON: an array of maps holding
+ * "supplier" (when known), "car_type" and "price". Any CBOR library can read it; decode() reads it back for the
+ * tests and benchmarks. Written by hand because the options only need a handful of CBOR types.
+ */
+public final class CborOptionCodec {
+
+    public static final MediaType APPLICATION_CBOR = MediaType.valueOf("application/cbor");
+
+    private static final int MAJOR_UNSIGNED = 0;
+    private static final int MAJOR_NEGATIVE = 1;
+    private static final int MAJOR_TEXT = 3;
+    private static final int MAJOR_ARRAY = 4;
+    private static final int MAJOR_MAP = 5;
+
+    private static final byte[] SUPPLIER = "supplier".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] CAR_TYPE = "car_type".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] PRICE = "price".getBytes(StandardCharsets.UTF_8);
+
+    private CborOptionCodec() {
+    }
+
+    /**
+     * @param options
+     * @return the options as a CBOR array
+     */
+    public static byte[] encode(List<Option> options) {
+        // About 45 bytes per option with its supplier, so the buffer rarely grows.
+        Writer out = new Writer(8 + 48 * options.size());
+        out.writeHead(MAJOR_ARRAY, options.size());
+
+        for (Option option : options) {
+            out.writeHead(MAJOR_MAP, option.getSupplier() != null ? 3 : 2);
+            if (option.getSupplier() != null) {
+                out.writeText(SUPPLIER);
+                out.writeText(option.getSupplier());
+            }
+            out.writeText(CAR_TYPE);
+            out.writeText(option.getCarType());
+            out.writeText(PRICE);
+            if (option.getPrice() >= 0) {
+                out.writeHead(MAJOR_UNSIGNED, option.getPrice());
+            } else {
+                out.writeHead(MAJOR_NEGATIVE, -1L - option.getPrice());
+            }
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * @param cbor an array of options, as written by encode()
+     * @return options
+     * @throws IOException if the bytes are not such an array
+     */
+    public static List<Option> decode(byte[] cbor) throws IOException {
+        Reader reader = new Reader(cbor);
+        int size = (int) reader.readHead(MAJOR_ARRAY);
+        List<Option> options = new ArrayList<>(size);
+
+        for (int i = 0; i < size; i++) {
+            Option option = new Option();
+            long fields = reader.readHead(MAJOR_MAP);
+            for (long field = 0; field < fields; field++) {
+                String name = reader.readText();
+                switch (name) {
+                    case "supplier":
+                        option.setSupplier(reader.readText());
+                        break;
+                    case "car_type":
+                        option.setCarType(reader.readText());
+                        break;
+                    case "price":
+                        option.setPrice(reader.readInt());
+                        break;
+                    default:
+                        throw new IOException("Unknown option field: " + name);
+                }
+            }
+            options.add(option);
+        }
+        return options;
+    }
+
+    /**
+     * Growable buffer, unsynchronized unlike ByteArrayOutputStream.
+     */
+    private static class Writer {
+
+        private byte[] bytes;
+
+        private int position;
+
+        private Writer(int capacity) {
+            this.bytes = new byte[capacity];
+        }
+
+        private void writeText(byte[] utf8) {
+            writeHead(MAJOR_TEXT, utf8.length);
+            ensureCapacity(utf8.length);
+            System.arraycopy(utf8, 0, bytes, position, utf8.length);
+            position += utf8.length;
+        }
+
+        private void writeText(String text) {
+            // Supplier names and car types are ASCII, which is copied as is; anything else is encoded first.
+            for (int i = 0; i < text.length(); i++) {
+                if (text.charAt(i) >= 0x80) {
+                    writeText(text.getBytes(StandardCharsets.UTF_8));
+                    return;
+                }
+            }
+            writeHead(MAJOR_TEXT, text.length());
+            ensureCapacity(text.length());
+            for (int i = 0; i < text.length(); i++) {
+                bytes[position++] = (byte) text.charAt(i);
+            }
+        }
+
+        /**
+         * Writes the initial byte of a data item and its argument, in as few bytes as the argument allows.
+         */
+        private void writeHead(int major, long argument) {
+            ensureCapacity(9);
+            int type = major << 5;
+            if (argument < 24) {
+                bytes[position++] = (byte) (type | (int) argument);
+            } else if (argument < 0x100) {
+                bytes[position++] = (byte) (type | 24);
+                writeBigEndian(argument, 1);
+            } else if (argument < 0x10000) {
+                bytes[position++] = (byte) (type | 25);
+                writeBigEndian(argument, 2);
+            } else if (argument < 0x100000000L) {
+                bytes[position++] = (byte) (type | 26);
+                writeBigEndian(argument, 4);
+            } else {
+                bytes[position++] = (byte) (type | 27);
+                writeBigEndian(argument, 8);
+            }
+        }
+
+        private void writeBigEndian(long value, int length) {
+            for (int shift = 8 * (length - 1); shift >= 0; shift -= 8) {
+                bytes[position++] = (byte) (value >>> shift);
+            }
+        }
+
+        private void ensureCapacity(int length) {
+            if (position + length > bytes.length) {
+                bytes = Arrays.copyOf(bytes, Math.max(2 * bytes.length, position + length));
+            }
+        }
+
+        private byte[] toByteArray() {
+            return Arrays.copyOf(bytes, position);
+        }
+    }
+
+    private static class Reader {
+
+        private final byte[] bytes;
+
+        private int position;
+
+        private Reader(byte[] bytes) {
+            this.bytes = bytes;
+        }
+
+        private String readText() throws IOException {
+            int length = (int) readHead(MAJOR_TEXT);
+            if (position + length > bytes.length) {
+                throw new IOException("Truncated CBOR text");
+            }
+            String text = new String(bytes, position, length, StandardCharsets.UTF_8);
+            position += length;
+            return text;
+        }
+
+        private int readInt() throws IOException {
+            int major = (readByte() & 0xFF) >>> 5;
+            position--;
+            if (major == MAJOR_NEGATIVE) {
+                return (int) (-1L - readHead(MAJOR_NEGATIVE));
+            }
+            return (int) readHead(MAJOR_UNSIGNED);
+        }
+
+        private long readHead(int expectedMajor) throws IOException {
+            int initial = readByte() & 0xFF;
+            if (initial >>> 5 != expectedMajor) {
+                throw new IOException("Expected CBOR major type " + expectedMajor + " but got " + (initial >>> 5));
+            }
+
+            int additional = initial & 0x1F;
+            if (additional < 24) {
+                return additional;
+            }
+            switch (additional) {
+                case 24: return readBigEndian(1);
+                case 25: return readBigEndian(2);
+                case 26: return readBigEndian(4);
+                case 27: return readBigEndian(8);
+                default: throw new IOException("Unsupported CBOR argument: " + additional);
+            }
+        }
+
+        private long readBigEndian(int length) throws IOException {
+            long value = 0;
+            for (int i = 0; i < length; i++) {
+                value = (value << 8) | (readByte() & 0xFF);
+            }
+            return value;
+        }
+
+        private byte readByte() throws IOException {
+            if (position >= bytes.length) {
+                throw new IOException("Truncated CBOR item");
+            }
+            return bytes[position++];
+        }
+    }
+}
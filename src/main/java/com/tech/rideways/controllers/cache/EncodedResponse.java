@@ -0,0 +1,73 @@
+package com.tech.rideways.controllers.cache;
+
+import org.springframework.http.MediaType;
+import org.springframework.util.DigestUtils;
+
+/**
+ * A response body that has already been serialized, together with its ETag.
+ *
+ * The ETag is weak: server compression gzips the same body for some clients and not for others, and a strong ETag
+ * would have to differ between those representations.
+ */
+public class EncodedResponse {
+
+    private final byte[] body;
+
+    private final MediaType contentType;
+
+    private final String eTag;
+
+    private final long expiresAtMillis;
+
+    public EncodedResponse(byte[] body, long expiresAtMillis) {
+        this(body, MediaType.APPLICATION_JSON, expiresAtMillis);
+    }
+
+    public EncodedResponse(byte[] body, MediaType contentType, long expiresAtMillis) {
+        this.body = body;
+        this.contentType = contentType;
+        this.eTag = "W/\"" + DigestUtils.md5DigestAsHex(body) + "\"";
+        this.expiresAtMillis = expiresAtMillis;
+    }
+
+    public byte[] getBody() {
+        return body;
+    }
+
+    public MediaType getContentType() {
+        return contentType;
+    }
+
+    public String getETag() {
+        return eTag;
+    }
+
+    public boolean isExpired(long nowMillis) {
+        return nowMillis >= expiresAtMillis;
+    }
+
+    /**
+     * Checks whether the given If-None-Match header value matches this response, with the weak comparison of
+     * RFC 7232: the W/ prefixes are ignored.
+     *
+     * @param ifNoneMatch (optional => may be null)
+     * @return true if the client already holds this body, compressed or not
+     */
+    public boolean matches(String ifNoneMatch) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+
+        for (String candidate : ifNoneMatch.split(",")) {
+            String tag = candidate.trim();
+            if (tag.equals("*") || opaqueTag(tag).equals(opaqueTag(eTag))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String opaqueTag(String tag) {
+        return tag.startsWith("W/") ? tag.substring(2) : tag;
+    }
+}
@@ -0,0 +1,125 @@
+package com.tech.rideways.controllers.cache;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.tech.rideways.entities.Option;
+import com.tech.rideways.service.RideFilter;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Keeps the aggregated ride options of recent searches pre-encoded, so repeated searches
+ * for the same route skip both the supplier calls and the serialization. Each format (JSON, or CBOR
+ * for the clients asking for it) is cached separately.
+ *
+ * When the cache is full, the oldest search cached makes room for the new one. Expired responses are left in place
+ * until then, so that each key is in the eviction queue exactly once.
+ */
+@Component
+public class EncodedResponseCache {
+
+    @Value("${response_cache.ttl_ms:5000}")
+    private long ttlMillis = 5000;
+
+    @Value("${response_cache.max_entries:10000}")
+    private int maxEntries = 10000;
+
+    @Autowired
+    private ObjectMapper objectMapper = new ObjectMapper();
+
+    private final Map<String, EncodedResponse> entries = new ConcurrentHashMap<>();
+
+    // Keys of the entries, the oldest first.
+    private final Queue<String> keys = new ConcurrentLinkedQueue<>();
+
+    /**
+     * Builds the cache key of a search.
+     *
+     * @param supplier (optional => may be null when searching all the suppliers)
+     * @param pickup
+     * @param dropoff
+     * @param passengersNo (optional => may be null)
+     * @param filter
+     * @return key
+     */
+    public String key(String supplier, String pickup, String dropoff, Integer passengersNo, RideFilter filter) {
+        return supplier + "|" + pickup + "|" + dropoff + "|" + passengersNo + "|" + filter;
+    }
+
+    /**
+     * Finds a cached response that has not expired yet.
+     *
+     * @param key
+     * @return the cached response, or null if there is none
+     */
+    public EncodedResponse get(String key) {
+        return get(key, MediaType.APPLICATION_JSON);
+    }
+
+    /**
+     * Finds a cached response in the given format that has not expired yet.
+     *
+     * @param key
+     * @param format application/json or application/cbor
+     * @return the cached response, or null if there is none
+     */
+    public EncodedResponse get(String key, MediaType format) {
+        EncodedResponse response = entries.get(formatKey(key, format));
+        return response != null && !response.isExpired(System.currentTimeMillis()) ? response : null;
+    }
+
+    /**
+     * Serializes the given options and caches the result under the given key.
+     *
+     * @param key
+     * @param options
+     * @return the encoded response (returned even when caching is disabled)
+     */
+    public EncodedResponse put(String key, List<Option> options) throws JsonProcessingException {
+        return put(key, options, MediaType.APPLICATION_JSON);
+    }
+
+    /**
+     * Serializes the given options in the given format and caches the result under the given key, evicting the
+     * oldest search cached when the cache is full.
+     *
+     * @param key
+     * @param options
+     * @param format application/json or application/cbor
+     * @return the encoded response (returned even when caching is disabled)
+     */
+    public EncodedResponse put(String key, List<Option> options, MediaType format) throws JsonProcessingException {
+        long now = System.currentTimeMillis();
+        byte[] body = CborOptionCodec.APPLICATION_CBOR.equals(format)
+                ? CborOptionCodec.encode(options)
+                : objectMapper.writeValueAsBytes(options);
+        EncodedResponse response = new EncodedResponse(body, format, now + ttlMillis);
+
+        String formatKey = formatKey(key, format);
+        if (ttlMillis > 0 && entries.replace(formatKey, response) == null) {
+            while (entries.size() >= maxEntries) {
+                String oldest = keys.poll();
+                if (oldest == null) {
+                    break;
+                }
+                entries.remove(oldest);
+            }
+            if (entries.put(formatKey, response) == null) {
+                keys.add(formatKey);
+            }
+        }
+        return response;
+    }
+
+    private static String formatKey(String key, MediaType format) {
+        return MediaType.APPLICATION_JSON.equals(format) ? key : key + "|" + format;
+    }
+}
@@ -0,0 +1,194 @@
+package com.tech.rideways.controllers.cache;
+
+import com.tech.rideways.entities.Option;
+import com.tech.rideways.entities.RideChanges;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Versions the aggregated ride options of each search, so a client polling the same search only downloads the car
+ * types whose cheapest supplier or price changed since the version it holds. A search gets a new version only when
+ * its result differs from the latest one, and the last few versions are kept to diff against.
+ *
+ * When route_versions.max_routes searches are versioned, the oldest one makes room for a new one.
+ */
+@Component
+public class RouteVersionStore {
+
+    // Versions kept per search; clients further behind get the whole result again.
+    @Value("${route_versions.history:16}")
+    private int history = 16;
+
+    @Value("${route_versions.max_routes:10000}")
+    private int maxRoutes = 10000;
+
+    // Searches nobody polled for this long start over from a new version.
+    @Value("${route_versions.ttl_ms:600000}")
+    private long ttlMillis = 600000;
+
+    // Seeded with the clock, so the versions handed out before a restart are not reused after it.
+    private final AtomicLong lastVersion = new AtomicLong(System.currentTimeMillis());
+
+    private final Map<String, Versions> routes = new ConcurrentHashMap<>();
+
+    // Keys of the routes, the oldest first.
+    private final Queue<String> keys = new ConcurrentLinkedQueue<>();
+
+    /**
+     * Records the latest options of a search and works out what changed since the client's version.
+     *
+     * @param key search key, see EncodedResponseCache.key()
+     * @param options the latest options, one per car type
+     * @param since (optional => may be null) the version the client holds
+     * @return the changes, or the whole result if the client's version is not kept (any more)
+     */
+    public RideChanges update(String key, List<Option> options, Long since) {
+        long now = System.currentTimeMillis();
+        Map<String, Option> latest = byCarType(options);
+
+        Versions versions = routes.get(key);
+        if (versions == null) {
+            versions = track(key);
+        }
+
+        synchronized (versions) {
+            if (versions.isExpired(now, ttlMillis)) {
+                versions.list.clear();
+            }
+            versions.lastAccessMillis = now;
+
+            Version current = versions.list.peekLast();
+            if (current == null || !sameOptions(current.options, latest)) {
+                current = new Version(lastVersion.incrementAndGet(), latest);
+                versions.list.addLast(current);
+                if (versions.list.size() > history) {
+                    versions.list.removeFirst();
+                }
+            }
+
+            if (since != null && since == current.number) {
+                return RideChanges.unchanged(current.number);
+            }
+
+            Version base = since != null ? versions.find(since) : null;
+            if (base == null) {
+                return RideChanges.full(current.number, options);
+            }
+            return diff(base, current);
+        }
+    }
+
+    /**
+     * Starts versioning a search, evicting the oldest search versioned if there are max_routes of them.
+     *
+     * @param key
+     * @return the versions of the search
+     */
+    private Versions track(String key) {
+        while (routes.size() >= maxRoutes) {
+            String oldest = keys.poll();
+            if (oldest == null) {
+                break;
+            }
+            routes.remove(oldest);
+        }
+
+        Versions versions = new Versions();
+        Versions tracked = routes.putIfAbsent(key, versions);
+        if (tracked != null) {
+            return tracked;
+        }
+        keys.add(key);
+        return versions;
+    }
+
+    public int size() {
+        return routes.size();
+    }
+
+    private static RideChanges diff(Version base, Version current) {
+        List<Option> changed = new ArrayList<>();
+        for (Option option : current.options.values()) {
+            Option previous = base.options.get(option.getCarType());
+            if (previous == null || !sameQuote(previous, option)) {
+                changed.add(option);
+            }
+        }
+        Collections.sort(changed);
+
+        List<String> removed = new ArrayList<>();
+        for (String carType : base.options.keySet()) {
+            if (!current.options.containsKey(carType)) {
+                removed.add(carType);
+            }
+        }
+        return RideChanges.delta(current.number, changed, removed);
+    }
+
+    private static Map<String, Option> byCarType(List<Option> options) {
+        Map<String, Option> byCarType = new LinkedHashMap<>();
+        options.forEach(option -> byCarType.put(option.getCarType(), option));
+        return byCarType;
+    }
+
+    private static boolean sameOptions(Map<String, Option> a, Map<String, Option> b) {
+        if (!a.keySet().equals(b.keySet())) {
+            return false;
+        }
+        for (Map.Entry<String, Option> entry : a.entrySet()) {
+            if (!sameQuote(entry.getValue(), b.get(entry.getKey()))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean sameQuote(Option a, Option b) {
+        return a.getPrice() == b.getPrice() && Objects.equals(a.getSupplier(), b.getSupplier());
+    }
+
+    private static class Version {
+
+        private final long number;
+
+        private final Map<String, Option> options;
+
+        private Version(long number, Map<String, Option> options) {
+            this.number = number;
+            this.options = options;
+        }
+    }
+
+    private static class Versions {
+
+        private final Deque<Version> list = new ArrayDeque<>();
+
+        private volatile long lastAccessMillis = System.currentTimeMillis();
+
+        private Version find(long number) {
+            for (Version version : list) {
+                if (version.number == number) {
+                    return version;
+                }
+            }
+            return null;
+        }
+
+        private boolean isExpired(long nowMillis, long ttlMillis) {
+            return nowMillis - lastAccessMillis >= ttlMillis;
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package com.tech.rideways.controllers.context;
+
+import com.tech.rideways.service.profiling.SearchEvent;
+import com.tech.rideways.service.utils.Lane;
+import com.tech.rideways.service.utils.RequestContext;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.AsyncHandlerInterceptor;
+
+import javax.servlet.DispatcherType;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * Opens the RequestContext of each search, starting the clock on its deadline and on its timings, and hands the
+ * timings of the finished search to the SlowRequestLog. Searches sent with the priority header set to "bulk" run in
+ * the bulk lane. While an asynchronous search waits for its suppliers, the context is kept with the request and
+ * taken off the Tomcat thread, then attached again to the thread writing the response. Each search is also recorded
+ * as a SearchEvent by the Flight Recorder recordings running.
+ */
+@Component
+public class RequestContextInterceptor implements AsyncHandlerInterceptor {
+
+    private static final String CONTEXT_ATTRIBUTE = RequestContextInterceptor.class.getName() + ".context";
+
+    private static final String EVENT_ATTRIBUTE = RequestContextInterceptor.class.getName() + ".event";
+
+    @Value("${ride.deadline_ms:3000}")
+    private long deadlineMillis = 3000;
+
+    @Value("${priority.header:X-Priority}")
+    private String priorityHeader = "X-Priority";
+
+    @Autowired
+    private SlowRequestLog slowRequestLog;
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        if (request.getDispatcherType() == DispatcherType.ASYNC) {
+            RequestContext.attach((RequestContext) request.getAttribute(CONTEXT_ATTRIBUTE));
+            return true;
+        }
+
+        SearchEvent event = new SearchEvent();
+        event.begin();
+        request.setAttribute(EVENT_ATTRIBUTE, event);
+
+        Lane lane = "bulk".equalsIgnoreCase(request.getHeader(priorityHeader)) ? Lane.BULK : Lane.INTERACTIVE;
+        request.setAttribute(CONTEXT_ATTRIBUTE, RequestContext.open(deadlineMillis, lane));
+        return true;
+    }
+
+    @Override
+    public void afterConcurrentHandlingStarted(HttpServletRequest request, HttpServletResponse response,
+                                               Object handler) {
+        RequestContext.close();
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler,
+                                Exception exception) {
+        RequestContext context = RequestContext.current();
+        if (context != null) {
+            slowRequestLog.record(request, response.getStatus(), context);
+        }
+
+        SearchEvent event = (SearchEvent) request.getAttribute(EVENT_ATTRIBUTE);
+        if (event != null) {
+            event.commit(request.getRequestURI(), context != null ? context.getLane().name() : null,
+                    response.getStatus());
+        }
+        RequestContext.close();
+    }
+}
@@ -0,0 +1,87 @@
+package com.tech.rideways.controllers.context;
+
+import com.tech.rideways.service.utils.RequestContext;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.servlet.http.HttpServletRequest;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Keeps the timing breakdown of a sample of the recent slow searches in a fixed-size ring buffer, the oldest
+ * entries being overwritten first.
+ */
+@Component
+public class SlowRequestLog {
+
+    @Value("${timing.slow_threshold_ms:1000}")
+    private long slowThresholdMillis = 1000;
+
+    // Fraction of the slow searches recorded.
+    @Value("${timing.sample_rate:0.1}")
+    private double sampleRate = 0.1;
+
+    @Value("${timing.buffer_size:100}")
+    private int bufferSize = 100;
+
+    private AtomicReferenceArray<Map<String, Object>> buffer;
+
+    private final AtomicLong recorded = new AtomicLong();
+
+    @PostConstruct
+    public void init() {
+        buffer = new AtomicReferenceArray<>(Math.max(bufferSize, 1));
+    }
+
+    /**
+     * Records a finished search if it was slow and it is sampled.
+     *
+     * @param request
+     * @param status
+     * @param context
+     */
+    public void record(HttpServletRequest request, int status, RequestContext context) {
+        long totalNanos = context.elapsedNanos();
+        if (totalNanos < slowThresholdMillis * 1_000_000L || ThreadLocalRandom.current().nextDouble() >= sampleRate) {
+            return;
+        }
+
+        Map<String, Double> timings = new LinkedHashMap<>();
+        context.getTimings().forEach((name, nanos) -> timings.put(name, nanos / 1e6));
+
+        Map<String, Object> entry = new LinkedHashMap<>();
+        entry.put("time", Instant.now().toString());
+        entry.put("request", request.getQueryString() != null
+                ? request.getRequestURI() + "?" + request.getQueryString()
+                : request.getRequestURI());
+        entry.put("status", status);
+        entry.put("total_ms", totalNanos / 1e6);
+        entry.put("timings_ms", timings);
+
+        long index = recorded.getAndIncrement();
+        buffer.set((int) (index % buffer.length()), entry);
+    }
+
+    /**
+     * @return the slow searches recorded, the most recent first
+     */
+    public List<Map<String, Object>> getRecent() {
+        List<Map<String, Object>> recent = new ArrayList<>();
+        long last = recorded.get() - 1;
+        for (long index = last; index >= 0 && index > last - buffer.length(); index--) {
+            Map<String, Object> entry = buffer.get((int) (index % buffer.length()));
+            if (entry != null) {
+                recent.add(entry);
+            }
+        }
+        return recent;
+    }
+}
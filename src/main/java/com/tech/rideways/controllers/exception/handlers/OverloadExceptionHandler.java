@@ -0,0 +1,28 @@
+package com.tech.rideways.controllers.exception.handlers;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+import org.springframework.web.bind.annotation.ControllerAdvice;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Answers the searches the supplier executors had no room for with a 503, as the concurrency limit does, so that a
+ * retrying client comes back later.
+ */
+@ControllerAdvice
+@Component
+public class OverloadExceptionHandler {
+
+    @ExceptionHandler
+    public ResponseEntity<Map<String, String>> handle(RejectedExecutionException exception) {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, "1")
+                .body(Collections.singletonMap("Error: ", "service overloaded"));
+    }
+}
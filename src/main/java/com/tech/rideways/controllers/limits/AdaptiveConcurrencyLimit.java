@@ -0,0 +1,116 @@
+package com.tech.rideways.controllers.limits;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Concurrency limit that adapts to the observed latency using a gradient algorithm.
+ *
+ * The ratio between the long-term average latency and the latest sample tells whether requests are queueing
+ * somewhere (usually on the suppliers): the limit shrinks with that gradient, grows by sqrt(limit) while latency
+ * is stable, and is cut by a fixed factor whenever a request overruns the deadline.
+ */
+public class AdaptiveConcurrencyLimit {
+
+    private static final double SMOOTHING = 0.2;
+    private static final double LONG_RTT_DECAY = 0.01;
+    private static final double RTT_TOLERANCE = 1.5;
+    private static final double DEADLINE_BACKOFF = 0.8;
+
+    private final int minLimit;
+
+    private final int maxLimit;
+
+    private final long deadlineNanos;
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    private final LongAdder shed = new LongAdder();
+
+    private volatile double limit;
+
+    private double longRttNanos;
+
+    public AdaptiveConcurrencyLimit(int initialLimit, int minLimit, int maxLimit, long deadlineNanos) {
+        this.limit = initialLimit;
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.deadlineNanos = deadlineNanos;
+    }
+
+    /**
+     * Admits a request if the number of requests in flight is below the current limit.
+     *
+     * @return true if the request was admitted, and must be followed by a call to release()
+     */
+    public boolean tryAcquire() {
+        return tryAcquire(1.0);
+    }
+
+    /**
+     * Admits a request if the number of requests in flight is below a share of the current limit, leaving the rest
+     * of the limit to other requests.
+     *
+     * @param share of the limit the request may use, between 0 and 1
+     * @return true if the request was admitted, and must be followed by a call to release()
+     */
+    public boolean tryAcquire(double share) {
+        while (true) {
+            int current = inFlight.get();
+            if (current >= (int) (limit * share)) {
+                shed.increment();
+                return false;
+            }
+            if (inFlight.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Releases an admitted request and adjusts the limit using its latency.
+     *
+     * @param rttNanos time the request took to complete
+     */
+    public void release(long rttNanos) {
+        int current = inFlight.getAndDecrement();
+        update(rttNanos, current);
+    }
+
+    private synchronized void update(long rttNanos, int inFlightAtCompletion) {
+        if (rttNanos >= deadlineNanos) {
+            limit = Math.max(minLimit, limit * DEADLINE_BACKOFF);
+            return;
+        }
+
+        longRttNanos = longRttNanos == 0 ? rttNanos : longRttNanos * (1 - LONG_RTT_DECAY) + rttNanos * LONG_RTT_DECAY;
+
+        // Let the long-term average recover quickly once a latency spike is over.
+        if (longRttNanos > 2 * rttNanos) {
+            longRttNanos *= 1 - LONG_RTT_DECAY;
+        }
+
+        double gradient = Math.max(0.5, Math.min(1.0, RTT_TOLERANCE * longRttNanos / Math.max(1, rttNanos)));
+        double newLimit = limit * gradient + Math.sqrt(limit);
+
+        // Only grow when the limit is actually being used, otherwise it would drift up while idle.
+        if (newLimit > limit && inFlightAtCompletion * 2 < limit) {
+            newLimit = limit;
+        }
+
+        newLimit = limit * (1 - SMOOTHING) + newLimit * SMOOTHING;
+        limit = Math.max(minLimit, Math.min(maxLimit, newLimit));
+    }
+
+    public int getLimit() {
+        return (int) limit;
+    }
+
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    public long getShed() {
+        return shed.sum();
+    }
+}
@@ -0,0 +1,116 @@
+package com.tech.rideways.controllers.limits;
+
+import com.tech.rideways.service.utils.Lane;
+import com.tech.rideways.service.utils.RequestContext;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.HandlerInterceptor;
+
+import javax.annotation.PostConstruct;
+import javax.servlet.DispatcherType;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Sheds searches with a 503 as soon as the number in flight reaches the adaptive concurrency limit, instead of
+ * letting them queue on Tomcat threads while the suppliers are slow. Bulk searches are shed earlier, so part of the
+ * limit always stays free for interactive ones.
+ */
+@Component
+public class ConcurrencyLimitInterceptor implements HandlerInterceptor {
+
+    private static final String START_ATTRIBUTE = ConcurrencyLimitInterceptor.class.getName() + ".start";
+
+    private static final byte[] OVERLOADED_BODY =
+            "{\"Error: \":\"service overloaded\"}".getBytes(StandardCharsets.UTF_8);
+
+    @Value("${concurrency_limit.enabled:true}")
+    private boolean enabled = true;
+
+    @Value("${concurrency_limit.initial:20}")
+    private int initialLimit = 20;
+
+    @Value("${concurrency_limit.min:4}")
+    private int minLimit = 4;
+
+    @Value("${concurrency_limit.max:200}")
+    private int maxLimit = 200;
+
+    @Value("${concurrency_limit.deadline_ms:3000}")
+    private long deadlineMillis = 3000;
+
+    // Share of the limit bulk searches can never use.
+    @Value("${priority.reserved_interactive_share:0.25}")
+    private double reservedInteractiveShare = 0.25;
+
+    private AdaptiveConcurrencyLimit concurrencyLimit;
+
+    private final LongAdder bulkShed = new LongAdder();
+
+    @PostConstruct
+    public void init() {
+        concurrencyLimit = new AdaptiveConcurrencyLimit(initialLimit, minLimit, maxLimit,
+                TimeUnit.MILLISECONDS.toNanos(deadlineMillis));
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler)
+            throws IOException {
+
+        // The asynchronous dispatch writing the response of a search was admitted with the search.
+        if (!enabled || request.getDispatcherType() == DispatcherType.ASYNC) {
+            return true;
+        }
+
+        RequestContext context = RequestContext.current();
+        boolean bulk = context != null && context.getLane() == Lane.BULK;
+
+        if (concurrencyLimit.tryAcquire(bulk ? 1 - reservedInteractiveShare : 1.0)) {
+            request.setAttribute(START_ATTRIBUTE, System.nanoTime());
+            return true;
+        }
+
+        if (bulk) {
+            bulkShed.increment();
+        }
+        response.setStatus(HttpStatus.SERVICE_UNAVAILABLE.value());
+        response.setHeader(HttpHeaders.RETRY_AFTER, "1");
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.getOutputStream().write(OVERLOADED_BODY);
+        return false;
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler,
+                                Exception exception) {
+
+        Object start = request.getAttribute(START_ATTRIBUTE);
+        if (start != null) {
+            request.removeAttribute(START_ATTRIBUTE);
+            concurrencyLimit.release(System.nanoTime() - (Long) start);
+        }
+    }
+
+    /**
+     * @return the current limit, the number of searches in flight and the number of searches shed so far (in total
+     * and in the bulk lane)
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("limit", concurrencyLimit.getLimit());
+        stats.put("in_flight", concurrencyLimit.getInFlight());
+        stats.put("shed", concurrencyLimit.getShed());
+        stats.put("bulk_shed", bulkShed.sum());
+        return stats;
+    }
+}
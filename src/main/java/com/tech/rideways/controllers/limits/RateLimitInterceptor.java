@@ -0,0 +1,179 @@
+package com.tech.rideways.controllers.limits;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.HandlerInterceptor;
+
+import javax.servlet.DispatcherType;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Limits the number of searches each API client can make, keyed by its API key header or, when there is none,
+ * by its IP address. Requests over the limit are rejected with a 429 and a Retry-After header.
+ *
+ * At most rate_limit.max_clients clients get a bucket of their own. When a new client arrives at the limit, the
+ * client tracked for the longest time is dropped if it has been idle long enough for its bucket to refill; otherwise
+ * the new client shares a single overflow bucket with the other clients left untracked.
+ */
+@Component
+public class RateLimitInterceptor implements HandlerInterceptor {
+
+    private static final byte[] TOO_MANY_REQUESTS_BODY =
+            "{\"Error: \":\"too many requests\"}".getBytes(StandardCharsets.UTF_8);
+
+    @Value("${rate_limit.enabled:true}")
+    private boolean enabled = true;
+
+    @Value("${rate_limit.requests_per_second:20}")
+    private double requestsPerSecond = 20;
+
+    @Value("${rate_limit.burst:40}")
+    private int burst = 40;
+
+    @Value("${rate_limit.api_key_header:X-Api-Key}")
+    private String apiKeyHeader = "X-Api-Key";
+
+    @Value("${rate_limit.max_clients:100000}")
+    private int maxClients = 100000;
+
+    private final Map<String, TokenBucket> buckets = new ConcurrentHashMap<>();
+
+    // Keys of the buckets, the oldest first.
+    private final Queue<String> clientKeys = new ConcurrentLinkedQueue<>();
+
+    private volatile TokenBucket overflowBucket;
+
+    private final LongAdder evicted = new LongAdder();
+
+    private final LongAdder overflowed = new LongAdder();
+
+    private final LongAdder allowed = new LongAdder();
+
+    private final LongAdder rejected = new LongAdder();
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler)
+            throws IOException {
+
+        // A search resumed to write its response already took its token.
+        if (!enabled || request.getDispatcherType() == DispatcherType.ASYNC) {
+            return true;
+        }
+
+        long now = System.nanoTime();
+        String clientKey = clientKey(request);
+
+        TokenBucket bucket = buckets.get(clientKey);
+        if (bucket == null) {
+            bucket = track(clientKey, now);
+        }
+
+        long waitNanos = bucket.tryAcquire(now);
+        if (waitNanos == 0) {
+            allowed.increment();
+            return true;
+        }
+
+        rejected.increment();
+
+        response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+        response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(Math.max(1, TimeUnit.NANOSECONDS.toSeconds(
+                waitNanos + TimeUnit.SECONDS.toNanos(1) - 1))));
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.getOutputStream().write(TOO_MANY_REQUESTS_BODY);
+        return false;
+    }
+
+    /**
+     * Gives a new client a bucket of its own, making room by dropping the oldest client if it is idle, or else the
+     * overflow bucket.
+     *
+     * @param clientKey
+     * @param now
+     * @return the bucket of the client
+     */
+    private TokenBucket track(String clientKey, long now) {
+        if (buckets.size() >= maxClients) {
+            String oldestKey = clientKeys.poll();
+            TokenBucket oldest = oldestKey != null ? buckets.get(oldestKey) : null;
+            if (oldest != null && !oldest.isFull(now)) {
+                // Still active: it keeps its bucket, and is checked again once the others were.
+                clientKeys.add(oldestKey);
+            } else if (oldestKey != null && buckets.remove(oldestKey, oldest)) {
+                evicted.increment();
+            }
+            if (buckets.size() >= maxClients) {
+                overflowed.increment();
+                return overflowBucket(now);
+            }
+        }
+
+        TokenBucket bucket = new TokenBucket(requestsPerSecond, burst, now);
+        TokenBucket tracked = buckets.putIfAbsent(clientKey, bucket);
+        if (tracked != null) {
+            return tracked;
+        }
+        clientKeys.add(clientKey);
+        return bucket;
+    }
+
+    private TokenBucket overflowBucket(long now) {
+        TokenBucket bucket = overflowBucket;
+        if (bucket == null) {
+            synchronized (this) {
+                bucket = overflowBucket;
+                if (bucket == null) {
+                    bucket = new TokenBucket(requestsPerSecond, burst, now);
+                    overflowBucket = bucket;
+                }
+            }
+        }
+        return bucket;
+    }
+
+    /**
+     * Identifies the client making the request.
+     *
+     * @param request
+     * @return the API key if one was sent, otherwise the client IP address
+     */
+    private String clientKey(HttpServletRequest request) {
+        String apiKey = request.getHeader(apiKeyHeader);
+        return apiKey != null && !apiKey.isEmpty() ? "key:" + apiKey : "ip:" + request.getRemoteAddr();
+    }
+
+    /**
+     * @return the allowed and rejected counters, including the rejections of each client currently tracked
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Long> rejectedByClient = new LinkedHashMap<>();
+        buckets.forEach((clientKey, bucket) -> {
+            if (bucket.getRejected() > 0) {
+                rejectedByClient.put(clientKey, bucket.getRejected());
+            }
+        });
+
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("allowed", allowed.sum());
+        stats.put("rejected", rejected.sum());
+        stats.put("tracked_clients", buckets.size());
+        stats.put("evicted_clients", evicted.sum());
+        stats.put("overflow_requests", overflowed.sum());
+        stats.put("rejected_by_client", rejectedByClient);
+        return stats;
+    }
+}
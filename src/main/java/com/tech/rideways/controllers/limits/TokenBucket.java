@@ -0,0 +1,64 @@
+package com.tech.rideways.controllers.limits;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lock-free token bucket, implemented as a generic cell rate algorithm: the whole state is the theoretical arrival
+ * time (TAT) of the next request, updated with a single compare-and-set.
+ */
+public class TokenBucket {
+
+    private final long emissionIntervalNanos;
+
+    private final long toleranceNanos;
+
+    private final AtomicLong theoreticalArrivalTime;
+
+    private final LongAdder rejected = new LongAdder();
+
+    /**
+     * @param requestsPerSecond sustained rate the bucket refills at
+     * @param burst number of requests that can be made at once when the bucket is full
+     * @param nowNanos
+     */
+    public TokenBucket(double requestsPerSecond, int burst, long nowNanos) {
+        this.emissionIntervalNanos = (long) (1_000_000_000L / requestsPerSecond);
+        this.toleranceNanos = emissionIntervalNanos * (burst - 1);
+        this.theoreticalArrivalTime = new AtomicLong(nowNanos);
+    }
+
+    /**
+     * Takes a token from the bucket if one is available.
+     *
+     * @param nowNanos
+     * @return 0 if the request is allowed, otherwise the number of nanoseconds until a token becomes available
+     */
+    public long tryAcquire(long nowNanos) {
+        while (true) {
+            long current = theoreticalArrivalTime.get();
+            long next = Math.max(current, nowNanos) + emissionIntervalNanos;
+            long waitNanos = next - nowNanos - toleranceNanos - emissionIntervalNanos;
+
+            if (waitNanos > 0) {
+                rejected.increment();
+                return waitNanos;
+            }
+            if (theoreticalArrivalTime.compareAndSet(current, next)) {
+                return 0;
+            }
+        }
+    }
+
+    /**
+     * @param nowNanos
+     * @return true if the bucket has fully refilled, so forgetting it changes nothing
+     */
+    public boolean isFull(long nowNanos) {
+        return theoreticalArrivalTime.get() <= nowNanos;
+    }
+
+    public long getRejected() {
+        return rejected.sum();
+    }
+}
@@ -0,0 +1,60 @@
+package com.tech.rideways.controllers.security;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.HandlerInterceptor;
+
+import javax.servlet.DispatcherType;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+
+/**
+ * Keeps the /admin endpoints, which expose internal state and can start profiling recordings, away from the clients
+ * of the service: callers must send admin.token in the X-Admin-Token header. Without a token configured, only
+ * callers on this host are let in.
+ */
+@Component
+public class AdminAccessInterceptor implements HandlerInterceptor {
+
+    public static final String TOKEN_HEADER = "X-Admin-Token";
+
+    private static final byte[] FORBIDDEN_BODY = "{\"Error: \":\"forbidden\"}".getBytes(StandardCharsets.UTF_8);
+
+    @Value("${admin.token:}")
+    private String token = "";
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler)
+            throws IOException {
+
+        // The asynchronous dispatch writing a recording was let in with its request.
+        if (request.getDispatcherType() == DispatcherType.ASYNC || isAllowed(request)) {
+            return true;
+        }
+
+        response.setStatus(HttpStatus.FORBIDDEN.value());
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.getOutputStream().write(FORBIDDEN_BODY);
+        return false;
+    }
+
+    private boolean isAllowed(HttpServletRequest request) {
+        if (!token.isEmpty()) {
+            String sent = request.getHeader(TOKEN_HEADER);
+            return sent != null && MessageDigest.isEqual(sent.getBytes(StandardCharsets.UTF_8),
+                    token.getBytes(StandardCharsets.UTF_8));
+        }
+        try {
+            return InetAddress.getByName(request.getRemoteAddr()).isLoopbackAddress();
+        } catch (UnknownHostException e) {
+            return false;
+        }
+    }
+}
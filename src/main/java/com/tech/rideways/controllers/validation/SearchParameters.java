@@ -0,0 +1,108 @@
+package com.tech.rideways.controllers.validation;
+
+/**
+ * Checks the parameters of a search without throwing, so a malformed query costs a scan of its characters rather than
+ * a regular expression match and an exception.
+ */
+public final class SearchParameters {
+
+    // Returned by parsePassengers for a missing value.
+    public static final int ANY_PASSENGERS = 0;
+    // Returned by parsePassengers for an invalid value.
+    public static final int INVALID_PASSENGERS = -1;
+
+    private SearchParameters() {
+    }
+
+    /**
+     * Same grammar as the former validation regex, (\s*-?\d+(\.\d+)?)(\s*,\s*-?\d+(\.\d+)?): two decimal numbers
+     * separated by a comma, with optional whitespace before each of them and around the comma.
+     *
+     * @param coordinates (optional => may be null)
+     * @return true if the coordinates are valid
+     */
+    public static boolean isCoordinates(String coordinates) {
+        if (coordinates == null) {
+            return false;
+        }
+        int length = coordinates.length();
+        int i = skipNumber(coordinates, skipWhitespace(coordinates, 0, length), length);
+        if (i < 0) {
+            return false;
+        }
+        i = skipWhitespace(coordinates, i, length);
+        if (i == length || coordinates.charAt(i) != ',') {
+            return false;
+        }
+        i = skipNumber(coordinates, skipWhitespace(coordinates, i + 1, length), length);
+        return i == length;
+    }
+
+    /**
+     * @param passengers (optional => may be null)
+     * @return the number of passengers, ANY_PASSENGERS if there is none or INVALID_PASSENGERS if it is not a positive
+     * whole number that fits in an int
+     */
+    public static int parsePassengers(String passengers) {
+        if (passengers == null) {
+            return ANY_PASSENGERS;
+        }
+        int length = passengers.length();
+        if (length == 0) {
+            return INVALID_PASSENGERS;
+        }
+        int value = 0;
+        for (int i = 0; i < length; i++) {
+            int digit = passengers.charAt(i) - '0';
+            if (digit < 0 || digit > 9 || value > (Integer.MAX_VALUE - digit) / 10) {
+                return INVALID_PASSENGERS;
+            }
+            value = value * 10 + digit;
+        }
+        return value > 0 ? value : INVALID_PASSENGERS;
+    }
+
+    /**
+     * @return the index after the number starting at from, -?\d+(\.\d+)?, or -1 if there is none
+     */
+    private static int skipNumber(String value, int from, int length) {
+        int i = from;
+        if (i < length && value.charAt(i) == '-') {
+            i++;
+        }
+        int digits = skipDigits(value, i, length);
+        if (digits == i) {
+            return -1;
+        }
+        i = digits;
+        if (i < length && value.charAt(i) == '.') {
+            digits = skipDigits(value, i + 1, length);
+            if (digits == i + 1) {
+                return -1;
+            }
+            i = digits;
+        }
+        return i;
+    }
+
+    private static int skipDigits(String value, int from, int length) {
+        int i = from;
+        while (i < length && value.charAt(i) >= '0' && value.charAt(i) <= '9') {
+            i++;
+        }
+        return i;
+    }
+
+    // \s in a Java regex: space, \t, \n, \u000B, \f and \r.
+    private static int skipWhitespace(String value, int from, int length) {
+        int i = from;
+        while (i < length) {
+            char c = value.charAt(i);
+            if (c != ' ' && (c < '\t' || c > '\r')) {
+                break;
+            }
+            i++;
+        }
+        return i;
+    }
+}
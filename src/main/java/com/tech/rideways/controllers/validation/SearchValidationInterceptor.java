@@ -0,0 +1,84 @@
+package com.tech.rideways.controllers.validation;
+
+import com.tech.rideways.service.RideService;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.HandlerMapping;
+
+import javax.servlet.DispatcherType;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Rejects searches with missing or malformed pickup, dropoff or passengers parameters with a 400, before they are
+ * bound to the controller. Nothing is thrown on the way: bots send plenty of malformed queries, and building the
+ * exceptions of bean validation for each of them showed up in profiles.
+ *
+ * Searches for a supplier other than those of RideService.getSuppliers() are answered with a 404, so that the names
+ * made up by clients never reach the caches, the retry budgets or the suppliers.
+ */
+@Component
+public class SearchValidationInterceptor implements HandlerInterceptor {
+
+    private static final byte[] INVALID_PARAMETERS_BODY =
+            "{\"Error: \":\"invalid parameters\"}".getBytes(StandardCharsets.UTF_8);
+
+    private static final byte[] UNKNOWN_SUPPLIER_BODY =
+            "{\"Error: \":\"unknown supplier\"}".getBytes(StandardCharsets.UTF_8);
+
+    private final LongAdder accepted = new LongAdder();
+
+    private final LongAdder rejected = new LongAdder();
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler)
+            throws IOException {
+
+        // The asynchronous dispatch writing the response of a search was validated with the search.
+        if (request.getDispatcherType() == DispatcherType.ASYNC) {
+            return true;
+        }
+
+        // The variables of the path the search was mapped to, e.g. the supplier of /ride/{supplier}.
+        Map<?, ?> pathVariables = (Map<?, ?>) request.getAttribute(HandlerMapping.URI_TEMPLATE_VARIABLES_ATTRIBUTE);
+        Object supplier = pathVariables != null ? pathVariables.get("supplier") : null;
+        if (supplier != null && !RideService.getSuppliers().contains(supplier)) {
+            rejected.increment();
+            response.setStatus(HttpStatus.NOT_FOUND.value());
+            response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+            response.getOutputStream().write(UNKNOWN_SUPPLIER_BODY);
+            return false;
+        }
+
+        if (SearchParameters.isCoordinates(request.getParameter("pickup"))
+                && SearchParameters.isCoordinates(request.getParameter("dropoff"))
+                && SearchParameters.parsePassengers(request.getParameter("passengers"))
+                != SearchParameters.INVALID_PASSENGERS) {
+            accepted.increment();
+            return true;
+        }
+
+        rejected.increment();
+        response.setStatus(HttpStatus.BAD_REQUEST.value());
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.getOutputStream().write(INVALID_PARAMETERS_BODY);
+        return false;
+    }
+
+    /**
+     * @return the number of searches accepted and rejected
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("accepted", accepted.sum());
+        stats.put("rejected", rejected.sum());
+        return stats;
+    }
+}
@@ -4,8 +4,16 @@ import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.annotation.JsonProperty;
 
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
 public class Option implements Comparable<Option> {
 
+    // The off-heap quote store keeps the index of a car type in this list rather than its name.
+    public static final List<String> CAR_TYPES = Collections.unmodifiableList(Arrays.asList(
+            "STANDARD", "EXECUTIVE", "LUXURY", "PEOPLE_CARRIER", "LUXURY_PEOPLE_CARRIER", "MINIBUS"));
+
     @JsonInclude(JsonInclude.Include.NON_NULL)
     private String supplier;
 
@@ -55,13 +63,22 @@ public class Option implements Comparable<Option> {
     }
 
     private void setMaxPassengers() {
-        switch (this.carType) {
-            case "STANDARD": this.maxPassengers = 4; break;
-            case "EXECUTIVE": this.maxPassengers = 4; break;
-            case "LUXURY": this.maxPassengers = 4; break;
-            case "PEOPLE_CARRIER": this.maxPassengers = 6; break;
-            case "LUXURY_PEOPLE_CARRIER": this.maxPassengers = 6; break;
-            case "MINIBUS": this.maxPassengers = 16; break;
+        this.maxPassengers = maxPassengers(this.carType);
+    }
+
+    /**
+     * @param carType
+     * @return the number of passengers the car type seats, 0 for an unknown car type
+     */
+    public static int maxPassengers(String carType) {
+        switch (carType) {
+            case "STANDARD": return 4;
+            case "EXECUTIVE": return 4;
+            case "LUXURY": return 4;
+            case "PEOPLE_CARRIER": return 6;
+            case "LUXURY_PEOPLE_CARRIER": return 6;
+            case "MINIBUS": return 16;
+            default: return 0;
         }
     }
 
@@ -0,0 +1,89 @@
+package com.tech.rideways.entities;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The changes of a search's cheapest options since a version the client already holds.
+ */
+public class RideChanges {
+
+    @JsonProperty
+    private long version;
+
+    @JsonProperty
+    private boolean changed;
+
+    // True when the client's version is unknown, the options then hold the whole result.
+    @JsonInclude(JsonInclude.Include.NON_DEFAULT)
+    @JsonProperty
+    private boolean full;
+
+    @JsonInclude(JsonInclude.Include.NON_EMPTY)
+    @JsonProperty
+    private List<Option> options;
+
+    @JsonInclude(JsonInclude.Include.NON_EMPTY)
+    @JsonProperty("removed_car_types")
+    private List<String> removedCarTypes;
+
+    public RideChanges() {
+        this.options = Collections.emptyList();
+        this.removedCarTypes = Collections.emptyList();
+    }
+
+    private RideChanges(long version, boolean changed, boolean full, List<Option> options,
+                        List<String> removedCarTypes) {
+        this.version = version;
+        this.changed = changed;
+        this.full = full;
+        this.options = options;
+        this.removedCarTypes = removedCarTypes;
+    }
+
+    public static RideChanges unchanged(long version) {
+        return new RideChanges(version, false, false, Collections.emptyList(), Collections.emptyList());
+    }
+
+    public static RideChanges full(long version, List<Option> options) {
+        return new RideChanges(version, true, true, options, Collections.emptyList());
+    }
+
+    public static RideChanges delta(long version, List<Option> options, List<String> removedCarTypes) {
+        return new RideChanges(version, true, false, options, removedCarTypes);
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public boolean isChanged() {
+        return changed;
+    }
+
+    public boolean isFull() {
+        return full;
+    }
+
+    public List<Option> getOptions() {
+        return options;
+    }
+
+    public List<String> getRemovedCarTypes() {
+        return removedCarTypes;
+    }
+
+    @Override
+    public String toString() {
+        return "RideChanges{" +
+                "version=" + version +
+                ", changed=" + changed +
+                ", full=" + full +
+                ", options=" + options +
+                ", removedCarTypes=" + removedCarTypes +
+                '}';
+    }
+}
@@ -0,0 +1,94 @@
+package com.tech.rideways.service;
+
+import com.tech.rideways.entities.Option;
+
+import java.util.Collection;
+import java.util.Locale;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Restrictions a client puts on the options of a search, applied while the options are aggregated rather than
+ * on the full list afterwards.
+ */
+public class RideFilter {
+
+    public static final RideFilter NONE = new RideFilter(null, null, null);
+
+    // Null when every car type is accepted.
+    private final Set<String> carTypes;
+
+    private final Integer maxPrice;
+
+    private final Integer limit;
+
+    /**
+     * @param carTypes (optional => may be null or empty) car types accepted, in any case
+     * @param maxPrice (optional => may be null) highest price accepted
+     * @param limit (optional => may be null) number of cheapest options kept
+     */
+    public RideFilter(Collection<String> carTypes, Integer maxPrice, Integer limit) {
+        if (carTypes == null || carTypes.isEmpty()) {
+            this.carTypes = null;
+        } else {
+            this.carTypes = new TreeSet<>();
+            carTypes.forEach(carType -> this.carTypes.add(carType.trim().toUpperCase(Locale.ROOT)));
+        }
+        this.maxPrice = maxPrice;
+        this.limit = limit;
+    }
+
+    /**
+     * Tells whether the filter restricts nothing. Compare with this rather than with NONE: the controllers build
+     * a filter of their own for each search.
+     *
+     * @return true if the filter accepts and keeps every option
+     */
+    public boolean isEmpty() {
+        return carTypes == null && maxPrice == null && limit == null;
+    }
+
+    public boolean acceptsEveryCarType() {
+        return carTypes == null;
+    }
+
+    public boolean acceptsCarType(String carType) {
+        return carTypes == null || carTypes.contains(carType);
+    }
+
+    public boolean accepts(Option option) {
+        return acceptsCarType(option.getCarType()) && (maxPrice == null || option.getPrice() <= maxPrice);
+    }
+
+    public Integer getLimit() {
+        return limit;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof RideFilter)) {
+            return false;
+        }
+        RideFilter that = (RideFilter) o;
+        return Objects.equals(carTypes, that.carTypes)
+                && Objects.equals(maxPrice, that.maxPrice)
+                && Objects.equals(limit, that.limit);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(carTypes, maxPrice, limit);
+    }
+
+    /**
+     * @return a canonical form, suitable for cache keys
+     */
+    @Override
+    public String toString() {
+        return carTypes + "|" + maxPrice + "|" + limit;
+    }
+}
@@ -4,16 +4,29 @@ import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.tech.rideways.entities.Option;
 import com.tech.rideways.entities.Ride;
+import com.tech.rideways.service.cache.NegativeQuoteCache;
+import com.tech.rideways.service.cache.NegativeQuoteCache.Failure;
+import com.tech.rideways.service.capability.SupplierCapabilityIndex;
+import com.tech.rideways.service.cluster.ClusterQuoteCache;
+import com.tech.rideways.service.health.SupplierHealthMonitor;
+import com.tech.rideways.service.profiling.AggregationEvent;
 import com.tech.rideways.service.utils.Client;
+import com.tech.rideways.service.utils.Lane;
+import com.tech.rideways.service.utils.RequestContext;
 import org.apache.http.HttpStatus;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.env.Environment;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Service;
 import org.springframework.web.client.HttpClientErrorException;
 
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 import java.util.stream.Collectors;
 
 @Service
@@ -28,8 +41,59 @@ public class RideService {
     @Autowired
     private Client client;
 
+    @Autowired
+    private ClusterQuoteCache quoteCache;
+
+    @Autowired
+    private NegativeQuoteCache negativeCache;
+
+    @Autowired
+    private SupplierCapabilityIndex capabilityIndex;
+
+    @Autowired
+    private SupplierHealthMonitor healthMonitor;
+
+    // Absent when wired by hand: every supplier is then assumed to offer every car type.
+    @Autowired(required = false)
+    private Environment environment;
+
+    // Runs the supplier calls of asynchronous searches; when wired by hand they run on the caller's thread.
+    @Autowired(required = false)
+    @Qualifier("supplierExecutor")
+    private Executor supplierExecutor = Runnable::run;
+
+    // Runs the supplier calls of bulk asynchronous searches; the supplierExecutor does when absent.
+    @Autowired(required = false)
+    @Qualifier("bulkSupplierExecutor")
+    private Executor bulkSupplierExecutor;
+
     private ObjectMapper objectMapper = new ObjectMapper();
 
+    /**
+     * Creates a service wired by hand, for entry points that run without the Spring context.
+     *
+     * @param client
+     * @param taxiApiUrl
+     * @return rideService
+     */
+    public static RideService create(Client client, String taxiApiUrl) {
+        RideService rideService = new RideService();
+        rideService.client = client;
+        rideService.quoteCache = new ClusterQuoteCache();
+        rideService.negativeCache = new NegativeQuoteCache();
+        rideService.capabilityIndex = new SupplierCapabilityIndex();
+        rideService.healthMonitor = new SupplierHealthMonitor();
+        rideService.taxi_api_url = taxiApiUrl;
+        return rideService;
+    }
+
+    /**
+     * @return the paths of the suppliers
+     */
+    public static List<String> getSuppliers() {
+        return Collections.unmodifiableList(Arrays.asList(SUPPLIERS));
+    }
+
     /**
      * Finds the available ride options and then filters them by the cheapest supplier.
      *
@@ -40,18 +104,102 @@ public class RideService {
      */
     public List<Option> findOptionsByCarTypeWithCheapestSupplier(String pickup, String dropoff, Integer passengersNo)
             throws IOException {
+        return findOptionsByCarTypeWithCheapestSupplier(pickup, dropoff, passengersNo, RideFilter.NONE);
+    }
+
+    /**
+     * Finds the available ride options accepted by the filter and then filters them by the cheapest supplier.
+     * Suppliers that cannot offer any accepted car type are not called.
+     *
+     * @param pickup
+     * @param dropoff
+     * @param passengersNo (optional => may be null)
+     * @param filter
+     * @return rideOptionsByCheapestSupplier, the cheapest ones only when the filter has a limit
+     */
+    public List<Option> findOptionsByCarTypeWithCheapestSupplier(String pickup, String dropoff, Integer passengersNo,
+                                                                 RideFilter filter) throws IOException {
 
         List<Option> rideOptions = new ArrayList<>();
 
-        // Get the ride options from each supplier and add them all to a list (rideOptions).
+        // Get the ride options from each supplier and add the accepted ones to a list (rideOptions).
         for (String supplier : SUPPLIERS) {
-            List<Option> options = findOptions(supplier, pickup, dropoff, passengersNo);
-            options.forEach(option -> {
-                option.setSupplier(supplier);
-            });
-            rideOptions.addAll(options);
+            if (mayOffer(supplier, pickup, passengersNo, filter)) {
+                rideOptions.addAll(findAcceptedOptions(supplier, pickup, dropoff, passengersNo, filter));
+            }
         }
 
+        return cheapestByCarType(rideOptions, filter);
+    }
+
+    /**
+     * Same as findOptionsByCarTypeWithCheapestSupplier(), without blocking the caller: the suppliers are called at
+     * the same time on the supplier executor of the caller's lane, within the RequestContext of the caller.
+     *
+     * @param pickup
+     * @param dropoff
+     * @param passengersNo (optional => may be null)
+     * @param filter
+     * @return rideOptionsByCheapestSupplier, once every supplier called has answered
+     * @throws java.util.concurrent.RejectedExecutionException if the queue of the supplier executor is full
+     */
+    public CompletableFuture<List<Option>> findOptionsByCarTypeWithCheapestSupplierAsync(String pickup, String dropoff,
+                                                                                         Integer passengersNo,
+                                                                                         RideFilter filter) {
+
+        List<CompletableFuture<List<Option>>> supplierOptions = new ArrayList<>();
+        for (String supplier : SUPPLIERS) {
+            if (mayOffer(supplier, pickup, passengersNo, filter)) {
+                supplierOptions.add(CompletableFuture.supplyAsync(RequestContext.wrap(
+                        () -> findAcceptedOptions(supplier, pickup, dropoff, passengersNo, filter)), supplierExecutor()));
+            }
+        }
+
+        return CompletableFuture.allOf(supplierOptions.toArray(new CompletableFuture[0]))
+                .thenApply(RequestContext.wrap(ignored -> {
+                    // Joined in the order of the suppliers, so ties on price are settled as by the blocking version.
+                    List<Option> rideOptions = new ArrayList<>();
+                    supplierOptions.forEach(options -> rideOptions.addAll(options.join()));
+                    try {
+                        return cheapestByCarType(rideOptions, filter);
+                    } catch (IOException exception) {
+                        throw new UncheckedIOException(exception);
+                    }
+                }));
+    }
+
+    /**
+     * Finds the options of a supplier accepted by the filter, labelled with the supplier.
+     *
+     * @param supplier
+     * @param pickup
+     * @param dropoff
+     * @param passengersNo (optional => may be null)
+     * @param filter
+     * @return acceptedOptions
+     */
+    private List<Option> findAcceptedOptions(String supplier, String pickup, String dropoff, Integer passengersNo,
+                                             RideFilter filter) {
+        List<Option> options = findOptions(supplier, pickup, dropoff, passengersNo);
+        options.forEach(option -> {
+            option.setSupplier(supplier);
+        });
+        return options.stream().filter(filter::accepts).collect(Collectors.toList());
+    }
+
+    /**
+     * Keeps the cheapest option of each car type.
+     *
+     * @param rideOptions the accepted options of every supplier
+     * @param filter
+     * @return rideOptionsByCheapestSupplier, in descending order
+     */
+    private static List<Option> cheapestByCarType(List<Option> rideOptions, RideFilter filter) throws IOException {
+
+        long aggregationStart = System.nanoTime();
+        AggregationEvent event = new AggregationEvent();
+        event.begin();
+
         // Group the retrieved options by car type.
         Map<String, List<Option>> rideOptionsByCarType = rideOptions.stream()
                 .collect(Collectors.groupingBy(Option::getCarType, Collectors.toList()));
@@ -67,7 +215,10 @@ public class RideService {
         // Sort the final filtered options in descending order.
         Collections.sort(rideOptionsByCheapestSupplier);
 
-        return rideOptionsByCheapestSupplier;
+        List<Option> limitedOptions = limit(rideOptionsByCheapestSupplier, filter);
+        RequestContext.recordTiming("aggregation", aggregationStart);
+        event.commit(rideOptions.size(), limitedOptions.size());
+        return limitedOptions;
     }
 
     /**
@@ -80,17 +231,61 @@ public class RideService {
      * @return rideOptions
      */
     public List<Option> findOptionsByPriceDescending(String supplier, String pickup, String dropoff, Integer passengersNo) {
+        return findOptionsByPriceDescending(supplier, pickup, dropoff, passengersNo, RideFilter.NONE);
+    }
+
+    /**
+     * Calls the findOptions() function, unless the supplier cannot offer any car type accepted by the filter, and
+     * returns the accepted options in descending order
+     *
+     * @param supplier
+     * @param pickup
+     * @param dropoff
+     * @param passengersNo (optional => may be null)
+     * @param filter
+     * @return rideOptions, the cheapest ones only when the filter has a limit
+     */
+    public List<Option> findOptionsByPriceDescending(String supplier, String pickup, String dropoff,
+                                                     Integer passengersNo, RideFilter filter) {
+
+        if (!mayOffer(supplier, pickup, passengersNo, filter)) {
+            return new ArrayList<>();
+        }
 
         List<Option> rideOptions = findOptions(supplier, pickup, dropoff, passengersNo);
 
+        if (!filter.isEmpty()) {
+            rideOptions = rideOptions.stream().filter(filter::accepts).collect(Collectors.toList());
+        }
+
         // Sort by descending order
         Collections.sort(rideOptions);
 
-        return rideOptions;
+        return limit(rideOptions, filter);
+    }
+
+    /**
+     * Same as findOptionsByPriceDescending(), without blocking the caller: the supplier is called on the supplier
+     * executor of the caller's lane, within the RequestContext of the caller.
+     *
+     * @param supplier
+     * @param pickup
+     * @param dropoff
+     * @param passengersNo (optional => may be null)
+     * @param filter
+     * @return rideOptions, once the supplier has answered
+     * @throws java.util.concurrent.RejectedExecutionException if the queue of the supplier executor is full
+     */
+    public CompletableFuture<List<Option>> findOptionsByPriceDescendingAsync(String supplier, String pickup,
+                                                                             String dropoff, Integer passengersNo,
+                                                                             RideFilter filter) {
+        return CompletableFuture.supplyAsync(RequestContext.wrap(
+                () -> findOptionsByPriceDescending(supplier, pickup, dropoff, passengersNo, filter)), supplierExecutor());
     }
 
     /**
-     * Finds the available ride options from the given supplier.
+     * Finds the available ride options from the given supplier, from the quote cache when the route was fetched
+     * recently by any node of the cluster. A supplier the health probes found down is not called.
      *
      * @param supplier
      * @param pickup
@@ -100,8 +295,31 @@ public class RideService {
      */
     public List<Option> findOptions(String supplier, String pickup, String dropoff, Integer passengersNo) throws HttpClientErrorException {
 
-        Ride ride = findRide(supplier, pickup, dropoff);
-        List<Option> rideOptions = ride.getOptions();
+        List<Option> rideOptions = quoteCache.get(supplier, pickup, dropoff);
+
+        if (rideOptions == null) {
+            Failure failure = negativeCache.get(supplier, pickup, dropoff);
+            if (failure != null) {
+                System.out.println(supplier + "'s API recently failed for this route (" + failure + "), it was not called.");
+                return new ArrayList<>();
+            }
+        }
+
+        if (rideOptions == null && healthMonitor.isDown(supplier)) {
+            healthMonitor.recordSkip();
+            System.out.println(supplier + "'s API is down, it was not called.");
+            return new ArrayList<>();
+        }
+
+        if (rideOptions == null) {
+            rideOptions = findRide(supplier, pickup, dropoff).getOptions();
+
+            // Failed requests and empty results are kept in the negative cache instead, see findRide().
+            if (!rideOptions.isEmpty()) {
+                quoteCache.put(supplier, pickup, dropoff, rideOptions);
+                capabilityIndex.record(supplier, pickup, rideOptions);
+            }
+        }
 
         if (rideOptions.isEmpty()) {
             System.out.println("A problem may have occurred when trying to reach " + supplier + "'s API.");
@@ -127,40 +345,129 @@ public class RideService {
      * @param pickup
      * @param dropoff
      * @return a Ride object containing data if the request was successful, or an empty Ride object if the request
-     * failed because of a timeout, server problem, or API break.
+     * failed because of a timeout, server problem, or API break. Supplier failures and rides without options are
+     * recorded in the negative cache.
      */
     protected Ride findRide(String supplier, String pickup, String dropoff) {
 
-        // Execute the request to the given supplier API.
+        // Execute the request to the given supplier API (round trip, retries and backoff included).
+        long requestStart = System.nanoTime();
         ResponseEntity<String> response = client.get(taxi_api_url, supplier, buildParamsMap(pickup, dropoff));
+        RequestContext.recordTiming("supplier-" + supplier, requestStart);
 
         if (response.getStatusCode().value() != HttpStatus.SC_OK) {
             // Timeout, server is down or API is broken.
             switch (response.getStatusCode().value()) {
                 case HttpStatus.SC_INTERNAL_SERVER_ERROR:
                     System.out.print("Server is unavailable: ");
+                    negativeCache.put(supplier, pickup, dropoff, Failure.SERVER_ERROR);
                     break;
                 case HttpStatus.SC_REQUEST_TIMEOUT:
                     System.out.print("Request timeout: ");
+                    negativeCache.put(supplier, pickup, dropoff, Failure.TIMEOUT);
                     break;
                 case HttpStatus.SC_BAD_REQUEST:
                     System.out.println("Bad request, please make sure you provide both pickup and dropoff parameters.");
+                    negativeCache.put(supplier, pickup, dropoff, Failure.BAD_REQUEST);
+                    break;
+                case HttpStatus.SC_SERVICE_UNAVAILABLE:
+                    // No supplier connection was free: the supplier was not called, the next search may get one.
+                    System.out.print("No connection available: ");
                     break;
                 default:
+                    // An unexpected error, which says nothing about the route.
                     System.out.println("Internal error.");
             }
             return new Ride();
         }
 
+        if (response.getBody() == null) {
+            // A 200 without a body, e.g. a supplier answering just as the read timeout expires.
+            System.out.println("Payload from " + supplier + "'s API is invalid.");
+            negativeCache.put(supplier, pickup, dropoff, Failure.INVALID_PAYLOAD);
+            return new Ride();
+        }
+
+        long parsingStart = System.nanoTime();
         try {
-            return objectMapper.readValue(response.getBody(), Ride.class);
+            Ride ride = objectMapper.readValue(response.getBody(), Ride.class);
+            if (ride.getOptions() == null || ride.getOptions().isEmpty()) {
+                // {"options": null} leaves the options null, which the callers do not expect.
+                negativeCache.put(supplier, pickup, dropoff, Failure.NO_OPTIONS);
+                return new Ride();
+            }
+            return ride;
         }
         catch (JsonProcessingException jsonProcessingException) {
             System.out.println("Payload from " + supplier + "'s API is invalid.");
+            negativeCache.put(supplier, pickup, dropoff, Failure.INVALID_PAYLOAD);
+        }
+        finally {
+            RequestContext.recordTiming("parsing", parsingStart);
         }
         return new Ride();
     }
 
+    /**
+     * @return the executor of the lane of the current search: bulk calls waiting for a supplier connection must not
+     * hold the threads interactive calls need
+     */
+    private Executor supplierExecutor() {
+        RequestContext context = RequestContext.current();
+        return bulkSupplierExecutor != null && context != null && context.getLane() == Lane.BULK
+                ? bulkSupplierExecutor
+                : supplierExecutor;
+    }
+
+    /**
+     * Checks whether a supplier may offer a car type accepted by the filter and seating the passengers. The car
+     * types a supplier offers are the ones it was seen returning in the region of the pickup, or else the ones set
+     * with supplier.car_types.{supplier}; otherwise it may offer any of them.
+     *
+     * @param supplier
+     * @param pickup
+     * @param passengersNo (optional => may be null)
+     * @param filter
+     * @return false if calling the supplier cannot return any accepted option
+     */
+    private boolean mayOffer(String supplier, String pickup, Integer passengersNo, RideFilter filter) {
+        if (passengersNo == null && filter.acceptsEveryCarType()) {
+            return true;
+        }
+
+        Collection<String> carTypes = capabilityIndex.getCarTypes(supplier, pickup);
+        boolean learned = carTypes != null;
+        if (!learned) {
+            String offered = environment != null ? environment.getProperty("supplier.car_types." + supplier) : null;
+            carTypes = offered != null && !offered.trim().isEmpty()
+                    ? Arrays.asList(offered.trim().split("\\s*,\\s*"))
+                    : Option.CAR_TYPES;
+        }
+
+        boolean mayOffer = carTypes.stream().anyMatch(carType -> filter.acceptsCarType(carType)
+                && (passengersNo == null || Option.maxPassengers(carType) >= passengersNo));
+
+        if (!mayOffer && learned) {
+            capabilityIndex.recordSkip();
+        }
+        return mayOffer;
+    }
+
+    /**
+     * Keeps the cheapest options of a list sorted in descending order.
+     *
+     * @param rideOptions
+     * @param filter
+     * @return the last filter.getLimit() options, or all of them when there is no limit
+     */
+    private static List<Option> limit(List<Option> rideOptions, RideFilter filter) {
+        Integer limit = filter.getLimit();
+        if (limit == null || limit >= rideOptions.size()) {
+            return rideOptions;
+        }
+        return new ArrayList<>(rideOptions.subList(rideOptions.size() - limit, rideOptions.size()));
+    }
+
     /**
      * Builds a Map containing the given parameters.
      *
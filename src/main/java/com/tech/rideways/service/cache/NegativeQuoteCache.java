@@ -0,0 +1,178 @@
+package com.tech.rideways.service.cache;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Remembers, for a short time, the routes a supplier failed to quote or had no options for, so that the searches
+ * repeating them are answered at once instead of paying for the same timeout or error again. Each kind of failure is
+ * kept for its own time: a route a supplier rejects or cannot serve stays unanswerable for a while, whereas a timeout
+ * may just be a slow moment.
+ *
+ * When the cache is full, the oldest route recorded makes room for the new one. Expired entries are left in place
+ * until then, so that each route is in the eviction queue exactly once.
+ */
+@Component
+public class NegativeQuoteCache {
+
+    public enum Failure {
+        BAD_REQUEST, SERVER_ERROR, TIMEOUT, INVALID_PAYLOAD, NO_OPTIONS
+    }
+
+    @Value("${negative_cache.enabled:true}")
+    private boolean enabled = true;
+
+    @Value("${negative_cache.bad_request_ttl_ms:60000}")
+    private long badRequestTtlMillis = 60000;
+
+    @Value("${negative_cache.server_error_ttl_ms:2000}")
+    private long serverErrorTtlMillis = 2000;
+
+    @Value("${negative_cache.timeout_ttl_ms:1000}")
+    private long timeoutTtlMillis = 1000;
+
+    @Value("${negative_cache.invalid_payload_ttl_ms:5000}")
+    private long invalidPayloadTtlMillis = 5000;
+
+    @Value("${negative_cache.no_options_ttl_ms:10000}")
+    private long noOptionsTtlMillis = 10000;
+
+    @Value("${negative_cache.max_entries:100000}")
+    private int maxEntries = 100000;
+
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+
+    // Keys of the entries, the oldest first.
+    private final Queue<String> keys = new ConcurrentLinkedQueue<>();
+
+    private final LongAdder evictions = new LongAdder();
+
+    private final Map<Failure, LongAdder> stored = counters();
+    private final Map<Failure, LongAdder> hits = counters();
+    private final LongAdder misses = new LongAdder();
+
+    /**
+     * Finds out whether a supplier recently failed to quote a route.
+     *
+     * @param supplier
+     * @param pickup
+     * @param dropoff
+     * @return the failure, or null if there is none that has not expired
+     */
+    public Failure get(String supplier, String pickup, String dropoff) {
+        if (!enabled) {
+            return null;
+        }
+
+        Entry entry = entries.get(key(supplier, pickup, dropoff));
+        if (entry == null || entry.expiresAt <= System.currentTimeMillis()) {
+            misses.increment();
+            return null;
+        }
+        hits.get(entry.failure).increment();
+        return entry.failure;
+    }
+
+    /**
+     * Records that a supplier failed to quote a route, evicting the oldest route recorded when the cache is full.
+     * Nothing is recorded for the failures whose TTL is 0.
+     *
+     * @param supplier
+     * @param pickup
+     * @param dropoff
+     * @param failure
+     */
+    public void put(String supplier, String pickup, String dropoff, Failure failure) {
+        long ttlMillis = ttlMillis(failure);
+        if (!enabled || ttlMillis <= 0) {
+            return;
+        }
+
+        String key = key(supplier, pickup, dropoff);
+        Entry entry = new Entry(failure, System.currentTimeMillis() + ttlMillis);
+        if (entries.replace(key, entry) == null) {
+            while (entries.size() >= maxEntries) {
+                String oldest = keys.poll();
+                if (oldest == null) {
+                    break;
+                }
+                entries.remove(oldest);
+                evictions.increment();
+            }
+            if (entries.put(key, entry) == null) {
+                keys.add(key);
+            }
+        }
+        stored.get(failure).increment();
+    }
+
+    /**
+     * @return the number of entries, the misses, and the TTL, entries stored and hits of each kind of failure
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> failures = new LinkedHashMap<>();
+        for (Failure failure : Failure.values()) {
+            Map<String, Object> counters = new LinkedHashMap<>();
+            counters.put("ttl_ms", ttlMillis(failure));
+            counters.put("stored", stored.get(failure).sum());
+            counters.put("hits", hits.get(failure).sum());
+            failures.put(failure.name().toLowerCase(), counters);
+        }
+
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("size", entries.size());
+        stats.put("max_entries", maxEntries);
+        stats.put("hits", hits.values().stream().mapToLong(LongAdder::sum).sum());
+        stats.put("misses", misses.sum());
+        stats.put("evictions", evictions.sum());
+        stats.put("failures", failures);
+        return stats;
+    }
+
+    private long ttlMillis(Failure failure) {
+        switch (failure) {
+            case BAD_REQUEST:
+                return badRequestTtlMillis;
+            case SERVER_ERROR:
+                return serverErrorTtlMillis;
+            case TIMEOUT:
+                return timeoutTtlMillis;
+            case INVALID_PAYLOAD:
+                return invalidPayloadTtlMillis;
+            default:
+                return noOptionsTtlMillis;
+        }
+    }
+
+    private static String key(String supplier, String pickup, String dropoff) {
+        return supplier + '|' + pickup + '|' + dropoff;
+    }
+
+    private static Map<Failure, LongAdder> counters() {
+        Map<Failure, LongAdder> counters = new EnumMap<>(Failure.class);
+        for (Failure failure : Failure.values()) {
+            counters.put(failure, new LongAdder());
+        }
+        return counters;
+    }
+
+    private static final class Entry {
+
+        private final Failure failure;
+        private final long expiresAt;
+
+        private Entry(Failure failure, long expiresAt) {
+            this.failure = failure;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
@@ -0,0 +1,340 @@
+package com.tech.rideways.service.cache;
+
+import com.tech.rideways.entities.Option;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Caches the options quoted by each supplier for a route outside of the Java heap, so that millions of routes can be
+ * kept without adding millions of Ride and Option objects for the garbage collector to trace.
+ *
+ * Every route takes one fixed-width 64 byte slot in a direct buffer:
+ *
+ *  0  long   fingerprint of the (supplier, pickup, dropoff) key, 0 when the slot is empty
+ *  8  int    second hash of the key, checked together with the fingerprint
+ * 12  long   expiry time (epoch milliseconds)
+ * 20  byte   number of options
+ * 21  byte   referenced bit, used for eviction
+ * 22  8 x (byte index of the car type in Option.CAR_TYPES, int price)
+ *
+ * The slots form an open-addressing hash table with linear probing, split into segments that each have their own
+ * lock and buffer. When a segment is full, a CLOCK sweep evicts an expired entry or one that was not read since the
+ * last sweep. Option objects are only created when a cached route is read.
+ */
+@Component
+public class OffHeapQuoteStore {
+
+    private static final int SLOT_SIZE = 64;
+    private static final int FINGERPRINT = 0;
+    private static final int CHECK = 8;
+    private static final int EXPIRES_AT = 12;
+    private static final int COUNT = 20;
+    private static final int REFERENCED = 21;
+    private static final int OPTIONS = 22;
+    private static final int OPTION_SIZE = 5;
+    private static final int MAX_OPTIONS = 8;
+
+    private static final int SEGMENTS = 16;
+    private static final int MIN_SLOTS_PER_SEGMENT = 64;
+    private static final double LOAD_FACTOR = 0.75;
+
+    @Value("${quote_store.ttl_ms:30000}")
+    private long ttlMillis = 30000;
+
+    // Each entry needs 64 / 0.75 bytes of direct memory, allocated the first time a segment is written to.
+    @Value("${quote_store.max_entries:100000}")
+    private int maxEntries = 100000;
+
+    private volatile Segment[] segments;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    /**
+     * Finds the options quoted by a supplier for a route, if they are cached and have not expired.
+     *
+     * @param supplier
+     * @param pickup
+     * @param dropoff
+     * @return a new list of options, or null if there is none
+     */
+    public List<Option> get(String supplier, String pickup, String dropoff) {
+        if (ttlMillis <= 0) {
+            return null;
+        }
+
+        String key = key(supplier, pickup, dropoff);
+        long fingerprint = fingerprint(key);
+        List<Option> options = segmentFor(fingerprint).get(fingerprint, key.hashCode(), System.currentTimeMillis());
+
+        if (options == null) {
+            misses.increment();
+        } else {
+            hits.increment();
+        }
+        return options;
+    }
+
+    /**
+     * Caches the options quoted by a supplier for a route. Routes with a car type that has no ordinal, or with more
+     * options than fit in a slot, are not cached.
+     *
+     * @param supplier
+     * @param pickup
+     * @param dropoff
+     * @param options
+     */
+    public void put(String supplier, String pickup, String dropoff, List<Option> options) {
+        if (ttlMillis <= 0 || options.size() > MAX_OPTIONS) {
+            return;
+        }
+
+        byte[] carTypes = new byte[options.size()];
+        for (int i = 0; i < carTypes.length; i++) {
+            int ordinal = ordinal(options.get(i).getCarType());
+            if (ordinal < 0) {
+                return;
+            }
+            carTypes[i] = (byte) ordinal;
+        }
+
+        String key = key(supplier, pickup, dropoff);
+        long fingerprint = fingerprint(key);
+        segmentFor(fingerprint).put(fingerprint, key.hashCode(), System.currentTimeMillis(), carTypes, options);
+    }
+
+    /**
+     * @return the number of cached routes, the hits, misses and evictions and the direct memory reserved
+     */
+    public Map<String, Object> getStats() {
+        int size = 0;
+        long reservedBytes = 0;
+        if (segments != null) {
+            for (Segment segment : segments) {
+                size += segment.size();
+                reservedBytes += segment.reservedBytes();
+            }
+        }
+
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("size", size);
+        stats.put("max_entries", maxEntries);
+        stats.put("hits", hits.sum());
+        stats.put("misses", misses.sum());
+        stats.put("evictions", evictions.sum());
+        stats.put("reserved_bytes", reservedBytes);
+        return stats;
+    }
+
+    private Segment segmentFor(long fingerprint) {
+        Segment[] current = segments;
+        if (current == null) {
+            synchronized (this) {
+                current = segments;
+                if (current == null) {
+                    current = createSegments();
+                    segments = current;
+                }
+            }
+        }
+        // The low bits pick the slot, so the segment is picked with the high ones.
+        return current[(int) (fingerprint >>> 60) & (SEGMENTS - 1)];
+    }
+
+    private Segment[] createSegments() {
+        int entriesPerSegment = Math.max(1, (maxEntries + SEGMENTS - 1) / SEGMENTS);
+        int slotsPerSegment = MIN_SLOTS_PER_SEGMENT;
+        while (slotsPerSegment * LOAD_FACTOR < entriesPerSegment) {
+            slotsPerSegment <<= 1;
+        }
+
+        Segment[] created = new Segment[SEGMENTS];
+        for (int i = 0; i < SEGMENTS; i++) {
+            created[i] = new Segment(slotsPerSegment, entriesPerSegment);
+        }
+        return created;
+    }
+
+    private static String key(String supplier, String pickup, String dropoff) {
+        return supplier + "|" + pickup + "|" + dropoff;
+    }
+
+    /**
+     * 64-bit FNV-1a hash of the key, finished with the MurmurHash3 mixer so that both the low bits (slot) and the high
+     * bits (segment) are well distributed. Never 0, which marks an empty slot.
+     */
+    private static long fingerprint(String key) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < key.length(); i++) {
+            hash ^= key.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash == 0 ? 1 : hash;
+    }
+
+    private static int ordinal(String carType) {
+        return Option.CAR_TYPES.indexOf(carType);
+    }
+
+    private final class Segment {
+
+        private final int mask;
+
+        private final int maxEntries;
+
+        private ByteBuffer slots;
+
+        private int size;
+
+        private int clockHand;
+
+        private Segment(int capacity, int maxEntries) {
+            this.mask = capacity - 1;
+            this.maxEntries = maxEntries;
+        }
+
+        private synchronized List<Option> get(long fingerprint, int check, long now) {
+            if (slots == null) {
+                return null;
+            }
+
+            int slot = find(fingerprint, check);
+            int base = slot * SLOT_SIZE;
+            if (slots.getLong(base + FINGERPRINT) == 0) {
+                return null;
+            }
+            if (slots.getLong(base + EXPIRES_AT) <= now) {
+                remove(slot);
+                return null;
+            }
+
+            slots.put(base + REFERENCED, (byte) 1);
+
+            int count = slots.get(base + COUNT);
+            List<Option> options = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                int offset = base + OPTIONS + i * OPTION_SIZE;
+                options.add(new Option(Option.CAR_TYPES.get(slots.get(offset)), slots.getInt(offset + 1)));
+            }
+            return options;
+        }
+
+        private synchronized void put(long fingerprint, int check, long now, byte[] carTypes, List<Option> options) {
+            if (slots == null) {
+                slots = ByteBuffer.allocateDirect((mask + 1) * SLOT_SIZE);
+            }
+
+            int slot = find(fingerprint, check);
+            if (slots.getLong(slot * SLOT_SIZE + FINGERPRINT) == 0) {
+                if (size >= maxEntries) {
+                    evict(now);
+                    // Removing an entry shifts the entries after it, so the free slot may have moved.
+                    slot = find(fingerprint, check);
+                }
+                size++;
+            }
+
+            int base = slot * SLOT_SIZE;
+            slots.putLong(base + FINGERPRINT, fingerprint);
+            slots.putInt(base + CHECK, check);
+            slots.putLong(base + EXPIRES_AT, now + ttlMillis);
+            slots.put(base + COUNT, (byte) carTypes.length);
+            slots.put(base + REFERENCED, (byte) 0);
+            for (int i = 0; i < carTypes.length; i++) {
+                int offset = base + OPTIONS + i * OPTION_SIZE;
+                slots.put(offset, carTypes[i]);
+                slots.putInt(offset + 1, options.get(i).getPrice());
+            }
+        }
+
+        /**
+         * @return the slot holding the given key, or the empty slot where it would be inserted
+         */
+        private int find(long fingerprint, int check) {
+            int slot = (int) fingerprint & mask;
+            while (true) {
+                int base = slot * SLOT_SIZE;
+                long slotFingerprint = slots.getLong(base + FINGERPRINT);
+                if (slotFingerprint == 0
+                        || (slotFingerprint == fingerprint && slots.getInt(base + CHECK) == check)) {
+                    return slot;
+                }
+                slot = (slot + 1) & mask;
+            }
+        }
+
+        /**
+         * Advances the clock hand to the first entry that has expired or was not read since the hand last passed it,
+         * clearing the referenced bits on the way, and removes it.
+         */
+        private void evict(long now) {
+            while (true) {
+                int base = clockHand * SLOT_SIZE;
+                if (slots.getLong(base + FINGERPRINT) != 0) {
+                    if (slots.get(base + REFERENCED) == 0 || slots.getLong(base + EXPIRES_AT) <= now) {
+                        remove(clockHand);
+                        evictions.increment();
+                        return;
+                    }
+                    slots.put(base + REFERENCED, (byte) 0);
+                }
+                clockHand = (clockHand + 1) & mask;
+            }
+        }
+
+        /**
+         * Empties a slot and shifts back the entries of the probe sequence that follows it (no tombstones needed).
+         */
+        private void remove(int slot) {
+            int hole = slot;
+            int next = slot;
+            while (true) {
+                next = (next + 1) & mask;
+                long fingerprint = slots.getLong(next * SLOT_SIZE + FINGERPRINT);
+                if (fingerprint == 0) {
+                    break;
+                }
+
+                // The entry can fill the hole unless its home slot lies cyclically in (hole, next].
+                int home = (int) fingerprint & mask;
+                boolean homeAfterHole = hole <= next
+                        ? hole < home && home <= next
+                        : hole < home || home <= next;
+                if (!homeAfterHole) {
+                    copySlot(next, hole);
+                    hole = next;
+                }
+            }
+
+            slots.putLong(hole * SLOT_SIZE + FINGERPRINT, 0);
+            size--;
+        }
+
+        private void copySlot(int from, int to) {
+            for (int offset = 0; offset < SLOT_SIZE; offset += Long.BYTES) {
+                slots.putLong(to * SLOT_SIZE + offset, slots.getLong(from * SLOT_SIZE + offset));
+            }
+        }
+
+        private synchronized int size() {
+            return size;
+        }
+
+        private synchronized long reservedBytes() {
+            return slots == null ? 0 : slots.capacity();
+        }
+    }
+}
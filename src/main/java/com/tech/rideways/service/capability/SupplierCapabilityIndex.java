@@ -0,0 +1,181 @@
+package com.tech.rideways.service.capability;
+
+import com.tech.rideways.entities.Option;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Learns which car types each supplier offers in each region, from the options it returns. Regions are cells of a
+ * grid over the pickup coordinates. Once a supplier has answered enough searches in a region, the car types it
+ * returned there are trusted, and searches that only accept other car types can skip the supplier. What was learned
+ * is forgotten after a while, so a supplier starting to offer a new car type is noticed again.
+ *
+ * When the index is full, the oldest (supplier, region) entry makes room for a new one.
+ */
+@Component
+public class SupplierCapabilityIndex {
+
+    @Value("${supplier_capabilities.enabled:true}")
+    private boolean enabled = true;
+
+    // Size of a region, in degrees of latitude and longitude.
+    @Value("${supplier_capabilities.region_degrees:1.0}")
+    private double regionDegrees = 1.0;
+
+    // Successful responses needed in a region before the car types seen there are trusted.
+    @Value("${supplier_capabilities.min_samples:3}")
+    private int minSamples = 3;
+
+    @Value("${supplier_capabilities.ttl_ms:3600000}")
+    private long ttlMillis = 3600000;
+
+    @Value("${supplier_capabilities.max_entries:100000}")
+    private int maxEntries = 100000;
+
+    private final Map<String, Capability> capabilities = new ConcurrentHashMap<>();
+
+    // Keys of the capabilities, the oldest first.
+    private final Queue<String> keys = new ConcurrentLinkedQueue<>();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder skipped = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    /**
+     * Records the car types a supplier returned for a search.
+     *
+     * @param supplier
+     * @param pickup
+     * @param options the options of a successful response (an empty list tells nothing, failures also return one)
+     */
+    public void record(String supplier, String pickup, List<Option> options) {
+        String region = region(pickup);
+        if (!enabled || region == null || options.isEmpty()) {
+            return;
+        }
+
+        long now = System.currentTimeMillis();
+        String key = supplier + "|" + region;
+        Capability capability = capabilities.get(key);
+
+        if (capability == null || capability.isExpired(now, ttlMillis)) {
+            capability = new Capability(now);
+            if (capabilities.replace(key, capability) == null) {
+                while (capabilities.size() >= maxEntries) {
+                    String oldest = keys.poll();
+                    if (oldest == null) {
+                        break;
+                    }
+                    capabilities.remove(oldest);
+                    evictions.increment();
+                }
+                if (capabilities.put(key, capability) == null) {
+                    keys.add(key);
+                }
+            }
+        }
+        capability.add(options);
+    }
+
+    /**
+     * Finds the car types a supplier offers in the region of a pickup.
+     *
+     * @param supplier
+     * @param pickup
+     * @return the car types, or null if the supplier has not been observed long enough in the region
+     */
+    public Set<String> getCarTypes(String supplier, String pickup) {
+        String region = region(pickup);
+        if (!enabled || region == null) {
+            return null;
+        }
+
+        Capability capability = capabilities.get(supplier + "|" + region);
+        if (capability == null || capability.isExpired(System.currentTimeMillis(), ttlMillis)
+                || capability.samples < minSamples) {
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        return capability.carTypes;
+    }
+
+    /**
+     * Counts a supplier call skipped thanks to the index.
+     */
+    public void recordSkip() {
+        skipped.increment();
+    }
+
+    /**
+     * @return the number of (supplier, region) entries and evictions, the lookups answered or not and the calls
+     * skipped
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("entries", capabilities.size());
+        stats.put("evictions", evictions.sum());
+        stats.put("hits", hits.sum());
+        stats.put("misses", misses.sum());
+        stats.put("skipped_calls", skipped.sum());
+        return stats;
+    }
+
+    /**
+     * @param pickup coordinates, e.g. 51.470020,-0.454295
+     * @return the grid cell of the coordinates, or null if they cannot be read
+     */
+    private String region(String pickup) {
+        String[] coordinates = pickup.split(",");
+        if (coordinates.length != 2) {
+            return null;
+        }
+        try {
+            long latitude = (long) Math.floor(Double.parseDouble(coordinates[0].trim()) / regionDegrees);
+            long longitude = (long) Math.floor(Double.parseDouble(coordinates[1].trim()) / regionDegrees);
+            return latitude + ":" + longitude;
+        } catch (NumberFormatException exception) {
+            return null;
+        }
+    }
+
+    private static class Capability {
+
+        private final long learnedAtMillis;
+
+        // Replaced rather than modified, so readers never see it change.
+        private volatile Set<String> carTypes = Collections.emptySet();
+
+        private volatile int samples;
+
+        private Capability(long learnedAtMillis) {
+            this.learnedAtMillis = learnedAtMillis;
+        }
+
+        private synchronized void add(List<Option> options) {
+            Set<String> updated = new TreeSet<>(carTypes);
+            options.forEach(option -> updated.add(option.getCarType()));
+            if (updated.size() != carTypes.size()) {
+                carTypes = Collections.unmodifiableSet(updated);
+            }
+            samples++;
+        }
+
+        private boolean isExpired(long nowMillis, long ttlMillis) {
+            return nowMillis - learnedAtMillis >= ttlMillis;
+        }
+    }
+}
@@ -0,0 +1,416 @@
+package com.tech.rideways.service.cluster;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.tech.rideways.entities.Option;
+import com.tech.rideways.service.cache.OffHeapQuoteStore;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.ContextClosedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.env.Environment;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.client.SimpleClientHttpRequestFactory;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.converter.StringHttpMessageConverter;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.RestClientException;
+import org.springframework.web.client.RestTemplate;
+import org.springframework.web.util.UriComponentsBuilder;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Quote cache shared by all the instances of the service. Each route is owned by one node, chosen on a consistent
+ * hash ring, and is only stored in that node's OffHeapQuoteStore: the other nodes forward their lookups and writes to
+ * it over HTTP (see ClusterController), so a route is fetched from the suppliers once per cluster.
+ *
+ * Membership: a node joins through the seed nodes and announces itself to every member they know, and a node
+ * shutting down tells the others it is leaving. A node failing cluster.max_forward_failures forwarded calls in a row
+ * is taken off the ring, so its routes stop paying for the forward timeout; it is added back when it announces itself
+ * again or is listed by a seed. When the cluster is disabled, or the owner cannot be reached, the local store is used.
+ *
+ * The nodes send the shared cluster.secret with every call, and the cluster does not start without one: the cluster
+ * endpoints write into the quote store and the ring, so they must not be open to the clients of the service.
+ */
+@Component
+public class ClusterQuoteCache {
+
+    public static final String NODES_PATH = "/cluster/nodes";
+    public static final String QUOTES_PATH = "/cluster/quotes";
+    public static final String SECRET_HEADER = "X-Cluster-Secret";
+
+    // Membership calls are rare and may hit a node that is still warming up, so they get more time than lookups.
+    private static final int MEMBERSHIP_TIMEOUT_MILLIS = 5000;
+
+    @Value("${cluster.enabled:false}")
+    private boolean enabled = false;
+
+    // Base URLs of the nodes to join through, separated by commas.
+    @Value("${cluster.seeds:}")
+    private String seeds = "";
+
+    // Base URL the other nodes reach this one with, http://localhost:{server port} when empty.
+    @Value("${cluster.advertised_url:}")
+    private String advertisedUrl = "";
+
+    @Value("${cluster.virtual_nodes:100}")
+    private int virtualNodes = 100;
+
+    // Forwarded lookups must stay much cheaper than the supplier calls they save.
+    @Value("${cluster.timeout_ms:200}")
+    private int timeoutMillis = 200;
+
+    @Value("${cluster.join_interval_ms:10000}")
+    private long joinIntervalMillis = 10000;
+
+    // Shared by all the nodes of the cluster, which does not start without one.
+    @Value("${cluster.secret:}")
+    private String secret = "";
+
+    @Value("${cluster.max_forward_failures:3}")
+    private int maxForwardFailures = 3;
+
+    @Autowired
+    private OffHeapQuoteStore localStore = new OffHeapQuoteStore();
+
+    @Autowired
+    private Environment environment;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private volatile ConsistentHashRing ring;
+
+    private volatile String self;
+
+    private RestTemplate restTemplate;
+
+    private RestTemplate membershipRestTemplate;
+
+    private ScheduledExecutorService membership;
+
+    private final LongAdder forwarded = new LongAdder();
+    private final LongAdder forwardFailures = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    // Forwarded calls each node failed in a row.
+    private final Map<String, AtomicInteger> consecutiveFailures = new ConcurrentHashMap<>();
+
+    /**
+     * Finds the options quoted by a supplier for a route, on the node owning the route.
+     *
+     * @param supplier
+     * @param pickup
+     * @param dropoff
+     * @return a new list of options, or null if there is none
+     */
+    public List<Option> get(String supplier, String pickup, String dropoff) {
+        String owner = remoteOwnerOf(supplier, pickup, dropoff);
+        if (owner == null) {
+            return localStore.get(supplier, pickup, dropoff);
+        }
+
+        forwarded.increment();
+        try {
+            ResponseEntity<String> response = restTemplate.exchange(quotesUrl(owner, supplier, pickup, dropoff),
+                    HttpMethod.GET, new HttpEntity<>(secretHeaders()), String.class);
+            recordForwardSuccess(owner);
+            if (response.getStatusCodeValue() != 200) {
+                // 204: the owner has no options for the route.
+                return null;
+            }
+            return new ArrayList<>(Arrays.asList(objectMapper.readValue(response.getBody(), Option[].class)));
+        } catch (RestClientException | IOException exception) {
+            recordForwardFailure(owner);
+            System.out.println("Quote lookup on " + owner + " failed: " + exception.getMessage());
+            return localStore.get(supplier, pickup, dropoff);
+        }
+    }
+
+    /**
+     * Caches the options quoted by a supplier for a route, on the node owning the route.
+     *
+     * @param supplier
+     * @param pickup
+     * @param dropoff
+     * @param options
+     */
+    public void put(String supplier, String pickup, String dropoff, List<Option> options) {
+        String owner = remoteOwnerOf(supplier, pickup, dropoff);
+        if (owner == null) {
+            localStore.put(supplier, pickup, dropoff, options);
+            return;
+        }
+
+        forwarded.increment();
+        try {
+            HttpHeaders headers = secretHeaders();
+            headers.setContentType(MediaType.APPLICATION_JSON);
+            restTemplate.exchange(quotesUrl(owner, supplier, pickup, dropoff), HttpMethod.PUT,
+                    new HttpEntity<>(objectMapper.writeValueAsString(options), headers), Void.class);
+            recordForwardSuccess(owner);
+        } catch (RestClientException | JsonProcessingException exception) {
+            recordForwardFailure(owner);
+            System.out.println("Quote write on " + owner + " failed: " + exception.getMessage());
+            localStore.put(supplier, pickup, dropoff, options);
+        }
+    }
+
+    /**
+     * Adds a node to the ring.
+     *
+     * @param node base URL of the node
+     * @return the members of the cluster, including the new node
+     * @throws IllegalArgumentException if the URL is not the base URL of a node
+     */
+    public Set<String> join(String node) {
+        if (!isNodeUrl(node)) {
+            throw new IllegalArgumentException("Invalid node URL: " + node);
+        }
+        consecutiveFailures.remove(node);
+        if (ring != null && ring.add(node)) {
+            System.out.println("Node joined the quote cache cluster: " + node);
+        }
+        return getNodes();
+    }
+
+    /**
+     * @param secret (optional => may be null) sent by the caller in the SECRET_HEADER header
+     * @return true if the caller is a node of this cluster
+     */
+    public boolean isAuthorized(String secret) {
+        return ring != null && secret != null
+                && MessageDigest.isEqual(secret.getBytes(StandardCharsets.UTF_8),
+                this.secret.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * @param url
+     * @return true if the URL is an http(s) base URL: a host and an optional port, without credentials, path or query
+     */
+    static boolean isNodeUrl(String url) {
+        if (url == null) {
+            return false;
+        }
+        try {
+            URI uri = new URI(url);
+            return ("http".equalsIgnoreCase(uri.getScheme()) || "https".equalsIgnoreCase(uri.getScheme()))
+                    && uri.getHost() != null && uri.getRawUserInfo() == null
+                    && (uri.getRawPath() == null || uri.getRawPath().isEmpty() || uri.getRawPath().equals("/"))
+                    && uri.getRawQuery() == null && uri.getRawFragment() == null;
+        } catch (URISyntaxException exception) {
+            return false;
+        }
+    }
+
+    /**
+     * Removes a node from the ring, its routes move to the nodes next to it.
+     *
+     * @param node base URL of the node
+     */
+    public void leave(String node) {
+        if (ring != null && !node.equals(self) && ring.remove(node)) {
+            System.out.println("Node left the quote cache cluster: " + node);
+        }
+    }
+
+    public Set<String> getNodes() {
+        return ring != null ? ring.getNodes() : Collections.emptySet();
+    }
+
+    /**
+     * Places this node on the ring and joins the cluster through the seed nodes, once the server accepts requests.
+     * Joining is repeated periodically, so a node started before its seeds, or cut off from them for a while, still
+     * ends up with the full list of members.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        if (secret.isEmpty()) {
+            System.out.println("The quote cache cluster needs cluster.secret, it was not started.");
+            return;
+        }
+
+        restTemplate = restTemplate(timeoutMillis);
+        membershipRestTemplate = restTemplate(MEMBERSHIP_TIMEOUT_MILLIS);
+
+        self = !advertisedUrl.isEmpty()
+                ? advertisedUrl
+                : "http://localhost:" + environment.getProperty("local.server.port");
+
+        ConsistentHashRing joining = new ConsistentHashRing(virtualNodes);
+        joining.add(self);
+        ring = joining;
+
+        membership = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "cluster-membership");
+            thread.setDaemon(true);
+            return thread;
+        });
+        membership.scheduleWithFixedDelay(this::joinSeeds, 0, joinIntervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Tells the other members this node is leaving, so they stop forwarding to it.
+     */
+    @EventListener(ContextClosedEvent.class)
+    public void stop() {
+        if (ring == null) {
+            return;
+        }
+        membership.shutdownNow();
+
+        for (String member : ring.getNodes()) {
+            if (!member.equals(self)) {
+                try {
+                    membershipRestTemplate.exchange(nodesUrl(member), HttpMethod.DELETE,
+                            new HttpEntity<>(secretHeaders()), Void.class);
+                } catch (RestClientException exception) {
+                    System.out.println("Could not leave the quote cache cluster on " + member);
+                }
+            }
+        }
+    }
+
+    /**
+     * @return the members, the requests forwarded to other nodes, the forwarding failures and the nodes evicted
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("self", self);
+        stats.put("nodes", getNodes());
+        stats.put("forwarded", forwarded.sum());
+        stats.put("forward_failures", forwardFailures.sum());
+        stats.put("evictions", evictions.sum());
+        return stats;
+    }
+
+    /**
+     * Announces this node to every seed and to the members they know that this node did not know yet.
+     */
+    void joinSeeds() {
+        for (String seed : seeds.split(",")) {
+            seed = seed.trim();
+            if (seed.isEmpty() || seed.equals(self)) {
+                continue;
+            }
+            for (String member : announce(seed)) {
+                if (isNodeUrl(member) && ring.add(member)) {
+                    consecutiveFailures.remove(member);
+                    System.out.println("Node joined the quote cache cluster: " + member);
+                    if (!member.equals(seed)) {
+                        announce(member);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Asks a member to add this node to its ring.
+     *
+     * @param member
+     * @return the members known by that node, or no member if it cannot be reached
+     */
+    private List<String> announce(String member) {
+        try {
+            String members = membershipRestTemplate.exchange(nodesUrl(member), HttpMethod.POST,
+                    new HttpEntity<>(secretHeaders()), String.class).getBody();
+            return Arrays.asList(objectMapper.readValue(members, String[].class));
+        } catch (RestClientException | IOException exception) {
+            System.out.println("Could not join the quote cache cluster through " + member + ": "
+                    + exception.getMessage());
+            return Collections.emptyList();
+        }
+    }
+
+    private void recordForwardSuccess(String node) {
+        AtomicInteger failures = consecutiveFailures.get(node);
+        if (failures != null) {
+            failures.set(0);
+        }
+    }
+
+    /**
+     * Counts a failed forward, and takes the node off the ring once it failed maxForwardFailures calls in a row.
+     *
+     * @param node
+     */
+    private void recordForwardFailure(String node) {
+        forwardFailures.increment();
+        int failures = consecutiveFailures.computeIfAbsent(node, key -> new AtomicInteger()).incrementAndGet();
+        if (failures >= maxForwardFailures && ring.remove(node)) {
+            consecutiveFailures.remove(node);
+            evictions.increment();
+            System.out.println("Node evicted from the quote cache cluster after " + failures + " failures: " + node);
+        }
+    }
+
+    private HttpHeaders secretHeaders() {
+        HttpHeaders headers = new HttpHeaders();
+        headers.set(SECRET_HEADER, secret);
+        return headers;
+    }
+
+    /**
+     * @return the node owning the route, or null if it is this node (or the cluster is disabled)
+     */
+    private String remoteOwnerOf(String supplier, String pickup, String dropoff) {
+        ConsistentHashRing current = ring;
+        if (current == null) {
+            return null;
+        }
+        String owner = current.ownerOf(supplier + "|" + pickup + "|" + dropoff);
+        return owner == null || owner.equals(self) ? null : owner;
+    }
+
+    private static RestTemplate restTemplate(int timeoutMillis) {
+        SimpleClientHttpRequestFactory requestFactory = new SimpleClientHttpRequestFactory();
+        requestFactory.setConnectTimeout(timeoutMillis);
+        requestFactory.setReadTimeout(timeoutMillis);
+
+        RestTemplate restTemplate =
+                new RestTemplate(Collections.<HttpMessageConverter<?>>singletonList(new StringHttpMessageConverter()));
+        restTemplate.setRequestFactory(requestFactory);
+        return restTemplate;
+    }
+
+    private URI nodesUrl(String node) {
+        return UriComponentsBuilder.fromHttpUrl(node).path(NODES_PATH)
+                .queryParam("url", self)
+                .encode().build().toUri();
+    }
+
+    private static URI quotesUrl(String node, String supplier, String pickup, String dropoff) {
+        return UriComponentsBuilder.fromHttpUrl(node).path(QUOTES_PATH)
+                .queryParam("supplier", supplier)
+                .queryParam("pickup", pickup)
+                .queryParam("dropoff", dropoff)
+                .encode().build().toUri();
+    }
+}
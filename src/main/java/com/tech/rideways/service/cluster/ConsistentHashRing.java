@@ -0,0 +1,86 @@
+package com.tech.rideways.service.cluster;
+
+import org.springframework.util.DigestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * Maps keys to the nodes of the cluster. Every node is placed on a ring at several points (virtual nodes) and a key
+ * belongs to the first node found clockwise from the key's own position, so a node joining or leaving only moves the
+ * keys next to its points instead of reshuffling all of them.
+ */
+public class ConsistentHashRing {
+
+    private final int virtualNodes;
+
+    private final NavigableMap<Long, String> ring = new ConcurrentSkipListMap<>();
+
+    private final Set<String> nodes = new TreeSet<>();
+
+    /**
+     * @param virtualNodes points per node on the ring, more points spread the keys more evenly
+     */
+    public ConsistentHashRing(int virtualNodes) {
+        this.virtualNodes = virtualNodes;
+    }
+
+    /**
+     * @param node
+     * @return true if the node was not on the ring yet
+     */
+    public synchronized boolean add(String node) {
+        if (!nodes.add(node)) {
+            return false;
+        }
+        for (int i = 0; i < virtualNodes; i++) {
+            // On the rare collision, the node added first keeps the point.
+            ring.putIfAbsent(hash(node + "#" + i), node);
+        }
+        return true;
+    }
+
+    /**
+     * @param node
+     * @return true if the node was on the ring
+     */
+    public synchronized boolean remove(String node) {
+        if (!nodes.remove(node)) {
+            return false;
+        }
+        ring.values().removeIf(node::equals);
+        return true;
+    }
+
+    /**
+     * @param key
+     * @return the node owning the key, or null if the ring is empty
+     */
+    public String ownerOf(String key) {
+        if (ring.isEmpty()) {
+            return null;
+        }
+        Map.Entry<Long, String> owner = ring.ceilingEntry(hash(key));
+        return owner != null ? owner.getValue() : ring.firstEntry().getValue();
+    }
+
+    public synchronized Set<String> getNodes() {
+        return new TreeSet<>(nodes);
+    }
+
+    /**
+     * @return the first 8 bytes of the MD5 digest, as used by Ketama
+     */
+    private static long hash(String value) {
+        byte[] digest = DigestUtils.md5Digest(value.getBytes(StandardCharsets.UTF_8));
+        long hash = 0;
+        for (int i = 0; i < Long.BYTES; i++) {
+            hash = (hash << 8) | (digest[i] & 0xff);
+        }
+        return hash;
+    }
+}
@@ -0,0 +1,202 @@
+package com.tech.rideways.service.health;
+
+import com.tech.rideways.service.RideService;
+import com.tech.rideways.service.utils.Client;
+import com.tech.rideways.service.utils.Lane;
+import com.tech.rideways.service.utils.RequestContext;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.ContextClosedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.env.Environment;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Sends a synthetic search to each supplier at a fixed interval, so a supplier that is down is known before a customer
+ * search waits for it to time out. A supplier failing several probes in a row is down until a probe succeeds again;
+ * searches skip it meanwhile (see RideService.findOptions()).
+ *
+ * Probes run in the bulk lane, with a single attempt, so they never take a supplier connection an interactive search
+ * is waiting for.
+ */
+@Component
+public class SupplierHealthMonitor {
+
+    @Value("${supplier_health.enabled:true}")
+    private boolean enabled = true;
+
+    @Value("${supplier_health.interval_ms:10000}")
+    private long intervalMillis = 10000;
+
+    // Failed probes in a row before a supplier is down.
+    @Value("${supplier_health.failure_threshold:3}")
+    private int failureThreshold = 3;
+
+    // Weight of the latest probe in the availability and latency scores.
+    @Value("${supplier_health.smoothing:0.3}")
+    private double smoothing = 0.3;
+
+    @Value("${supplier_health.probe_pickup:51.470020,-0.454295}")
+    private String probePickup = "51.470020,-0.454295";
+
+    @Value("${supplier_health.probe_dropoff:53.470020,-0.454295}")
+    private String probeDropoff = "53.470020,-0.454295";
+
+    @Value("${supplier.timeout_ms:2000}")
+    private long attemptTimeoutMillis = 2000;
+
+    @Value("${taxi_api}")
+    private String taxiApiUrl = "https://techtest.rideways.com";
+
+    @Autowired
+    private Client client;
+
+    @Autowired(required = false)
+    private Environment environment;
+
+    private final Map<String, Health> healthBySupplier = new ConcurrentHashMap<>();
+
+    private final LongAdder skipped = new LongAdder();
+
+    private ScheduledExecutorService prober;
+
+    /**
+     * Starts probing the suppliers once the server accepts requests. Command line runs, without a server, do not
+     * probe.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (!enabled || environment == null || environment.getProperty("local.server.port") == null) {
+            return;
+        }
+        prober = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "supplier-health");
+            thread.setDaemon(true);
+            return thread;
+        });
+        prober.scheduleWithFixedDelay(() -> RideService.getSuppliers().forEach(this::probe),
+                0, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @EventListener(ContextClosedEvent.class)
+    public void stop() {
+        if (prober != null) {
+            prober.shutdownNow();
+        }
+    }
+
+    /**
+     * Sends a synthetic search to a supplier and updates its health.
+     *
+     * @param supplier
+     */
+    void probe(String supplier) {
+        Map<String, String> params = new HashMap<>();
+        params.put("pickup", probePickup);
+        params.put("dropoff", probeDropoff);
+
+        long start = System.nanoTime();
+        boolean up;
+        RequestContext.open(attemptTimeoutMillis, Lane.BULK);
+        try {
+            ResponseEntity<String> response = client.probe(taxiApiUrl, supplier, params);
+            if (response.getStatusCode() == HttpStatus.SERVICE_UNAVAILABLE) {
+                // No supplier connection was free, the supplier was not called.
+                return;
+            }
+            up = response.getStatusCode() == HttpStatus.OK && response.getBody() != null;
+        } catch (RuntimeException exception) {
+            up = false;
+        } finally {
+            RequestContext.close();
+        }
+
+        Health health = healthBySupplier.computeIfAbsent(supplier, key -> new Health());
+        boolean wasDown = health.isDown(failureThreshold);
+        health.record(up, System.nanoTime() - start, smoothing);
+        boolean isDown = health.isDown(failureThreshold);
+
+        if (isDown != wasDown) {
+            System.out.println(supplier + "'s API is " + (isDown ? "down" : "back up") + ".");
+        }
+    }
+
+    /**
+     * @param supplier
+     * @return true if the latest probes of the supplier all failed
+     */
+    public boolean isDown(String supplier) {
+        Health health = healthBySupplier.get(supplier);
+        return health != null && health.isDown(failureThreshold);
+    }
+
+    /**
+     * Counts a supplier call skipped because the supplier is down.
+     */
+    public void recordSkip() {
+        skipped.increment();
+    }
+
+    /**
+     * @return the health of each supplier probed so far and the supplier calls skipped
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> suppliers = new LinkedHashMap<>();
+        healthBySupplier.forEach((supplier, health) -> {
+            Map<String, Object> supplierStats = new LinkedHashMap<>();
+            supplierStats.put("down", health.isDown(failureThreshold));
+            supplierStats.put("availability", health.availability);
+            supplierStats.put("latency_ms", health.latencyMillis);
+            supplierStats.put("consecutive_failures", health.consecutiveFailures);
+            supplierStats.put("probes", health.probes);
+            suppliers.put(supplier, supplierStats);
+        });
+
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("suppliers", suppliers);
+        stats.put("skipped_calls", skipped.sum());
+        return stats;
+    }
+
+    private static class Health {
+
+        // Smoothed share of the probes that succeeded.
+        private volatile double availability = 1;
+
+        // Smoothed round trip of the successful probes.
+        private volatile double latencyMillis;
+
+        private volatile int consecutiveFailures;
+
+        private volatile long probes;
+
+        private synchronized void record(boolean up, long nanos, double smoothing) {
+            availability += smoothing * ((up ? 1 : 0) - availability);
+            if (up) {
+                double millis = nanos / 1e6;
+                latencyMillis = latencyMillis == 0 ? millis : latencyMillis + smoothing * (millis - latencyMillis);
+                consecutiveFailures = 0;
+            } else {
+                consecutiveFailures++;
+            }
+            probes++;
+        }
+
+        private boolean isDown(int failureThreshold) {
+            return consecutiveFailures >= failureThreshold;
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package com.tech.rideways.service.profiling;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Flight Recorder event of the aggregation of the supplier options of a search into the cheapest one per car type.
+ */
+@Name("com.tech.rideways.Aggregation")
+@Label("Aggregation")
+@Category("Rideways")
+@Description("Options of all the suppliers reduced to the cheapest per car type")
+@StackTrace(false)
+public class AggregationEvent extends jdk.jfr.Event {
+
+    @Label("Options")
+    @Description("Options returned by the suppliers and accepted by the filter")
+    int options;
+
+    @Label("Car Types")
+    @Description("Options left after the aggregation")
+    int carTypes;
+
+    /**
+     * Ends the aggregation and records it, if a recording is taking aggregations.
+     *
+     * @param options
+     * @param carTypes
+     */
+    public void commit(int options, int carTypes) {
+        end();
+        if (shouldCommit()) {
+            this.options = options;
+            this.carTypes = carTypes;
+            commit();
+        }
+    }
+}
@@ -0,0 +1,130 @@
+package com.tech.rideways.service.profiling;
+
+import jdk.jfr.Configuration;
+import jdk.jfr.Recording;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.ContextClosedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.ParseException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Takes time-boxed Flight Recorder recordings on demand, e.g. on a node showing a latency regression. Recordings hold
+ * the JVM events of the chosen settings along with the supplier call, aggregation and search events of the service,
+ * but not the events recording the environment, the system properties and the JVM arguments.
+ * One recording runs at a time.
+ */
+@Component
+public class OnDemandRecorder {
+
+    private static final List<String> SETTINGS = Arrays.asList("default", "profile");
+
+    // Events holding the environment variables, the system properties and the command line, secrets included.
+    private static final List<String> REDACTED_EVENTS =
+            Arrays.asList("jdk.InitialEnvironmentVariable", "jdk.InitialSystemProperty", "jdk.JVMInformation");
+
+    @Value("${profiling.max_duration_s:300}")
+    private long maxDurationSeconds = 300;
+
+    private final AtomicBoolean recording = new AtomicBoolean();
+
+    private ScheduledExecutorService stopper;
+
+    /**
+     * Starts a recording and stops it after the given duration.
+     *
+     * @param durationSeconds
+     * @param settings "default" (about 1% overhead) or "profile" (about 2%, with more frequent CPU samples)
+     * @return the recording, once stopped
+     * @throws IllegalArgumentException if the duration or the settings are invalid
+     * @throws IllegalStateException if a recording is already running
+     */
+    public CompletableFuture<byte[]> record(long durationSeconds, String settings) {
+        if (durationSeconds < 1 || durationSeconds > maxDurationSeconds) {
+            throw new IllegalArgumentException("The duration must be between 1 and " + maxDurationSeconds + "s");
+        }
+        if (!SETTINGS.contains(settings)) {
+            throw new IllegalArgumentException("The settings must be one of " + SETTINGS);
+        }
+        if (!recording.compareAndSet(false, true)) {
+            throw new IllegalStateException("A recording is already running");
+        }
+
+        boolean started = false;
+        try {
+            Path file = Files.createTempFile("rideways-", ".jfr");
+            Map<String, String> eventSettings = new HashMap<>(Configuration.getConfiguration(settings).getSettings());
+            for (String event : REDACTED_EVENTS) {
+                eventSettings.put(event + "#enabled", "false");
+            }
+            Recording jfr = new Recording(eventSettings);
+            jfr.setName("rideways-on-demand");
+            jfr.setToDisk(true);
+            jfr.setDestination(file);
+            jfr.start();
+            started = true;
+
+            CompletableFuture<byte[]> result = new CompletableFuture<>();
+            stopper().schedule(() -> stop(jfr, file, result), durationSeconds, TimeUnit.SECONDS);
+            return result;
+        } catch (IOException exception) {
+            throw new UncheckedIOException(exception);
+        } catch (ParseException exception) {
+            throw new IllegalArgumentException("Invalid settings: " + settings, exception);
+        } finally {
+            if (!started) {
+                recording.set(false);
+            }
+        }
+    }
+
+    private void stop(Recording jfr, Path file, CompletableFuture<byte[]> result) {
+        try {
+            // Stopping writes the recording to its destination.
+            jfr.stop();
+            result.complete(Files.readAllBytes(file));
+        } catch (IOException | RuntimeException exception) {
+            result.completeExceptionally(exception);
+        } finally {
+            jfr.close();
+            try {
+                Files.deleteIfExists(file);
+            } catch (IOException e) {
+                System.out.println("Could not delete the recording " + file + ".");
+            }
+            recording.set(false);
+        }
+    }
+
+    private synchronized ScheduledExecutorService stopper() {
+        if (stopper == null) {
+            stopper = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "jfr-recorder");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        return stopper;
+    }
+
+    @EventListener(ContextClosedEvent.class)
+    public synchronized void shutdown() {
+        if (stopper != null) {
+            stopper.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package com.tech.rideways.service.profiling;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Flight Recorder event of a search request, from its arrival to its response, the asynchronous wait for the
+ * suppliers included.
+ */
+@Name("com.tech.rideways.Search")
+@Label("Search")
+@Category("Rideways")
+@Description("Search request, from its arrival to its response")
+@StackTrace(false)
+public class SearchEvent extends jdk.jfr.Event {
+
+    @Label("Path")
+    String path;
+
+    @Label("Lane")
+    String lane;
+
+    @Label("Status")
+    int status;
+
+    /**
+     * Ends the search and records it, if a recording is taking searches.
+     *
+     * @param path
+     * @param lane
+     * @param status
+     */
+    public void commit(String path, String lane, int status) {
+        end();
+        if (shouldCommit()) {
+            this.path = path;
+            this.lane = lane;
+            this.status = status;
+            commit();
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package com.tech.rideways.service.profiling;
+
+import com.tech.rideways.service.utils.Lane;
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import org.springframework.http.ResponseEntity;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Flight Recorder event of a call to a supplier, retries and backoff included.
+ */
+@Name("com.tech.rideways.SupplierCall")
+@Label("Supplier Call")
+@Category("Rideways")
+@Description("Call to a supplier API, retries included")
+@StackTrace(false)
+public class SupplierCallEvent extends jdk.jfr.Event {
+
+    @Label("Supplier")
+    String supplier;
+
+    @Label("Lane")
+    String lane;
+
+    @Label("Status")
+    int status;
+
+    @Label("Body Size")
+    @DataAmount
+    long bytes;
+
+    /**
+     * Ends the call and records it, if a recording is taking supplier calls.
+     *
+     * @param supplier
+     * @param lane
+     * @param response
+     */
+    public void commit(String supplier, Lane lane, ResponseEntity<String> response) {
+        end();
+        if (shouldCommit()) {
+            this.supplier = supplier;
+            this.lane = lane.name();
+            this.status = response.getStatusCodeValue();
+            this.bytes = response.getBody() != null ? response.getBody().getBytes(StandardCharsets.UTF_8).length : 0;
+            commit();
+        }
+    }
+}
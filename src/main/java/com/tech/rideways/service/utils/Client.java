@@ -1,7 +1,11 @@
 package com.tech.rideways.service.utils;
 
+import com.tech.rideways.config.AppConfig;
+import com.tech.rideways.service.RideService;
+import com.tech.rideways.service.profiling.SupplierCallEvent;
 import org.springframework.beans.factory.annotation.Autowired;
 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpEntity;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpMethod;
@@ -11,11 +15,15 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Component;
 import org.springframework.web.client.HttpClientErrorException;
 import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.client.ResourceAccessException;
 import org.springframework.web.client.RestTemplate;
 import org.springframework.web.util.UriComponentsBuilder;
 
 import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
 
 @Component
 public class Client {
@@ -23,41 +31,307 @@ public class Client {
     @Autowired
     private RestTemplate restTemplate;
 
+    // Absent when wired by hand: the supplier responses are then never degraded.
+    @Autowired(required = false)
+    private FaultInjector faultInjector;
+
+    // Present with supplier.engine=http2, in which case the suppliers are called through it instead of the
+    // RestTemplate.
+    @Autowired(required = false)
+    private Http2Engine http2Engine;
+
+    @Value("${supplier.retry.max_attempts:3}")
+    private int maxAttempts = 3;
+
+    @Value("${supplier.retry.base_backoff_ms:50}")
+    private long baseBackoffMillis = 50;
+
+    @Value("${supplier.retry.max_backoff_ms:500}")
+    private long maxBackoffMillis = 500;
+
+    @Value("${supplier.retry.budget_ratio:0.2}")
+    private double retryBudgetRatio = 0.2;
+
+    @Value("${supplier.retry.budget_max:10}")
+    private int retryBudgetMax = 10;
+
+    // An attempt can take as long as the read timeout, so a retry is only made if that much time is left.
+    @Value("${supplier.timeout_ms:2000}")
+    private long attemptTimeoutMillis = 2000;
+
+    // Deadline used when the call is not part of a search with its own deadline (e.g. from the CLI).
+    @Value("${ride.deadline_ms:3000}")
+    private long defaultDeadlineMillis = 3000;
+
+    // Supplier connections shared by the lanes; 0 uses the connections the pool keeps to the suppliers.
+    @Value("${priority.supplier_connections:0}")
+    private int supplierConnections = 0;
+
+    // Supplier connections bulk searches can never use.
+    @Value("${priority.reserved_interactive_connections:2}")
+    private int reservedInteractiveConnections = 2;
+
+    // One budget per supplier, created on first use; the paths of other suppliers are never retried.
+    private volatile Map<String, RetryBudget> retryBudgets;
+
+    private volatile PriorityGate connectionGate;
+
+    /**
+     * Creates a client wired by hand, for entry points that run without the Spring context.
+     *
+     * @param restTemplate
+     * @return client
+     */
+    public static Client create(RestTemplate restTemplate) {
+        Client client = new Client();
+        client.restTemplate = restTemplate;
+        return client;
+    }
+
     /**
      * Makes a GET request to the specified URL.
      *
+     * Server errors and I/O errors (including timeouts) are retried with exponential backoff and full jitter, as long
+     * as the supplier's retry budget allows it and another attempt still fits before the deadline of the search. Only
+     * the suppliers of RideService.getSuppliers() have a retry budget; a request to another path is made once.
+     *
+     * The failures that say nothing about the supplier are neither retried nor reported as a supplier failure: a 503
+     * when no supplier connection got free before the deadline, and a 502 for an unexpected error.
+     *
      * @param base_url
      * @param path
      * @param params
      * @return response
      */
     public ResponseEntity<String> get(String base_url, String path, Map<String, String> params) {
+        return call(base_url, path, params, true);
+    }
+
+    /**
+     * Makes a single GET request to the specified URL, e.g. a health probe: it is never retried, and neither draws
+     * on nor adds to the retry budget of the supplier, which is left to the searches.
+     *
+     * @param base_url
+     * @param path
+     * @param params
+     * @return response, with the same statuses as get()
+     */
+    public ResponseEntity<String> probe(String base_url, String path, Map<String, String> params) {
+        return call(base_url, path, params, false);
+    }
+
+    private ResponseEntity<String> call(String base_url, String path, Map<String, String> params, boolean retry) {
+        SupplierCallEvent event = new SupplierCallEvent();
+        event.begin();
+
+        RequestContext context = RequestContext.current();
+        Lane lane = context != null ? context.getLane() : Lane.INTERACTIVE;
+        ResponseEntity<String> response = getWithRetries(base_url, path, params, context, lane, retry);
+
+        event.commit(path, lane, response);
+        return response;
+    }
+
+    private ResponseEntity<String> getWithRetries(String base_url, String path, Map<String, String> params,
+                                                  RequestContext context, Lane lane, boolean retry) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setAccept(Collections.singletonList(MediaType.APPLICATION_JSON));
+
+        UriComponentsBuilder builder = UriComponentsBuilder.fromHttpUrl(base_url);
+        builder.path(path);
+        for (Map.Entry<String, String> param : params.entrySet()) {
+            builder.queryParam(param.getKey(), param.getValue());
+        }
+
+        HttpEntity entity = new HttpEntity<>(headers);
+        String url = builder.toUriString();
+
+        long deadlineNanos = context != null
+                ? context.getDeadlineNanos()
+                : System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(defaultDeadlineMillis);
+
+        RetryBudget retryBudget = retry ? retryBudgets().get(path) : null;
+        if (retryBudget != null) {
+            retryBudget.recordRequest();
+        }
+
+        for (int attempt = 1; ; attempt++) {
+            try {
+                // Execute the get request.
+                ResponseEntity<String> response = exchange(path, url, entity, lane, deadlineNanos);
+                return response;
+
+            }
+            catch (HttpClientErrorException clientErrorException) {
+                return ResponseEntity.status(HttpStatus.BAD_REQUEST).body("Invalid request to " + path + "'s API");
+            }
+            catch (HttpServerErrorException serverUnavailableException) {
+                if (!backOffForRetry(attempt, deadlineNanos, retryBudget)) {
+                    return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(path + "'s API is currently unavailable");
+                }
+            }
+            catch (NoConnectionException noConnectionException) {
+                // The supplier was not called; retrying would only wait for a connection again.
+                return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                        .body("No connection to " + path + "'s API was free before the deadline.");
+            }
+            catch (ResourceAccessException ioException) {
+                // Timeout of 2 seconds, or the connection failed.
+                if (!backOffForRetry(attempt, deadlineNanos, retryBudget)) {
+                    return ResponseEntity.status(HttpStatus.REQUEST_TIMEOUT).body(path + "'s API timed out.");
+                }
+            }
+            catch (Exception exception) {
+                return ResponseEntity.status(HttpStatus.BAD_GATEWAY)
+                        .body("Unexpected error calling " + path + "'s API: " + exception);
+            }
+        }
+    }
+
+    /**
+     * Executes the request once a supplier connection is free for the lane of the search, with the faults injected
+     * for the supplier if any.
+     *
+     * @param path
+     * @param url
+     * @param entity
+     * @param lane
+     * @param deadlineNanos
+     * @return response
+     * @throws NoConnectionException if no connection got free before the deadline
+     */
+    private ResponseEntity<String> exchange(String path, String url, HttpEntity entity, Lane lane, long deadlineNanos) {
+        PriorityGate gate = connectionGate();
         try {
-            HttpHeaders headers = new HttpHeaders();
-            headers.setAccept(Collections.singletonList(MediaType.APPLICATION_JSON));
+            if (!gate.acquire(lane, deadlineNanos - System.nanoTime())) {
+                throw new NoConnectionException("No supplier connection was free before the deadline");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new NoConnectionException("Interrupted while waiting for a supplier connection");
+        }
 
-            UriComponentsBuilder builder = UriComponentsBuilder.fromHttpUrl(base_url);
-            builder.path(path);
-            for (Map.Entry<String, String> param : params.entrySet()) {
-                builder.queryParam(param.getKey(), param.getValue());
+        try {
+            if (faultInjector != null) {
+                return faultInjector.call(path, attemptTimeoutMillis, () -> send(url, entity));
             }
+            return send(url, entity);
+        } finally {
+            gate.release();
+        }
+    }
+
+    private ResponseEntity<String> send(String url, HttpEntity entity) {
+        if (http2Engine != null) {
+            return http2Engine.exchange(url, entity.getHeaders());
+        }
+        return restTemplate.exchange(url, HttpMethod.GET, entity, String.class);
+    }
+
+    private PriorityGate connectionGate() {
+        PriorityGate gate = connectionGate;
+        if (gate == null) {
+            synchronized (this) {
+                gate = connectionGate;
+                if (gate == null) {
+                    int capacity = supplierConnections > 0 ? supplierConnections
+                            : http2Engine != null ? http2Engine.getMaxStreams()
+                            : AppConfig.maxConnectionsPerRoute();
+                    gate = new PriorityGate(capacity, Math.min(reservedInteractiveConnections, capacity - 1));
+                    connectionGate = gate;
+                }
+            }
+        }
+        return gate;
+    }
+
+    /**
+     * @return the supplier connections in use and the requests that had to wait for one, and the HTTP versions the
+     * suppliers answered with when they are called over HTTP/2
+     */
+    public Map<String, Object> getConnectionStats() {
+        if (http2Engine == null) {
+            return connectionGate().getStats();
+        }
+        Map<String, Object> stats = new LinkedHashMap<>(connectionGate().getStats());
+        stats.put("http2", http2Engine.getStats());
+        return stats;
+    }
 
-            HttpEntity entity = new HttpEntity<>(headers);
+    /**
+     * Decides whether a failed attempt is retried and, if so, sleeps for the backoff delay.
+     *
+     * @param attempt number of the attempt that failed (starting at 1)
+     * @param deadlineNanos
+     * @param retryBudget (optional => may be null, in which case the request is not retried)
+     * @return true if the request should be retried
+     */
+    private boolean backOffForRetry(int attempt, long deadlineNanos, RetryBudget retryBudget) {
+        if (retryBudget == null || attempt >= maxAttempts) {
+            return false;
+        }
 
-            // Execute the get request.
-            ResponseEntity<String> response = restTemplate.exchange(builder.toUriString(), HttpMethod.GET, entity, String.class);
-            return response;
+        long backoffCapMillis = Math.min(maxBackoffMillis, baseBackoffMillis << Math.min(attempt - 1, 20));
+        long backoffMillis = ThreadLocalRandom.current().nextLong(backoffCapMillis + 1);
 
+        long remainingMillis = TimeUnit.NANOSECONDS.toMillis(deadlineNanos - System.nanoTime());
+        if (remainingMillis < backoffMillis + attemptTimeoutMillis) {
+            return false;
         }
-        catch (HttpClientErrorException clientErrorException) {
-            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body("Invalid request to " + path + "'s API");
+
+        if (!retryBudget.tryWithdraw()) {
+            return false;
         }
-        catch (HttpServerErrorException serverUnavailableException) {
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(path + "'s API is currently unavailable");
+
+        try {
+            Thread.sleep(backoffMillis);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
         }
-        catch (Exception exception) {
-            // Timeout of 2 seconds.
-            return ResponseEntity.status(HttpStatus.REQUEST_TIMEOUT).body(path + "'s API timed out.");
+    }
+
+    private Map<String, RetryBudget> retryBudgets() {
+        Map<String, RetryBudget> budgets = retryBudgets;
+        if (budgets == null) {
+            synchronized (this) {
+                budgets = retryBudgets;
+                if (budgets == null) {
+                    budgets = new LinkedHashMap<>();
+                    for (String supplier : RideService.getSuppliers()) {
+                        budgets.put(supplier, new RetryBudget(retryBudgetRatio, retryBudgetMax));
+                    }
+                    budgets = Collections.unmodifiableMap(budgets);
+                    retryBudgets = budgets;
+                }
+            }
+        }
+        return budgets;
+    }
+
+    /**
+     * @return the retries made and the retries refused because the budget was exhausted, for each supplier
+     */
+    public Map<String, Object> getRetryStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        retryBudgets().forEach((supplier, retryBudget) -> {
+            Map<String, Object> supplierStats = new LinkedHashMap<>();
+            supplierStats.put("retries", retryBudget.getRetries());
+            supplierStats.put("budget_exhausted", retryBudget.getExhausted());
+            supplierStats.put("budget_balance", retryBudget.getBalance());
+            stats.put(supplier, supplierStats);
+        });
+        return stats;
+    }
+
+    /**
+     * Thrown when a request could not get a supplier connection, in which case the supplier was not called.
+     */
+    private static final class NoConnectionException extends RuntimeException {
+
+        private NoConnectionException(String message) {
+            super(message);
         }
     }
 }
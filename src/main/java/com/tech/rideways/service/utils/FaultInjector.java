@@ -0,0 +1,165 @@
+package com.tech.rideways.service.utils;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.env.Environment;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.client.ResourceAccessException;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Degrades the supplier responses on purpose, to see how the service behaves when a supplier slows down or fails
+ * without waiting for a real incident. Each supplier call can be delayed, then turned into a timeout, a server error
+ * or a malformed body, or have its real body cut short.
+ *
+ * The faults of a supplier are set with fault_injection.{supplier}.{setting}, falling back to
+ * fault_injection.{setting} for all the suppliers:
+ * latency_ms (median added latency), latency_sigma (spread of the log-normal latency, 0 for a fixed one),
+ * timeout_rate, error_rate, malformed_rate and truncated_rate (share of the calls, from 0 to 1).
+ */
+@Component
+public class FaultInjector {
+
+    private static final String PREFIX = "fault_injection.";
+
+    // Starts like the body of a valid response, so the failure is found by the parser.
+    private static final String MALFORMED_BODY = "{\"options\":[{\"car_type\":";
+
+    @Value("${fault_injection.enabled:false}")
+    private boolean enabled = false;
+
+    // Absent when wired by hand: no fault is then injected.
+    @Autowired(required = false)
+    private Environment environment;
+
+    private final Map<String, Faults> faultsBySupplier = new ConcurrentHashMap<>();
+
+    private final Map<String, LongAdder> injected = new ConcurrentHashMap<>();
+
+    /**
+     * Makes a supplier call, with the faults set for the supplier.
+     *
+     * @param supplier path of the supplier
+     * @param attemptTimeoutMillis how long an injected timeout takes, like a real one
+     * @param call the real call
+     * @return the response of the call, possibly degraded
+     * @throws ResourceAccessException for an injected timeout
+     * @throws HttpServerErrorException for an injected server error
+     */
+    public ResponseEntity<String> call(String supplier, long attemptTimeoutMillis,
+                                       Supplier<ResponseEntity<String>> call) {
+        if (!enabled || environment == null) {
+            return call.get();
+        }
+
+        Faults faults = faultsBySupplier.computeIfAbsent(supplier, this::faults);
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+
+        if (faults.latencyMillis > 0) {
+            long latencyMillis = (long) (faults.latencyMillis * Math.exp(faults.latencySigma * random.nextGaussian()));
+            count(supplier, "latency");
+            sleep(latencyMillis);
+        }
+
+        double roll = random.nextDouble();
+        if ((roll -= faults.timeoutRate) < 0) {
+            count(supplier, "timeout");
+            sleep(attemptTimeoutMillis);
+            throw new ResourceAccessException("I/O error on GET request for " + supplier + ": Read timed out (injected)");
+        }
+        if ((roll -= faults.errorRate) < 0) {
+            count(supplier, "error");
+            throw new HttpServerErrorException(HttpStatus.SERVICE_UNAVAILABLE, "Injected server error");
+        }
+        if ((roll -= faults.malformedRate) < 0) {
+            count(supplier, "malformed");
+            return ResponseEntity.ok(MALFORMED_BODY);
+        }
+
+        ResponseEntity<String> response = call.get();
+
+        String body = response.getBody();
+        if ((roll -= faults.truncatedRate) < 0 && body != null) {
+            count(supplier, "truncated");
+            return ResponseEntity.status(response.getStatusCode()).body(body.substring(0, body.length() / 2));
+        }
+        return response;
+    }
+
+    /**
+     * @return whether faults are injected, and the number injected so far for each supplier and kind
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", enabled);
+        Map<String, Long> counts = new LinkedHashMap<>();
+        injected.forEach((key, count) -> counts.put(key, count.sum()));
+        stats.put("injected", counts);
+        return stats;
+    }
+
+    private Faults faults(String supplier) {
+        return new Faults(
+                setting(supplier, "latency_ms"),
+                setting(supplier, "latency_sigma"),
+                setting(supplier, "timeout_rate"),
+                setting(supplier, "error_rate"),
+                setting(supplier, "malformed_rate"),
+                setting(supplier, "truncated_rate"));
+    }
+
+    private double setting(String supplier, String name) {
+        String value = environment.getProperty(PREFIX + supplier + "." + name);
+        if (value == null) {
+            value = environment.getProperty(PREFIX + name);
+        }
+        return value != null && !value.trim().isEmpty() ? Double.parseDouble(value.trim()) : 0;
+    }
+
+    private void count(String supplier, String kind) {
+        injected.computeIfAbsent(supplier + "." + kind, key -> new LongAdder()).increment();
+    }
+
+    private static void sleep(long millis) {
+        try {
+            TimeUnit.MILLISECONDS.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static class Faults {
+
+        private final double latencyMillis;
+
+        private final double latencySigma;
+
+        private final double timeoutRate;
+
+        private final double errorRate;
+
+        private final double malformedRate;
+
+        private final double truncatedRate;
+
+        private Faults(double latencyMillis, double latencySigma, double timeoutRate, double errorRate,
+                       double malformedRate, double truncatedRate) {
+            this.latencyMillis = latencyMillis;
+            this.latencySigma = latencySigma;
+            this.timeoutRate = timeoutRate;
+            this.errorRate = errorRate;
+            this.malformedRate = malformedRate;
+            this.truncatedRate = truncatedRate;
+        }
+    }
+}
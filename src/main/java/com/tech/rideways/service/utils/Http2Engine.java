@@ -0,0 +1,196 @@
+package com.tech.rideways.service.utils;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.client.UnknownHttpStatusCodeException;
+
+import javax.annotation.PostConstruct;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Calls the suppliers with the JDK's HttpClient over HTTP/2, so the calls of all the searches in flight are multiplexed
+ * over one connection per supplier host instead of queuing for the few pooled HTTP/1.1 connections of the
+ * RestTemplate. Suppliers that only speak HTTP/1.1 are still called, over HTTP/1.1.
+ *
+ * Selected with supplier.engine=http2. Responses and errors are returned and thrown as the RestTemplate would, so
+ * Client retries them the same way.
+ */
+@Component
+@ConditionalOnProperty(name = "supplier.engine", havingValue = "http2")
+public class Http2Engine {
+
+    @Value("${supplier.timeout_ms:2000}")
+    private long timeoutMillis = 2000;
+
+    @Value("${supplier.compression.enabled:true}")
+    private boolean compressionEnabled = true;
+
+    // Supplier calls in flight at once, all of them sharing the multiplexed connections.
+    @Value("${supplier.http2.max_streams:100}")
+    private int maxStreams = 100;
+
+    private HttpClient httpClient;
+
+    private final Map<HttpClient.Version, LongAdder> responsesByVersion = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    public void init() {
+        httpClient = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_2)
+                .connectTimeout(Duration.ofMillis(timeoutMillis))
+                .build();
+    }
+
+    /**
+     * Makes a GET request and waits for its response.
+     *
+     * @param url
+     * @param headers
+     * @return response, with its body decompressed
+     * @throws HttpClientErrorException on a 4xx status
+     * @throws HttpServerErrorException on a 5xx status
+     * @throws ResourceAccessException on an I/O error or timeout
+     */
+    public ResponseEntity<String> exchange(String url, HttpHeaders headers) {
+        CompletableFuture<ResponseEntity<String>> response = exchangeAsync(url, headers);
+        try {
+            return response.get();
+        } catch (InterruptedException e) {
+            response.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new ResourceAccessException("Interrupted while waiting for " + url);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            IOException ioException = e.getCause() instanceof IOException
+                    ? (IOException) e.getCause()
+                    : new IOException(e.getCause());
+            throw new ResourceAccessException("I/O error on GET request for \"" + url + "\": "
+                    + ioException.getMessage(), ioException);
+        }
+    }
+
+    /**
+     * Sends a GET request without waiting for its response.
+     *
+     * @param url
+     * @param headers
+     * @return response, completed exceptionally as exchange() would throw
+     */
+    public CompletableFuture<ResponseEntity<String>> exchangeAsync(String url, HttpHeaders headers) {
+        HttpRequest.Builder request = HttpRequest.newBuilder(URI.create(url))
+                .timeout(Duration.ofMillis(timeoutMillis))
+                .GET();
+        headers.forEach((name, values) -> values.forEach(value -> request.header(name, value)));
+        if (compressionEnabled) {
+            request.header(HttpHeaders.ACCEPT_ENCODING, "gzip, deflate");
+        }
+
+        return httpClient.sendAsync(request.build(), HttpResponse.BodyHandlers.ofByteArray())
+                .thenApply(this::toResponseEntity);
+    }
+
+    private ResponseEntity<String> toResponseEntity(HttpResponse<byte[]> response) {
+        responsesByVersion.computeIfAbsent(response.version(), version -> new LongAdder()).increment();
+
+        HttpHeaders headers = new HttpHeaders();
+        response.headers().map().forEach((name, values) -> {
+            // The body is returned decompressed.
+            if (!name.equalsIgnoreCase(HttpHeaders.CONTENT_ENCODING)
+                    && !name.equalsIgnoreCase(HttpHeaders.CONTENT_LENGTH)) {
+                headers.addAll(name, values);
+            }
+        });
+
+        String body;
+        try {
+            body = new String(decompress(response), charset(response));
+        } catch (IOException e) {
+            throw new ResourceAccessException("Could not decompress the response of " + response.uri(), e);
+        }
+
+        int status = response.statusCode();
+        HttpStatus httpStatus = HttpStatus.resolve(status);
+        if (httpStatus == null) {
+            throw new UnknownHttpStatusCodeException(status, "", headers, body.getBytes(StandardCharsets.UTF_8),
+                    StandardCharsets.UTF_8);
+        }
+        if (httpStatus.is4xxClientError()) {
+            throw new HttpClientErrorException(httpStatus);
+        }
+        if (httpStatus.is5xxServerError()) {
+            throw new HttpServerErrorException(httpStatus);
+        }
+        return ResponseEntity.status(httpStatus).headers(headers).body(body);
+    }
+
+    private static byte[] decompress(HttpResponse<byte[]> response) throws IOException {
+        String encoding = response.headers().firstValue(HttpHeaders.CONTENT_ENCODING).orElse("identity");
+        InputStream in;
+        if (encoding.equalsIgnoreCase("gzip")) {
+            in = new GZIPInputStream(new ByteArrayInputStream(response.body()));
+        } else if (encoding.equalsIgnoreCase("deflate")) {
+            in = new InflaterInputStream(new ByteArrayInputStream(response.body()));
+        } else {
+            return response.body();
+        }
+        try (InputStream decompressed = in) {
+            return decompressed.readAllBytes();
+        }
+    }
+
+    private static Charset charset(HttpResponse<byte[]> response) {
+        try {
+            Charset charset = response.headers().firstValue(HttpHeaders.CONTENT_TYPE)
+                    .map(MediaType::parseMediaType)
+                    .map(MediaType::getCharset)
+                    .orElse(null);
+            return charset != null ? charset : StandardCharsets.UTF_8;
+        } catch (RuntimeException e) {
+            return StandardCharsets.UTF_8;
+        }
+    }
+
+    /**
+     * @return the supplier calls that can be in flight at once
+     */
+    public int getMaxStreams() {
+        return maxStreams;
+    }
+
+    /**
+     * @return the responses received over each HTTP version, showing whether the suppliers negotiated HTTP/2
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("max_streams", maxStreams);
+        responsesByVersion.forEach((version, responses) -> stats.put(version.name().toLowerCase(), responses.sum()));
+        return stats;
+    }
+}
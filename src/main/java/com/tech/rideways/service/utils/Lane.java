@@ -0,0 +1,10 @@
+package com.tech.rideways.service.utils;
+
+/**
+ * Execution lane of a search. Interactive searches are served first; bulk searches (e.g. repricing jobs) only use
+ * the capacity interactive searches leave idle.
+ */
+public enum Lane {
+    INTERACTIVE,
+    BULK
+}
@@ -0,0 +1,120 @@
+package com.tech.rideways.service.utils;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Hands out a fixed number of permits (e.g. supplier connections) by lane. Interactive work may take every permit
+ * and is always served before waiting bulk work. Bulk work may not take the permits reserved for interactive work,
+ * and stops taking new permits while interactive work is waiting, so it grows into idle capacity and shrinks back
+ * as soon as interactive load rises.
+ */
+public class PriorityGate {
+
+    private final int capacity;
+
+    private final int bulkCapacity;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition interactiveTurn = lock.newCondition();
+    private final Condition bulkTurn = lock.newCondition();
+
+    private int inUse;
+    private int interactiveWaiting;
+
+    private final LongAdder waited = new LongAdder();
+    private final LongAdder timedOut = new LongAdder();
+
+    /**
+     * @param capacity permits available in total
+     * @param reservedForInteractive permits bulk work can never take
+     */
+    public PriorityGate(int capacity, int reservedForInteractive) {
+        this.capacity = Math.max(1, capacity);
+        this.bulkCapacity = Math.max(0, this.capacity - reservedForInteractive);
+    }
+
+    /**
+     * Takes a permit, waiting for one if needed.
+     *
+     * @param lane
+     * @param timeoutNanos longest time to wait
+     * @return true if a permit was taken, and must be given back with release()
+     */
+    public boolean acquire(Lane lane, long timeoutNanos) throws InterruptedException {
+        lock.lock();
+        try {
+            boolean interactive = lane != Lane.BULK;
+            if (canTake(interactive)) {
+                inUse++;
+                return true;
+            }
+
+            waited.increment();
+            long remainingNanos = timeoutNanos;
+            if (interactive) {
+                interactiveWaiting++;
+            }
+            try {
+                while (!canTake(interactive)) {
+                    if (remainingNanos <= 0) {
+                        timedOut.increment();
+                        return false;
+                    }
+                    remainingNanos = (interactive ? interactiveTurn : bulkTurn).awaitNanos(remainingNanos);
+                }
+            } finally {
+                // The last interactive waiter leaving lets bulk work take permits again.
+                if (interactive && --interactiveWaiting == 0) {
+                    bulkTurn.signal();
+                }
+            }
+            inUse++;
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void release() {
+        lock.lock();
+        try {
+            inUse--;
+            if (interactiveWaiting > 0) {
+                interactiveTurn.signal();
+            } else {
+                bulkTurn.signal();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return the permits in use and in total, and the acquisitions that had to wait or gave up waiting
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        lock.lock();
+        try {
+            stats.put("capacity", capacity);
+            stats.put("bulk_capacity", bulkCapacity);
+            stats.put("in_use", inUse);
+            stats.put("interactive_waiting", interactiveWaiting);
+        } finally {
+            lock.unlock();
+        }
+        stats.put("waited", waited.sum());
+        stats.put("timed_out", timedOut.sum());
+        return stats;
+    }
+
+    private boolean canTake(boolean interactive) {
+        return interactive
+                ? inUse < capacity
+                : inUse < bulkCapacity && interactiveWaiting == 0;
+    }
+}
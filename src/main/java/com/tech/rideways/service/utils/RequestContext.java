@@ -0,0 +1,177 @@
+package com.tech.rideways.service.utils;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * State of the search being handled by the current thread, shared by the controller, the service and the client
+ * without having to thread it through every method signature. Work a search hands to other threads carries its
+ * context along with wrap().
+ */
+public final class RequestContext {
+
+    private static final ThreadLocal<RequestContext> CURRENT = new ThreadLocal<>();
+
+    private final long startNanos;
+
+    private final long deadlineNanos;
+
+    private final Lane lane;
+
+    // Time spent in each stage of the search, summed when a stage runs several times (e.g. once per supplier).
+    private final Map<String, Long> timings = new LinkedHashMap<>();
+
+    private RequestContext(long startNanos, long deadlineNanos, Lane lane) {
+        this.startNanos = startNanos;
+        this.deadlineNanos = deadlineNanos;
+        this.lane = lane;
+    }
+
+    /**
+     * Starts an interactive search on the current thread.
+     *
+     * @param timeoutMillis time the whole search is allowed to take
+     * @return the context of the search
+     */
+    public static RequestContext open(long timeoutMillis) {
+        return open(timeoutMillis, Lane.INTERACTIVE);
+    }
+
+    /**
+     * Starts a search on the current thread.
+     *
+     * @param timeoutMillis time the whole search is allowed to take
+     * @param lane
+     * @return the context of the search
+     */
+    public static RequestContext open(long timeoutMillis, Lane lane) {
+        long now = System.nanoTime();
+        RequestContext context = new RequestContext(now, now + TimeUnit.MILLISECONDS.toNanos(timeoutMillis), lane);
+        CURRENT.set(context);
+        return context;
+    }
+
+    /**
+     * @return the context of the search handled by the current thread, or null if there is none
+     */
+    public static RequestContext current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * Ends the search handled by the current thread.
+     */
+    public static void close() {
+        CURRENT.remove();
+    }
+
+    /**
+     * Makes the current thread handle the given search, e.g. when the search is resumed on another thread.
+     *
+     * @param context (optional => may be null) the search, none when null
+     */
+    public static void attach(RequestContext context) {
+        if (context != null) {
+            CURRENT.set(context);
+        } else {
+            CURRENT.remove();
+        }
+    }
+
+    /**
+     * Binds a task to the search handled by the current thread, so it sees the same context on whichever thread it
+     * runs.
+     *
+     * @param task
+     * @return the task, running with the context of the search
+     */
+    public static <T> Supplier<T> wrap(Supplier<T> task) {
+        Function<Void, T> function = wrap(ignored -> task.get());
+        return () -> function.apply(null);
+    }
+
+    /**
+     * Binds a function to the search handled by the current thread, so it sees the same context on whichever thread
+     * it runs.
+     *
+     * @param function
+     * @return the function, running with the context of the search
+     */
+    public static <T, R> Function<T, R> wrap(Function<T, R> function) {
+        RequestContext context = CURRENT.get();
+        return argument -> {
+            RequestContext previous = CURRENT.get();
+            attach(context);
+            try {
+                return function.apply(argument);
+            } finally {
+                attach(previous);
+            }
+        };
+    }
+
+    public Lane getLane() {
+        return lane;
+    }
+
+    public long getDeadlineNanos() {
+        return deadlineNanos;
+    }
+
+    /**
+     * @return nanoseconds left before the deadline (negative once it has passed)
+     */
+    public long remainingNanos() {
+        return deadlineNanos - System.nanoTime();
+    }
+
+    /**
+     * Adds the time elapsed since the given start to a stage of the search handled by the current thread, if any.
+     *
+     * @param name of the stage, a Server-Timing metric name
+     * @param startNanos System.nanoTime() when the stage started
+     */
+    public static void recordTiming(String name, long startNanos) {
+        RequestContext context = CURRENT.get();
+        if (context != null) {
+            context.addTiming(name, System.nanoTime() - startNanos);
+        }
+    }
+
+    public synchronized void addTiming(String name, long nanos) {
+        timings.merge(name, nanos, Long::sum);
+    }
+
+    /**
+     * @return nanoseconds spent in each stage so far, in the order the stages started
+     */
+    public synchronized Map<String, Long> getTimings() {
+        return Collections.unmodifiableMap(new LinkedHashMap<>(timings));
+    }
+
+    public long getStartNanos() {
+        return startNanos;
+    }
+
+    public long elapsedNanos() {
+        return System.nanoTime() - startNanos;
+    }
+
+    /**
+     * @return the stages so far and the total time, as a Server-Timing header value (durations in milliseconds)
+     */
+    public String serverTiming() {
+        StringBuilder header = new StringBuilder();
+        getTimings().forEach((name, nanos) -> header.append(metric(name, nanos)).append(", "));
+        return header.append(metric("total", elapsedNanos())).toString();
+    }
+
+    private static String metric(String name, long nanos) {
+        return String.format(Locale.ROOT, "%s;dur=%.1f", name, nanos / 1e6);
+    }
+}
@@ -0,0 +1,70 @@
+package com.tech.rideways.service.utils;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Caps the retries sent to a supplier to a fraction of its requests, so that retries cannot multiply the load on a
+ * supplier that is already failing. Every request deposits a fraction of a token and every retry withdraws a whole
+ * one; the balance is capped so that a long quiet period does not allow a burst of retries.
+ */
+public class RetryBudget {
+
+    // Tokens are stored in thousandths so the balance can be a single AtomicLong.
+    private static final long SCALE = 1000;
+
+    private final long depositPerRequest;
+
+    private final long maxBalance;
+
+    private final AtomicLong balance;
+
+    private final LongAdder retries = new LongAdder();
+
+    private final LongAdder exhausted = new LongAdder();
+
+    /**
+     * @param retryRatio retries allowed per request (e.g. 0.2 allows one retry every five requests)
+     * @param maxRetries retries that can be made in a row when the budget is full
+     */
+    public RetryBudget(double retryRatio, int maxRetries) {
+        this.depositPerRequest = (long) (retryRatio * SCALE);
+        this.maxBalance = maxRetries * SCALE;
+        this.balance = new AtomicLong(maxBalance);
+    }
+
+    public void recordRequest() {
+        balance.accumulateAndGet(depositPerRequest, (current, deposit) -> Math.min(maxBalance, current + deposit));
+    }
+
+    /**
+     * Withdraws the token needed for a retry.
+     *
+     * @return true if the retry can be made
+     */
+    public boolean tryWithdraw() {
+        while (true) {
+            long current = balance.get();
+            if (current < SCALE) {
+                exhausted.increment();
+                return false;
+            }
+            if (balance.compareAndSet(current, current - SCALE)) {
+                retries.increment();
+                return true;
+            }
+        }
+    }
+
+    public long getRetries() {
+        return retries.sum();
+    }
+
+    public long getExhausted() {
+        return exhausted.sum();
+    }
+
+    public double getBalance() {
+        return (double) balance.get() / SCALE;
+    }
+}
@@ -0,0 +1,127 @@
+package com.tech.rideways.benchmarks;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.tech.rideways.entities.Option;
+import com.tech.rideways.entities.Ride;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.util.StreamUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Measures the CPU cost of compressing our responses and of decompressing supplier responses while parsing them,
+ * for payloads ranging from a single supplier search (6 options) to batch-sized ones.
+ *
+ * The compressed sizes are printed at the start of each trial: compression pays off once the bytes saved on the
+ * wire take longer to transfer than the extra microseconds reported here (roughly above 1-2KB on a WAN link,
+ * which is why server.compression.min-response-size defaults to 2048).
+ *
+ * Run with: ./mvnw -Pbenchmark test-compile exec:exec -Dbenchmark=Compression
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CompressionBenchmark {
+
+    @Param({"6", "60", "600"})
+    private int optionsNo;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private byte[] identity;
+    private byte[] gzipped;
+    private byte[] deflated;
+
+    @Setup
+    public void setup() throws IOException {
+        Random random = new Random(42);
+        List<Option> options = new ArrayList<>();
+        for (int i = 0; i < optionsNo; i++) {
+            options.add(new Option(Option.CAR_TYPES.get(i % Option.CAR_TYPES.size()), 100000 + random.nextInt(900000)));
+        }
+
+        Ride ride = new Ride("dave", "51.470020,-0.454295", "53.470020,-0.454295");
+        ride.setOptions(options);
+
+        identity = objectMapper.writeValueAsBytes(ride);
+        gzipped = gzip(identity);
+        deflated = deflate(identity);
+
+        System.out.println("\nPayload of " + optionsNo + " options: identity=" + identity.length
+                + "B, gzip=" + gzipped.length + "B, deflate=" + deflated.length + "B");
+    }
+
+    @Benchmark
+    public byte[] compressGzip() throws IOException {
+        return gzip(identity);
+    }
+
+    @Benchmark
+    public byte[] compressDeflate() throws IOException {
+        return deflate(identity);
+    }
+
+    @Benchmark
+    public Ride parseIdentity() throws IOException {
+        return objectMapper.readValue(new ByteArrayInputStream(identity), Ride.class);
+    }
+
+    @Benchmark
+    public Ride parseGzip() throws IOException {
+        return objectMapper.readValue(new GZIPInputStream(new ByteArrayInputStream(gzipped)), Ride.class);
+    }
+
+    // As the supplier responses are read in production: inflated into a String by the RestTemplate, then parsed.
+    @Benchmark
+    public Ride parseGzipThroughString() throws IOException {
+        String body = StreamUtils.copyToString(new GZIPInputStream(new ByteArrayInputStream(gzipped)),
+                StandardCharsets.UTF_8);
+        return objectMapper.readValue(body, Ride.class);
+    }
+
+    @Benchmark
+    public Ride parseDeflate() throws IOException {
+        return objectMapper.readValue(new InflaterInputStream(new ByteArrayInputStream(deflated)), Ride.class);
+    }
+
+    private static byte[] gzip(byte[] payload) throws IOException {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream(payload.length);
+        try (OutputStream out = new GZIPOutputStream(buffer)) {
+            out.write(payload);
+        }
+        return buffer.toByteArray();
+    }
+
+    private static byte[] deflate(byte[] payload) throws IOException {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream(payload.length);
+        try (OutputStream out = new DeflaterOutputStream(buffer)) {
+            out.write(payload);
+        }
+        return buffer.toByteArray();
+    }
+}
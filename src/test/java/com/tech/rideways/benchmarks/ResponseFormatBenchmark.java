@@ -0,0 +1,102 @@
+package com.tech.rideways.benchmarks;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.tech.rideways.controllers.cache.CborOptionCodec;
+import com.tech.rideways.entities.Option;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Compares the JSON and CBOR encodings of the /ride options: the CPU cost of encoding them on our side and of decoding
+ * them on the caller's side, for a single search (6 options, one per car type) up to batch-sized payloads.
+ *
+ * The encoded sizes, and their gzipped sizes since larger responses are compressed, are printed at the start of each
+ * trial.
+ *
+ * Run with: ./mvnw -Pbenchmark test-compile exec:exec -Dbenchmark=ResponseFormat
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ResponseFormatBenchmark {
+
+    private static final String[] SUPPLIERS = {"dave", "eric", "jeff"};
+
+    @Param({"6", "60", "600"})
+    private int optionsNo;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private List<Option> options;
+
+    private byte[] json;
+    private byte[] cbor;
+
+    @Setup
+    public void setup() throws IOException {
+        Random random = new Random(42);
+        options = new ArrayList<>();
+        for (int i = 0; i < optionsNo; i++) {
+            Option option = new Option(Option.CAR_TYPES.get(i % Option.CAR_TYPES.size()),
+                    100000 + random.nextInt(900000));
+            option.setSupplier(SUPPLIERS[random.nextInt(SUPPLIERS.length)]);
+            options.add(option);
+        }
+
+        json = objectMapper.writeValueAsBytes(options);
+        cbor = CborOptionCodec.encode(options);
+
+        System.out.println("\nPayload of " + optionsNo + " options: json=" + json.length + "B (gzip "
+                + gzip(json).length + "B), cbor=" + cbor.length + "B (gzip " + gzip(cbor).length + "B)");
+    }
+
+    @Benchmark
+    public byte[] encodeJson() throws IOException {
+        return objectMapper.writeValueAsBytes(options);
+    }
+
+    @Benchmark
+    public byte[] encodeCbor() {
+        return CborOptionCodec.encode(options);
+    }
+
+    @Benchmark
+    public List<Option> decodeJson() throws IOException {
+        return objectMapper.readValue(json, new TypeReference<List<Option>>() { });
+    }
+
+    @Benchmark
+    public List<Option> decodeCbor() throws IOException {
+        return CborOptionCodec.decode(cbor);
+    }
+
+    private static byte[] gzip(byte[] payload) throws IOException {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream(payload.length);
+        try (OutputStream out = new GZIPOutputStream(buffer)) {
+            out.write(payload);
+        }
+        return buffer.toByteArray();
+    }
+}
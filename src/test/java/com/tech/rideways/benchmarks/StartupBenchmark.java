@@ -0,0 +1,191 @@
+package com.tech.rideways.benchmarks;
+
+import com.tech.rideways.Application;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.HttpURLConnection;
+import java.net.ServerSocket;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures start-up time from launching the JVM to:
+ * - the first line printed by the command line entry point, for the lightweight CLI wiring and the full Spring
+ *   Boot context;
+ * - the first /ride response of the server entry point;
+ * and, when target/cds exists (./mvnw -Pcds -DskipTests package), both entry points with and without the
+ * class-data-sharing archive.
+ *
+ * Start-up cannot be measured inside a warmed-up JVM, so unlike the JMH benchmarks each sample is a fresh process.
+ * Nothing listens on the supplier host used, so supplier calls fail straight away and are not part of the time.
+ *
+ * Run with: ./mvnw -Pbenchmark test-compile exec:exec -Dbenchmark.main=com.tech.rideways.benchmarks.StartupBenchmark
+ */
+public class StartupBenchmark {
+
+    private static final int WARMUP_RUNS = 2;
+    private static final int MEASURED_RUNS = 10;
+
+    private static final File CDS_JAR = new File("target/cds/rideways-0.0.1-SNAPSHOT-cds.jar");
+    private static final File CDS_ARCHIVE = new File("target/cds/app.jsa");
+
+    private static final String TAXI_API = "-Dtaxi_api=http://localhost:1/";
+    private static final String[] CLI_ARGS = {"-s", "dave", "51.470020,-0.454295", "53.470020,-0.454295"};
+    private static final String SEARCH = "/ride?pickup=51.470020,-0.454295&dropoff=53.470020,-0.454295";
+
+    private static final File SERVER_LOG = new File("target/startup-benchmark-server.log");
+    private static final long SERVER_START_TIMEOUT_MILLIS = TimeUnit.MINUTES.toMillis(2);
+
+    public static void main(String[] args) throws Exception {
+        List<String> classPath = Arrays.asList("-cp", runtimeClassPath(), Application.class.getName());
+
+        List<Scenario> scenarios = new ArrayList<>();
+        scenarios.add(new Scenario("cli (lightweight wiring)", false, classPath));
+        scenarios.add(new Scenario("cli (full Spring context)", false,
+                join(Collections.singletonList("-Dcli.spring_context=true"), classPath)));
+        scenarios.add(new Scenario("server", true, classPath));
+
+        if (CDS_JAR.exists() && CDS_ARCHIVE.exists()) {
+            List<String> cdsJar = Arrays.asList("-jar", CDS_JAR.getPath());
+            List<String> cdsArchive = Collections.singletonList("-XX:SharedArchiveFile=" + CDS_ARCHIVE.getPath());
+
+            scenarios.add(new Scenario("cli, thin jar", false, cdsJar));
+            scenarios.add(new Scenario("cli, thin jar + CDS archive", false, join(cdsArchive, cdsJar)));
+            scenarios.add(new Scenario("server, thin jar", true, cdsJar));
+            scenarios.add(new Scenario("server, thin jar + CDS archive", true, join(cdsArchive, cdsJar)));
+        } else {
+            System.out.println("No CDS archive found, run ./mvnw -Pcds -DskipTests package to include it.");
+        }
+
+        for (Scenario scenario : scenarios) {
+            for (int i = 0; i < WARMUP_RUNS; i++) {
+                measure(scenario);
+            }
+
+            long[] samples = new long[MEASURED_RUNS];
+            for (int i = 0; i < MEASURED_RUNS; i++) {
+                samples[i] = measure(scenario);
+            }
+            Arrays.sort(samples);
+
+            System.out.printf("%-32s min %5d ms   median %5d ms   max %5d ms%n", scenario.name,
+                    samples[0], samples[MEASURED_RUNS / 2], samples[MEASURED_RUNS - 1]);
+        }
+    }
+
+    private static long measure(Scenario scenario) throws IOException, InterruptedException {
+        return scenario.server ? timeToFirstResponse(scenario) : timeToFirstLine(scenario);
+    }
+
+    /**
+     * Launches a command line query in a new JVM and waits for its first line of output.
+     *
+     * @param scenario
+     * @return milliseconds between launching the process and reading its first line
+     */
+    private static long timeToFirstLine(Scenario scenario) throws IOException, InterruptedException {
+        List<String> command = command(Collections.singletonList(TAXI_API), scenario.launch);
+        command.addAll(Arrays.asList(CLI_ARGS));
+
+        long start = System.nanoTime();
+        Process process = new ProcessBuilder(command).redirectErrorStream(true).start();
+
+        try (BufferedReader output =
+                     new BufferedReader(new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8))) {
+            output.readLine();
+            long elapsed = System.nanoTime() - start;
+            process.waitFor();
+            return TimeUnit.NANOSECONDS.toMillis(elapsed);
+        }
+    }
+
+    /**
+     * Launches the server in a new JVM and polls /ride until it answers.
+     *
+     * @param scenario
+     * @return milliseconds between launching the process and receiving the first /ride response
+     */
+    private static long timeToFirstResponse(Scenario scenario) throws IOException, InterruptedException {
+        int port = freePort();
+        List<String> command = command(Arrays.asList(TAXI_API, "-Dserver.port=" + port), scenario.launch);
+        URL url = new URL("http://localhost:" + port + SEARCH);
+
+        long start = System.nanoTime();
+        Process process = new ProcessBuilder(command).redirectErrorStream(true)
+                .redirectOutput(SERVER_LOG).start();
+
+        try {
+            while (System.nanoTime() - start < TimeUnit.MILLISECONDS.toNanos(SERVER_START_TIMEOUT_MILLIS)) {
+                try {
+                    HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+                    connection.getResponseCode();
+                    return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+                } catch (IOException notListeningYet) {
+                    Thread.sleep(10);
+                }
+            }
+            throw new IllegalStateException("The server did not start within " + SERVER_START_TIMEOUT_MILLIS + "ms");
+        } finally {
+            process.destroy();
+            process.waitFor();
+        }
+    }
+
+    private static List<String> command(List<String> properties, List<String> launch) {
+        List<String> command = new ArrayList<>();
+        command.add(System.getProperty("java.home") + File.separator + "bin" + File.separator + "java");
+        command.addAll(properties);
+        command.addAll(launch);
+        return command;
+    }
+
+    private static List<String> join(List<String> first, List<String> second) {
+        List<String> joined = new ArrayList<>(first);
+        joined.addAll(second);
+        return joined;
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+
+    /**
+     * @return the class path of this JVM without the test classes and resources, whose application.properties
+     * would otherwise replace the one the application ships with
+     */
+    private static String runtimeClassPath() {
+        List<String> entries = new ArrayList<>();
+        for (String entry : System.getProperty("java.class.path").split(File.pathSeparator)) {
+            if (!entry.endsWith("test-classes")) {
+                entries.add(entry);
+            }
+        }
+        return String.join(File.pathSeparator, entries);
+    }
+
+    private static class Scenario {
+
+        private final String name;
+
+        private final boolean server;
+
+        // JVM options followed by either -cp {class path} {main class} or -jar {jar}.
+        private final List<String> launch;
+
+        private Scenario(String name, boolean server, List<String> launch) {
+            this.name = name;
+            this.server = server;
+            this.launch = launch;
+        }
+    }
+}
@@ -0,0 +1,155 @@
+package com.tech.rideways.benchmarks;
+
+import ch.qos.logback.classic.Logger;
+import com.tech.rideways.config.AppConfig;
+import com.tech.rideways.service.utils.Client;
+import com.tech.rideways.service.utils.Http2Engine;
+import org.eclipse.jetty.http2.server.HTTP2CServerConnectionFactory;
+import org.eclipse.jetty.server.HttpConfiguration;
+import org.eclipse.jetty.server.HttpConnectionFactory;
+import org.eclipse.jetty.server.Request;
+import org.eclipse.jetty.server.Server;
+import org.eclipse.jetty.server.ServerConnector;
+import org.eclipse.jetty.server.handler.AbstractHandler;
+import org.eclipse.jetty.util.thread.QueuedThreadPool;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the supplier engines against a local stub serving both HTTP/1.1 and cleartext HTTP/2 (h2c), each supplier
+ * call taking 20ms on the stub: concurrent searches call the three suppliers at once, through the RestTemplate and its
+ * pool of HTTP/1.1 connections or through the JDK HttpClient multiplexing them over HTTP/2.
+ *
+ * Run with: ./mvnw -Pbenchmark test-compile exec:exec -Dbenchmark=SupplierEngine
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SupplierEngineBenchmark {
+
+    private static final String[] SUPPLIERS = {"dave", "eric", "jeff"};
+
+    private static final long SUPPLIER_LATENCY_MILLIS = 20;
+
+    private static final byte[] SUPPLIER_RESPONSE = ("{\"supplier_id\":\"DAVE\",\"pickup\":\"51.470020,-0.454295\","
+            + "\"dropoff\":\"53.470020,-0.454295\",\"options\":[{\"car_type\":\"STANDARD\",\"price\":392299},"
+            + "{\"car_type\":\"EXECUTIVE\",\"price\":270000},{\"car_type\":\"MINIBUS\",\"price\":110000}]}")
+            .getBytes(StandardCharsets.UTF_8);
+
+    @Param({"rest_template", "http2"})
+    private String engine;
+
+    @Param({"1", "20", "100"})
+    private int concurrentSearches;
+
+    private Server server;
+
+    private String taxiApiUrl;
+
+    private Client client;
+
+    private ExecutorService searchExecutor;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        // Without Spring Boot's logging system, logback would print every Jetty and HttpClient debug line.
+        Logger rootLogger = (Logger) LoggerFactory.getLogger(org.slf4j.Logger.ROOT_LOGGER_NAME);
+        rootLogger.setLevel(ch.qos.logback.classic.Level.OFF);
+
+        server = new Server(new QueuedThreadPool(1000));
+        HttpConfiguration httpConfiguration = new HttpConfiguration();
+        ServerConnector connector = new ServerConnector(server,
+                new HttpConnectionFactory(httpConfiguration), new HTTP2CServerConnectionFactory(httpConfiguration));
+        connector.setPort(0);
+        server.addConnector(connector);
+        server.setHandler(new AbstractHandler() {
+            @Override
+            public void handle(String target, Request baseRequest, HttpServletRequest request,
+                               HttpServletResponse response) throws IOException {
+                try {
+                    Thread.sleep(SUPPLIER_LATENCY_MILLIS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                response.setContentType("application/json");
+                response.getOutputStream().write(SUPPLIER_RESPONSE);
+                baseRequest.setHandled(true);
+            }
+        });
+        server.start();
+        taxiApiUrl = "http://localhost:" + connector.getLocalPort() + "/";
+
+        AppConfig appConfig = new AppConfig();
+        client = Client.create(appConfig.restTemplate(appConfig.httpClient()));
+        if (engine.equals("http2")) {
+            Http2Engine http2Engine = new Http2Engine();
+            http2Engine.init();
+            ReflectionTestUtils.setField(client, "http2Engine", http2Engine);
+        }
+
+        searchExecutor = Executors.newFixedThreadPool(3 * 100);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        System.out.println("\n" + engine + ": " + client.getConnectionStats());
+        searchExecutor.shutdownNow();
+        server.stop();
+    }
+
+    /**
+     * Runs the searches at once, each calling the three suppliers in parallel as RideService does.
+     */
+    @Benchmark
+    public List<ResponseEntity<String>> searches() {
+        Map<String, String> params = Collections.singletonMap("pickup", "51.470020,-0.454295");
+
+        List<CompletableFuture<ResponseEntity<String>>> calls = new ArrayList<>();
+        for (int i = 0; i < concurrentSearches; i++) {
+            for (String supplier : SUPPLIERS) {
+                calls.add(CompletableFuture.supplyAsync(() -> client.get(taxiApiUrl, supplier, params),
+                        searchExecutor));
+            }
+        }
+
+        List<ResponseEntity<String>> responses = new ArrayList<>(calls.size());
+        for (CompletableFuture<ResponseEntity<String>> call : calls) {
+            ResponseEntity<String> response = call.join();
+            if (!response.getStatusCode().is2xxSuccessful()) {
+                throw new IllegalStateException(response.getStatusCode() + ": " + response.getBody());
+            }
+            responses.add(response);
+        }
+        return responses;
+    }
+}
@@ -0,0 +1,71 @@
+package com.tech.rideways.cli;
+
+import com.tech.rideways.entities.Option;
+import com.tech.rideways.service.RideService;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.Collections;
+
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
+import static org.mockito.Mockito.when;
+
+public class CLITest {
+
+    private static final String PICK_UP = "51.47,-0.45";
+    private static final String DROP_OFF = "51.0,1.0";
+
+    @Mock
+    private RideService rideService;
+
+    @InjectMocks
+    private CLI cli;
+
+    @Before
+    public void setup() {
+        MockitoAnnotations.initMocks(this);
+    }
+
+    @Test
+    public void repl_whenSeveralQueriesAreEntered_thenAnswerEachWithTheSameService() throws IOException {
+        // arrange
+        when(rideService.findOptionsByPriceDescending("dave", PICK_UP, DROP_OFF, 4))
+                .thenReturn(Collections.singletonList(new Option("STANDARD", 100)));
+        when(rideService.findOptionsByCarTypeWithCheapestSupplier(PICK_UP, DROP_OFF, null))
+                .thenReturn(Collections.emptyList());
+        String queries = "dave " + PICK_UP + " " + DROP_OFF + " 4\n"
+                + "\n"
+                + "-s dave " + PICK_UP + " " + DROP_OFF + " 4\n"
+                + PICK_UP + " " + DROP_OFF + "\n";
+
+        // act
+        cli.repl(new BufferedReader(new StringReader(queries)));
+
+        // assert
+        verify(rideService, times(2)).findOptionsByPriceDescending("dave", PICK_UP, DROP_OFF, 4);
+        verify(rideService).findOptionsByCarTypeWithCheapestSupplier(PICK_UP, DROP_OFF, null);
+    }
+
+    @Test
+    public void repl_whenQueryIsInvalid_thenKeepReadingUntilQuit() throws IOException {
+        // arrange
+        String queries = "dave " + PICK_UP + "\n"
+                + PICK_UP + " " + DROP_OFF + " four\n"
+                + "quit\n"
+                + PICK_UP + " " + DROP_OFF + "\n";
+
+        // act
+        cli.repl(new BufferedReader(new StringReader(queries)));
+
+        // assert
+        verifyNoMoreInteractions(rideService);
+    }
+}
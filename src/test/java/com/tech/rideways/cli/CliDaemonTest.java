@@ -0,0 +1,166 @@
+package com.tech.rideways.cli;
+
+import com.tech.rideways.entities.Option;
+import com.tech.rideways.service.RideService;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Properties;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+public class CliDaemonTest {
+
+    private static final String TAXI_API_URL = "https://techtest.rideways.com";
+    private static final String PICK_UP = "51.470020,-0.454295";
+    private static final String DROP_OFF = "53.470020,-0.454295";
+
+    @Mock
+    private RideService rideService;
+
+    @InjectMocks
+    private CliDaemon cliDaemon;
+
+    private Path directory;
+
+    private Properties properties;
+
+    @Before
+    public void setup() throws IOException {
+        MockitoAnnotations.initMocks(this);
+        directory = Files.createTempDirectory("cli-daemon");
+        ReflectionTestUtils.setField(cliDaemon, "file", directory.resolve("daemon").toString());
+
+        properties = new Properties();
+        properties.setProperty("cli_daemon.file", directory.resolve("daemon").toString());
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        cliDaemon.stop();
+        Files.delete(directory);
+    }
+
+    @Test
+    public void query_whenDaemonIsRunning_thenReturnTheOptionsOfTheDaemon() throws IOException {
+        // arrange
+        Option executive = new Option("EXECUTIVE", 270000);
+        executive.setSupplier("dave");
+        Option minibus = new Option("MINIBUS", 110000);
+        minibus.setSupplier("eric");
+        when(rideService.findOptionsByCarTypeWithCheapestSupplier(PICK_UP, DROP_OFF, 4))
+                .thenReturn(Arrays.asList(executive, minibus));
+        cliDaemon.start();
+
+        // act
+        List<Option> options = CliDaemon.query(new CliQuery(null, PICK_UP, DROP_OFF, 4), properties, TAXI_API_URL);
+
+        // assert
+        assertEquals(2, options.size());
+        assertEquals("EXECUTIVE", options.get(0).getCarType());
+        assertEquals("dave", options.get(0).getSupplier());
+        assertEquals(270000, options.get(0).getPrice());
+        assertEquals("MINIBUS", options.get(1).getCarType());
+    }
+
+    @Test
+    public void query_whenNoDaemonIsRunning_thenReturnNull() {
+        // act & assert
+        assertNull(CliDaemon.query(new CliQuery("dave", PICK_UP, DROP_OFF, null), properties, TAXI_API_URL));
+    }
+
+    @Test
+    public void query_whenDaemonCallsAnotherSupplierHost_thenReturnNull() throws IOException {
+        // arrange
+        cliDaemon.start();
+
+        // act & assert
+        assertNull(CliDaemon.query(new CliQuery("dave", PICK_UP, DROP_OFF, null), properties, "http://localhost:1/"));
+        verifyNoInteractions(rideService);
+    }
+
+    @Test
+    public void query_whenOthersCanReadTheDaemonFile_thenReturnNull() throws IOException {
+        // arrange
+        cliDaemon.start();
+        Files.setPosixFilePermissions(directory.resolve("daemon"), PosixFilePermissions.fromString("rw-r--r--"));
+
+        // act & assert
+        assertNull(CliDaemon.query(new CliQuery("dave", PICK_UP, DROP_OFF, null), properties, TAXI_API_URL));
+        verifyNoInteractions(rideService);
+    }
+
+    @Test
+    public void query_whenOthersCanWriteToTheDaemonDirectory_thenReturnNull() throws IOException {
+        // arrange
+        cliDaemon.start();
+        Files.setPosixFilePermissions(directory, PosixFilePermissions.fromString("rwxrwxrwx"));
+
+        // act & assert
+        assertNull(CliDaemon.query(new CliQuery("dave", PICK_UP, DROP_OFF, null), properties, TAXI_API_URL));
+        verifyNoInteractions(rideService);
+    }
+
+    @Test(expected = IOException.class)
+    public void start_whenOthersCanWriteToTheDaemonDirectory_thenFail() throws IOException {
+        // arrange
+        Files.setPosixFilePermissions(directory, PosixFilePermissions.fromString("rwxrwxr-x"));
+
+        // act
+        cliDaemon.start();
+    }
+
+    @Test
+    public void start_whenDaemonStarts_thenOnlyItsUserCanReadItsFile() throws IOException {
+        // act
+        cliDaemon.start();
+
+        // assert
+        assertEquals("rw-------",
+                PosixFilePermissions.toString(Files.getPosixFilePermissions(directory.resolve("daemon"))));
+        assertTrue(CliDaemon.isPrivateFile(directory.resolve("daemon")));
+    }
+
+    @Test
+    public void answer_whenTokenIsWrong_thenRefuseTheQuery() throws IOException {
+        // arrange
+        cliDaemon.start();
+
+        // act
+        String response = cliDaemon.answer("0123\tdave\t" + PICK_UP + "\t" + DROP_OFF + "\t");
+
+        // assert
+        assertTrue(response.startsWith("ERR"));
+        verifyNoInteractions(rideService);
+    }
+
+    @Test
+    public void stop_whenDaemonStops_thenDeleteItsFile() throws IOException {
+        // arrange
+        cliDaemon.start();
+        boolean written = Files.exists(directory.resolve("daemon"));
+
+        // act
+        cliDaemon.stop();
+
+        // assert
+        assertTrue(written);
+        assertFalse(Files.exists(directory.resolve("daemon")));
+    }
+}
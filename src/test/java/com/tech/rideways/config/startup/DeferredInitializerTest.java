@@ -0,0 +1,54 @@
+package com.tech.rideways.config.startup;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import springfox.documentation.spring.web.plugins.DocumentationPluginsBootstrapper;
+
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class DeferredInitializerTest {
+
+    @Mock
+    private DocumentationPluginsBootstrapper documentationBootstrapper;
+
+    @Mock
+    private StartupTimeline startupTimeline;
+
+    @InjectMocks
+    private DeferredInitializer deferredInitializer;
+
+    @Before
+    public void setup() {
+        MockitoAnnotations.initMocks(this);
+    }
+
+    @Test
+    public void onReady_whenDocumentationWasNotScanned_thenScanItInTheBackground() {
+        // act
+        deferredInitializer.onRefreshed();
+        deferredInitializer.onReady();
+
+        // assert
+        verify(documentationBootstrapper, timeout(1000)).start();
+        verify(startupTimeline, timeout(1000)).mark("deferred_init");
+    }
+
+    @Test
+    public void onReady_whenDocumentationWasAlreadyScanned_thenDoNotScanItAgain() {
+        // arrange
+        when(documentationBootstrapper.isRunning()).thenReturn(true);
+
+        // act
+        deferredInitializer.onReady();
+
+        // assert
+        verify(startupTimeline, timeout(1000)).mark("deferred_init");
+        verify(documentationBootstrapper, never()).start();
+    }
+}
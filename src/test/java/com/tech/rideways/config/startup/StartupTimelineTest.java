@@ -0,0 +1,77 @@
+package com.tech.rideways.config.startup;
+
+import org.junit.Test;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.context.event.ApplicationContextInitializedEvent;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.support.GenericApplicationContext;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class StartupTimelineTest {
+
+    private final StartupTimeline startupTimeline = new StartupTimeline();
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void getStats_whenABeanDependsOnAnother_thenItsSelfTimeExcludesTheDependency() {
+        // arrange
+        GenericApplicationContext context = new GenericApplicationContext();
+        startupTimeline.onApplicationEvent(
+                new ApplicationContextInitializedEvent(new SpringApplication(), new String[0], context));
+        context.registerBean("dependent", StringBuilder.class,
+                () -> new StringBuilder(sleep(50, context.getBean("slowDependency", String.class))));
+        context.registerBean("slowDependency", String.class, () -> sleep(200, "dependency"));
+
+        // act
+        context.refresh();
+        Map<String, Object> stats = startupTimeline.getStats();
+        context.close();
+
+        // assert
+        List<Map<String, Object>> slowest = (List<Map<String, Object>>) stats.get("slowest_beans");
+        assertEquals("slowDependency", slowest.get(0).get("bean"));
+        Map<String, Object> dependent = slowest.stream()
+                .filter(bean -> "dependent".equals(bean.get("bean"))).findFirst().orElseThrow(AssertionError::new);
+        assertTrue((Long) dependent.get("total_ms") >= 250);
+        assertTrue((Long) dependent.get("self_ms") < 200);
+        assertTrue(((Map<String, Long>) stats.get("milestones_ms")).containsKey("singletons_created"));
+    }
+
+    @Test
+    public void getStats_whenABeanIsCreatedOnceReady_thenItIsNotTimed() {
+        // arrange
+        GenericApplicationContext context = new GenericApplicationContext();
+        SpringApplication application = new SpringApplication();
+        ReflectionTestUtils.setField(startupTimeline, "report", false);
+        startupTimeline.onApplicationEvent(new ApplicationContextInitializedEvent(application, new String[0], context));
+        context.registerBean("eager", String.class, () -> "eager");
+        context.refresh();
+        startupTimeline.onApplicationEvent(new ApplicationReadyEvent(application, new String[0], context));
+        context.registerBean("late", StringBuilder.class, () -> new StringBuilder(),
+                definition -> definition.setScope("prototype"));
+        Object beansCreated = startupTimeline.getStats().get("beans_created");
+
+        // act
+        context.getBean("late");
+        Map<String, Object> stats = startupTimeline.getStats();
+        context.close();
+
+        // assert
+        assertEquals(beansCreated, stats.get("beans_created"));
+    }
+
+    private static String sleep(long millis, String value) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return value;
+    }
+}
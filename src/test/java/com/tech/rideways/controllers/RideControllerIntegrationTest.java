@@ -288,6 +288,20 @@ public class RideControllerIntegrationTest {
         assertEquals(HttpStatus.BAD_REQUEST, response.getStatusCode());
     }
 
+    @Test
+    public void getRideIndex_whenPassengersIsNotANumber_thenBadRequestIsReturned() {
+
+        // arrange
+        HttpEntity<String> httpEntity = new HttpEntity<>(null, headers);
+        String url = localUrl + "?pickup=" + PICK_UP + "&dropoff=" + DROP_OFF + "&passengers=four";
+
+        // act
+        ResponseEntity<String> response = template.exchange(url, HttpMethod.GET, httpEntity, String.class);
+
+        // assert
+        assertEquals(HttpStatus.BAD_REQUEST, response.getStatusCode());
+    }
+
     @Test
     public void getRideIndex_whenInvalidParameter_thenMediaTypeIsJSON() {
 
@@ -1,31 +1,61 @@
 package com.tech.rideways.controllers;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.tech.rideways.controllers.cache.CborOptionCodec;
+import com.tech.rideways.controllers.cache.EncodedResponseCache;
+import com.tech.rideways.controllers.cache.RouteVersionStore;
+import com.tech.rideways.controllers.exception.handlers.OverloadExceptionHandler;
 import com.tech.rideways.entities.Option;
+import com.tech.rideways.service.RideFilter;
 import com.tech.rideways.service.RideService;
+import com.tech.rideways.service.capability.SupplierCapabilityIndex;
+import com.tech.rideways.service.utils.Client;
+import com.tech.rideways.service.utils.RequestContext;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.mockito.Spy;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.test.annotation.DirtiesContext;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.util.ReflectionTestUtils;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.RequestBuilder;
+import org.springframework.test.web.servlet.ResultActions;
 import org.springframework.test.web.servlet.setup.MockMvcBuilders;
 
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
 
+import static org.hamcrest.CoreMatchers.containsString;
 import static org.hamcrest.CoreMatchers.equalTo;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.handler;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 
 @RunWith(SpringRunner.class)
@@ -39,6 +69,12 @@ public class RideControllerTest {
     @Mock
     private RideService rideService;
 
+    @Spy
+    private EncodedResponseCache responseCache;
+
+    @Spy
+    private RouteVersionStore routeVersions;
+
     @InjectMocks
     private RideController rideController;
 
@@ -50,24 +86,33 @@ public class RideControllerTest {
     @Before
     public void setup() {
         MockitoAnnotations.initMocks(this);
-        mvc = MockMvcBuilders.standaloneSetup(rideController).build();
+        mvc = MockMvcBuilders.standaloneSetup(rideController)
+                .setControllerAdvice(new OverloadExceptionHandler()).build();
+    }
+
+    /**
+     * Performs a search, then the asynchronous dispatch writing its response.
+     */
+    private ResultActions perform(RequestBuilder requestBuilder) throws Exception {
+        MvcResult result = mvc.perform(requestBuilder).andExpect(request().asyncStarted()).andReturn();
+        return mvc.perform(asyncDispatch(result));
     }
 
     @Test
     public void getRideIndexWhenEmptyOptionList() throws Exception {
 
         // arrange
-        when(rideService.findOptionsByCarTypeWithCheapestSupplier(pickup, dropoff, null))
-                .thenReturn(Collections.<Option> emptyList());
+        when(rideService.findOptionsByCarTypeWithCheapestSupplierAsync(pickup, dropoff, null, RideFilter.NONE))
+                .thenReturn(CompletableFuture.completedFuture(Collections.<Option> emptyList()));
 
         // act
-        mvc.perform(get("/ride" + "?pickup=" + pickup + "&dropoff=" + dropoff)
+        perform(get("/ride" + "?pickup=" + pickup + "&dropoff=" + dropoff)
                 .accept(MediaType.APPLICATION_JSON)).andExpect(status().isOk())
                 .andExpect(handler().methodName("getRideOptions")).andExpect(jsonPath("$.length()", equalTo(0)))
                 .andExpect(content().json("[]"));
 
         // verify
-        verify(rideService).findOptionsByCarTypeWithCheapestSupplier(pickup, dropoff, null);
+        verify(rideService).findOptionsByCarTypeWithCheapestSupplierAsync(pickup, dropoff, null, RideFilter.NONE);
     }
 
     @Test
@@ -78,11 +123,11 @@ public class RideControllerTest {
         option1.setSupplier(DAVE_PATH);
         Option option2 = new Option("MINIBUS", 110000);
         option2.setSupplier(ERIC_PATH);
-        when(rideService.findOptionsByCarTypeWithCheapestSupplier(pickup, dropoff, null))
-                .thenReturn(Arrays.asList(option1, option2));
+        when(rideService.findOptionsByCarTypeWithCheapestSupplierAsync(pickup, dropoff, null, RideFilter.NONE))
+                .thenReturn(CompletableFuture.completedFuture(Arrays.asList(option1, option2)));
 
         // act
-        mvc.perform(get("/ride" + "?pickup=" + pickup + "&dropoff=" + dropoff)
+        perform(get("/ride" + "?pickup=" + pickup + "&dropoff=" + dropoff)
                 .accept(MediaType.APPLICATION_JSON)).andExpect(status().isOk())
                 .andExpect(handler().methodName("getRideOptions")).andExpect(jsonPath("$.length()", equalTo(2)))
                 .andExpect(content().json("[{'supplier': 'dave', 'price': 270000, 'car_type': 'EXECUTIVE'}, "
@@ -90,24 +135,24 @@ public class RideControllerTest {
         ;
 
         // verify
-        verify(rideService).findOptionsByCarTypeWithCheapestSupplier(pickup, dropoff, null);
+        verify(rideService).findOptionsByCarTypeWithCheapestSupplierAsync(pickup, dropoff, null, RideFilter.NONE);
     }
 
     @Test
     public void getRideSupplierIndexWhenEmptyOptionList() throws Exception {
 
         // arrange
-        when(rideService.findOptionsByPriceDescending(DAVE_PATH, pickup, dropoff, null))
-                .thenReturn(Collections.<Option> emptyList());
+        when(rideService.findOptionsByPriceDescendingAsync(DAVE_PATH, pickup, dropoff, null, RideFilter.NONE))
+                .thenReturn(CompletableFuture.completedFuture(Collections.<Option> emptyList()));
 
         // act
-        mvc.perform(get("/ride/" + DAVE_PATH + "?pickup=" + pickup + "&dropoff=" + dropoff)
+        perform(get("/ride/" + DAVE_PATH + "?pickup=" + pickup + "&dropoff=" + dropoff)
                 .accept(MediaType.APPLICATION_JSON)).andExpect(status().isOk())
                 .andExpect(handler().methodName("getRideOptions")).andExpect(jsonPath("$.length()", equalTo(0)))
                 .andExpect(content().json("[]"));
 
         // verify
-        verify(rideService).findOptionsByPriceDescending(DAVE_PATH, pickup, dropoff, null);
+        verify(rideService).findOptionsByPriceDescendingAsync(DAVE_PATH, pickup, dropoff, null, RideFilter.NONE);
     }
 
     @Test
@@ -119,18 +164,230 @@ public class RideControllerTest {
         Option option2 = new Option("PEOPLE_CARRIER", 833970);
         option2.setSupplier(DAVE_PATH);
 
-        when(rideService.findOptionsByPriceDescending(DAVE_PATH, pickup, dropoff, null))
-                .thenReturn(Arrays.asList(option1, option2));
+        when(rideService.findOptionsByPriceDescendingAsync(DAVE_PATH, pickup, dropoff, null, RideFilter.NONE))
+                .thenReturn(CompletableFuture.completedFuture(Arrays.asList(option1, option2)));
 
         // act
-        mvc.perform(get("/ride/" + DAVE_PATH + "?pickup=" + pickup + "&dropoff=" + dropoff)
+        perform(get("/ride/" + DAVE_PATH + "?pickup=" + pickup + "&dropoff=" + dropoff)
                 .accept(MediaType.APPLICATION_JSON)).andExpect(status().isOk())
                 .andExpect(handler().methodName("getRideOptions")).andExpect(jsonPath("$.length()", equalTo(2)))
                 .andExpect(content().json("[{'price': 974678, 'car_type': 'LUXURY'}, "
                         + " {'price': 833970, 'car_type': 'PEOPLE_CARRIER'}]"));
 
         // verify
-        verify(rideService).findOptionsByPriceDescending(DAVE_PATH, pickup, dropoff, null);
+        verify(rideService).findOptionsByPriceDescendingAsync(DAVE_PATH, pickup, dropoff, null, RideFilter.NONE);
+    }
+
+    @Test
+    public void getRideIndexWhenRepeatedSearch_thenCachedResponseIsReturned() throws Exception {
+
+        // arrange
+        Option option = new Option("EXECUTIVE", 270000);
+        option.setSupplier(DAVE_PATH);
+        when(rideService.findOptionsByCarTypeWithCheapestSupplierAsync(pickup, dropoff, null, RideFilter.NONE))
+                .thenReturn(CompletableFuture.completedFuture(Collections.singletonList(option)));
+
+        // act
+        String eTag = perform(get("/ride" + "?pickup=" + pickup + "&dropoff=" + dropoff)
+                .accept(MediaType.APPLICATION_JSON)).andExpect(status().isOk())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        perform(get("/ride" + "?pickup=" + pickup + "&dropoff=" + dropoff)
+                .accept(MediaType.APPLICATION_JSON)).andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, eTag))
+                .andExpect(content().json("[{'supplier': 'dave', 'price': 270000, 'car_type': 'EXECUTIVE'}]"));
+
+        // verify
+        verify(rideService, times(1))
+                .findOptionsByCarTypeWithCheapestSupplierAsync(pickup, dropoff, null, RideFilter.NONE);
+    }
+
+    @Test
+    public void getRideIndexWhenETagMatches_then304IsReturned() throws Exception {
+
+        // arrange
+        when(rideService.findOptionsByCarTypeWithCheapestSupplierAsync(pickup, dropoff, null, RideFilter.NONE))
+                .thenReturn(CompletableFuture.completedFuture(Collections.<Option> emptyList()));
+
+        String eTag = perform(get("/ride" + "?pickup=" + pickup + "&dropoff=" + dropoff)
+                .accept(MediaType.APPLICATION_JSON)).andExpect(status().isOk())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        // act
+        perform(get("/ride" + "?pickup=" + pickup + "&dropoff=" + dropoff)
+                .header(HttpHeaders.IF_NONE_MATCH, eTag)
+                .accept(MediaType.APPLICATION_JSON)).andExpect(status().isNotModified())
+                .andExpect(header().string(HttpHeaders.ETAG, eTag))
+                .andExpect(content().string(""));
+    }
+
+    @Test
+    public void getRideIndexWhenETagIsSentWithoutWeakPrefix_then304IsReturned() throws Exception {
+
+        // arrange
+        when(rideService.findOptionsByCarTypeWithCheapestSupplierAsync(pickup, dropoff, null, RideFilter.NONE))
+                .thenReturn(CompletableFuture.completedFuture(Collections.<Option> emptyList()));
+
+        String eTag = perform(get("/ride" + "?pickup=" + pickup + "&dropoff=" + dropoff)
+                .accept(MediaType.APPLICATION_JSON)).andExpect(status().isOk())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        // act
+        perform(get("/ride" + "?pickup=" + pickup + "&dropoff=" + dropoff)
+                .header(HttpHeaders.IF_NONE_MATCH, eTag.substring(2))
+                .accept(MediaType.APPLICATION_JSON)).andExpect(status().isNotModified());
+
+        // assert
+        assertTrue(eTag.startsWith("W/\""));
+    }
+
+    @Test
+    public void getRideSupplierIndexWhenETagDoesNotMatch_then200IsReturned() throws Exception {
+
+        // arrange
+        when(rideService.findOptionsByPriceDescendingAsync(DAVE_PATH, pickup, dropoff, null, RideFilter.NONE))
+                .thenReturn(CompletableFuture.completedFuture(Collections.<Option> emptyList()));
+
+        // act
+        perform(get("/ride/" + DAVE_PATH + "?pickup=" + pickup + "&dropoff=" + dropoff)
+                .header(HttpHeaders.IF_NONE_MATCH, "\"stale\"")
+                .accept(MediaType.APPLICATION_JSON)).andExpect(status().isOk())
+                .andExpect(content().json("[]"));
+    }
+
+    @Test
+    public void getRideChangesWhenVersionIsCurrent_thenNoChangeIsReturned() throws Exception {
+
+        // arrange
+        Option option = new Option("EXECUTIVE", 270000);
+        option.setSupplier(DAVE_PATH);
+        when(rideService.findOptionsByCarTypeWithCheapestSupplierAsync(pickup, dropoff, null, RideFilter.NONE))
+                .thenReturn(CompletableFuture.completedFuture(Collections.singletonList(option)));
+
+        String first = perform(get("/ride/changes" + "?pickup=" + pickup + "&dropoff=" + dropoff)
+                .accept(MediaType.APPLICATION_JSON)).andExpect(status().isOk())
+                .andExpect(handler().methodName("getRideOptionChanges"))
+                .andExpect(jsonPath("$.full", equalTo(true)))
+                .andExpect(jsonPath("$.options.length()", equalTo(1)))
+                .andReturn().getResponse().getContentAsString();
+        long version = new ObjectMapper().readTree(first).get("version").asLong();
+
+        // act
+        perform(get("/ride/changes" + "?pickup=" + pickup + "&dropoff=" + dropoff + "&since=" + version)
+                .accept(MediaType.APPLICATION_JSON)).andExpect(status().isOk())
+                .andExpect(content().json("{'version': " + version + ", 'changed': false}", true));
+    }
+
+    @Test
+    public void getRideIndexWhenFiltered_thenFilterIsPassedToTheService() throws Exception {
+
+        // arrange
+        RideFilter filter = new RideFilter(Arrays.asList("MINIBUS", "LUXURY"), 300000, 1);
+        Option option = new Option("MINIBUS", 110000);
+        option.setSupplier(ERIC_PATH);
+        when(rideService.findOptionsByCarTypeWithCheapestSupplierAsync(pickup, dropoff, null, filter))
+                .thenReturn(CompletableFuture.completedFuture(Collections.singletonList(option)));
+
+        // act
+        perform(get("/ride" + "?pickup=" + pickup + "&dropoff=" + dropoff
+                + "&car_types=minibus,luxury&max_price=300000&limit=1")
+                .accept(MediaType.APPLICATION_JSON)).andExpect(status().isOk())
+                .andExpect(content().json("[{'supplier': 'eric', 'price': 110000, 'car_type': 'MINIBUS'}]"));
+
+        // verify
+        verify(rideService).findOptionsByCarTypeWithCheapestSupplierAsync(pickup, dropoff, null, filter);
+    }
+
+    @Test
+    public void getRideIndexWhenCborIsAccepted_thenCborIsReturned() throws Exception {
+
+        // arrange
+        Option option = new Option("EXECUTIVE", 270000);
+        option.setSupplier(DAVE_PATH);
+        when(rideService.findOptionsByCarTypeWithCheapestSupplierAsync(pickup, dropoff, null, RideFilter.NONE))
+                .thenReturn(CompletableFuture.completedFuture(Collections.singletonList(option)));
+
+        // act
+        byte[] body = perform(get("/ride" + "?pickup=" + pickup + "&dropoff=" + dropoff)
+                .header(HttpHeaders.ACCEPT, "application/cbor, application/json;q=0.5"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(CborOptionCodec.APPLICATION_CBOR))
+                .andExpect(header().string(HttpHeaders.VARY, HttpHeaders.ACCEPT))
+                .andReturn().getResponse().getContentAsByteArray();
+
+        // assert
+        List<Option> options = CborOptionCodec.decode(body);
+        assertEquals(1, options.size());
+        assertEquals(DAVE_PATH, options.get(0).getSupplier());
+        assertEquals("EXECUTIVE", options.get(0).getCarType());
+        assertEquals(270000, options.get(0).getPrice());
     }
 
+    @Test
+    public void negotiateWhenJsonIsPreferredOrAnythingIsAccepted_thenJsonIsChosen() {
+
+        // act & assert
+        assertEquals(MediaType.APPLICATION_JSON, RideController.negotiate(null));
+        assertEquals(MediaType.APPLICATION_JSON, RideController.negotiate("*/*"));
+        assertEquals(MediaType.APPLICATION_JSON, RideController.negotiate("application/cbor;q=0.5, application/json"));
+        assertEquals(MediaType.APPLICATION_JSON, RideController.negotiate("not a media type"));
+        assertEquals(CborOptionCodec.APPLICATION_CBOR, RideController.negotiate("application/cbor, */*;q=0.1"));
+    }
+
+    @Test
+    public void getRideIndexWhenSearchHasAContext_thenServerTimingIsReturned() throws Exception {
+
+        // arrange
+        when(rideService.findOptionsByCarTypeWithCheapestSupplierAsync(pickup, dropoff, null, RideFilter.NONE))
+                .thenAnswer(invocation -> {
+                    RequestContext.current().addTiming("supplier-dave", 1_500_000);
+                    return CompletableFuture.completedFuture(Collections.<Option> emptyList());
+                });
+        RequestContext.open(3000);
+
+        // act
+        try {
+            perform(get("/ride" + "?pickup=" + pickup + "&dropoff=" + dropoff)
+                    .accept(MediaType.APPLICATION_JSON)).andExpect(status().isOk())
+                    .andExpect(header().string("Server-Timing", containsString("validation;dur=")))
+                    .andExpect(header().string("Server-Timing", containsString("supplier-dave;dur=1.5")))
+                    .andExpect(header().string("Server-Timing", containsString("serialization;dur=")))
+                    .andExpect(header().string("Server-Timing", containsString("total;dur=")));
+        } finally {
+            RequestContext.close();
+        }
+    }
+
+    @Test
+    public void getRideOptionsWhenNoFilterOrPassengers_thenCapabilityIndexIsNotConsulted() throws Exception {
+
+        // arrange
+        Client client = mock(Client.class);
+        when(client.get(anyString(), anyString(), any())).thenReturn(ResponseEntity.ok("{\"options\":[]}"));
+        SupplierCapabilityIndex capabilityIndex = mock(SupplierCapabilityIndex.class);
+        RideService service = RideService.create(client, "http://localhost");
+        ReflectionTestUtils.setField(service, "capabilityIndex", capabilityIndex);
+        ReflectionTestUtils.setField(rideController, "rideService", service);
+
+        // act
+        perform(get("/ride" + "?pickup=" + pickup + "&dropoff=" + dropoff)).andExpect(status().isOk());
+        perform(get("/ride/" + DAVE_PATH + "?pickup=" + pickup + "&dropoff=" + dropoff)).andExpect(status().isOk());
+
+        // verify
+        verify(capabilityIndex, never()).getCarTypes(anyString(), anyString());
+    }
+
+    @Test
+    public void getRideSupplierIndexWhenSupplierExecutorIsFull_then503IsReturned() throws Exception {
+
+        // arrange
+        when(rideService.findOptionsByPriceDescendingAsync(DAVE_PATH, pickup, dropoff, null, RideFilter.NONE))
+                .thenThrow(new RejectedExecutionException("queue full"));
+
+        // act
+        mvc.perform(get("/ride/" + DAVE_PATH + "?pickup=" + pickup + "&dropoff=" + dropoff))
+                .andExpect(status().isServiceUnavailable())
+                .andExpect(header().string(HttpHeaders.RETRY_AFTER, "1"))
+                .andExpect(content().json("{'Error: ': 'service overloaded'}"));
+    }
 }
@@ -0,0 +1,93 @@
+package com.tech.rideways.controllers.cache;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.tech.rideways.entities.Option;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class CborOptionCodecTest {
+
+    @Test
+    public void encode_whenEmptyList_thenWriteAnEmptyArray() {
+        // act
+        byte[] cbor = CborOptionCodec.encode(Collections.emptyList());
+
+        // assert
+        assertArrayEquals(new byte[]{(byte) 0x80}, cbor);
+    }
+
+    @Test
+    public void encode_whenOneOption_thenWriteTheSameFieldsAsJson() {
+        // arrange
+        Option option = new Option("MINIBUS", 100);
+        option.setSupplier("eric");
+
+        // act
+        byte[] cbor = CborOptionCodec.encode(Collections.singletonList(option));
+
+        // assert - [{"supplier": "eric", "car_type": "MINIBUS", "price": 100}]
+        byte[] expected = {
+                (byte) 0x81, (byte) 0xA3,
+                0x68, 's', 'u', 'p', 'p', 'l', 'i', 'e', 'r', 0x64, 'e', 'r', 'i', 'c',
+                0x68, 'c', 'a', 'r', '_', 't', 'y', 'p', 'e', 0x67, 'M', 'I', 'N', 'I', 'B', 'U', 'S',
+                0x65, 'p', 'r', 'i', 'c', 'e', 0x18, 100};
+        assertArrayEquals(expected, cbor);
+    }
+
+    @Test
+    public void decode_whenEncodedOptions_thenReturnTheSameOptions() throws IOException {
+        // arrange
+        Option dave = new Option("LUXURY_PEOPLE_CARRIER", 974678);
+        dave.setSupplier("dave");
+        Option noSupplier = new Option("STANDARD", 23);
+        Option negative = new Option("EXECUTIVE", -300);
+
+        // act
+        List<Option> options = CborOptionCodec.decode(CborOptionCodec.encode(Arrays.asList(dave, noSupplier, negative)));
+
+        // assert
+        assertEquals(3, options.size());
+        assertEquals("dave", options.get(0).getSupplier());
+        assertEquals("LUXURY_PEOPLE_CARRIER", options.get(0).getCarType());
+        assertEquals(974678, options.get(0).getPrice());
+        assertEquals(6, options.get(0).getMaxPassengers());
+        assertNull(options.get(1).getSupplier());
+        assertEquals(23, options.get(1).getPrice());
+        assertEquals(-300, options.get(2).getPrice());
+    }
+
+    @Test
+    public void encode_whenTypicalSearch_thenSmallerThanJson() throws IOException {
+        // arrange
+        Option option1 = new Option("EXECUTIVE", 270000);
+        option1.setSupplier("dave");
+        Option option2 = new Option("MINIBUS", 110000);
+        option2.setSupplier("eric");
+        List<Option> options = Arrays.asList(option1, option2);
+
+        // act
+        byte[] cbor = CborOptionCodec.encode(options);
+        byte[] json = new ObjectMapper().writeValueAsBytes(options);
+
+        // assert
+        assertTrue(cbor.length < json.length);
+    }
+
+    @Test(expected = IOException.class)
+    public void decode_whenTruncated_thenThrow() throws IOException {
+        // arrange
+        byte[] cbor = CborOptionCodec.encode(Collections.singletonList(new Option("STANDARD", 392299)));
+
+        // act
+        CborOptionCodec.decode(Arrays.copyOf(cbor, cbor.length - 2));
+    }
+}
@@ -0,0 +1,53 @@
+package com.tech.rideways.controllers.cache;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.tech.rideways.entities.Option;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+public class EncodedResponseCacheTest {
+
+    private static final List<Option> OPTIONS = Collections.singletonList(new Option("EXECUTIVE", 270000));
+
+    private EncodedResponseCache responseCache;
+
+    @Before
+    public void setup() {
+        responseCache = new EncodedResponseCache();
+    }
+
+    @Test
+    public void put_whenCacheIsFullOfLiveEntries_thenEvictTheOldest() throws JsonProcessingException {
+        // arrange
+        ReflectionTestUtils.setField(responseCache, "maxEntries", 2);
+        responseCache.put("first", OPTIONS);
+        responseCache.put("second", OPTIONS);
+        responseCache.put("first", OPTIONS);
+
+        // act
+        responseCache.put("third", OPTIONS);
+
+        // assert
+        assertNull(responseCache.get("first"));
+        assertNotNull(responseCache.get("second"));
+        assertNotNull(responseCache.get("third"));
+    }
+
+    @Test
+    public void get_whenResponseExpired_thenReturnNull() throws JsonProcessingException, InterruptedException {
+        // arrange
+        ReflectionTestUtils.setField(responseCache, "ttlMillis", 20);
+        responseCache.put("first", OPTIONS);
+        Thread.sleep(50);
+
+        // act & assert
+        assertNull(responseCache.get("first"));
+    }
+}
@@ -0,0 +1,138 @@
+package com.tech.rideways.controllers.cache;
+
+import com.tech.rideways.entities.Option;
+import com.tech.rideways.entities.RideChanges;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class RouteVersionStoreTest {
+
+    private static final String KEY = "null|51.470020,-0.454295|53.470020,-0.454295|null";
+
+    private RouteVersionStore routeVersions;
+
+    @Before
+    public void setup() {
+        routeVersions = new RouteVersionStore();
+    }
+
+    @Test
+    public void update_whenNoVersionGiven_thenReturnTheWholeResult() {
+
+        // act
+        RideChanges changes = routeVersions.update(KEY, options(option("STANDARD", "dave", 513)), null);
+
+        // assert
+        assertTrue(changes.isChanged());
+        assertTrue(changes.isFull());
+        assertEquals(1, changes.getOptions().size());
+    }
+
+    @Test
+    public void update_whenNothingChanged_thenKeepTheVersion() {
+
+        // arrange
+        long version = routeVersions.update(KEY, options(option("STANDARD", "dave", 513)), null).getVersion();
+
+        // act
+        RideChanges changes = routeVersions.update(KEY, options(option("STANDARD", "dave", 513)), version);
+
+        // assert
+        assertFalse(changes.isChanged());
+        assertEquals(version, changes.getVersion());
+        assertTrue(changes.getOptions().isEmpty());
+    }
+
+    @Test
+    public void update_whenPricesChanged_thenReturnOnlyTheChangedCarTypes() {
+
+        // arrange
+        long version = routeVersions.update(KEY,
+                options(option("STANDARD", "dave", 513), option("MINIBUS", "eric", 871), option("LUXURY", "jeff", 2000)),
+                null).getVersion();
+
+        // act - STANDARD moves to another supplier, MINIBUS changes price and LUXURY disappears
+        RideChanges changes = routeVersions.update(KEY,
+                options(option("STANDARD", "jeff", 513), option("MINIBUS", "eric", 900)), version);
+
+        // assert
+        assertTrue(changes.isChanged());
+        assertFalse(changes.isFull());
+        assertTrue(changes.getVersion() > version);
+        assertEquals(2, changes.getOptions().size());
+        assertEquals("MINIBUS", changes.getOptions().get(0).getCarType());
+        assertEquals("STANDARD", changes.getOptions().get(1).getCarType());
+        assertEquals(Collections.singletonList("LUXURY"), changes.getRemovedCarTypes());
+    }
+
+    @Test
+    public void update_whenClientIsSeveralVersionsBehind_thenDiffAgainstItsVersion() {
+
+        // arrange
+        long version = routeVersions.update(KEY, options(option("STANDARD", "dave", 513)), null).getVersion();
+        routeVersions.update(KEY, options(option("STANDARD", "dave", 600)), null);
+
+        // act - back to the price the client holds
+        RideChanges changes = routeVersions.update(KEY, options(option("STANDARD", "dave", 513)), version);
+
+        // assert
+        assertTrue(changes.isChanged());
+        assertFalse(changes.isFull());
+        assertTrue(changes.getOptions().isEmpty());
+        assertTrue(changes.getRemovedCarTypes().isEmpty());
+    }
+
+    @Test
+    public void update_whenMaxRoutesReached_thenEvictTheOldestRouteAndVersionTheNewOne() {
+        // arrange
+        ReflectionTestUtils.setField(routeVersions, "maxRoutes", 2);
+        long first = routeVersions.update("first", options(option("STANDARD", "dave", 513)), null).getVersion();
+        routeVersions.update("second", options(option("STANDARD", "dave", 513)), null);
+        long third = routeVersions.update("third", options(option("STANDARD", "dave", 513)), null).getVersion();
+
+        // act
+        RideChanges firstChanges = routeVersions.update("first", options(option("STANDARD", "dave", 513)), first);
+        RideChanges thirdChanges = routeVersions.update("third", options(option("STANDARD", "dave", 513)), third);
+
+        // assert
+        assertTrue(firstChanges.isFull());
+        assertFalse(thirdChanges.isChanged());
+        assertEquals(2, routeVersions.size());
+    }
+
+    @Test
+    public void update_whenVersionIsNoLongerKept_thenReturnTheWholeResult() {
+
+        // arrange
+        long version = routeVersions.update(KEY, options(option("STANDARD", "dave", 0)), null).getVersion();
+        for (int price = 1; price <= 16; price++) {
+            routeVersions.update(KEY, options(option("STANDARD", "dave", price)), null);
+        }
+
+        // act
+        RideChanges changes = routeVersions.update(KEY, options(option("STANDARD", "dave", 16)), version);
+
+        // assert
+        assertTrue(changes.isFull());
+        assertEquals(16, changes.getOptions().get(0).getPrice());
+    }
+
+    private static Option option(String carType, String supplier, int price) {
+        Option option = new Option(carType, price);
+        option.setSupplier(supplier);
+        return option;
+    }
+
+    private static List<Option> options(Option... options) {
+        return Arrays.asList(options);
+    }
+}
@@ -0,0 +1,85 @@
+package com.tech.rideways.controllers.context;
+
+import com.tech.rideways.service.utils.RequestContext;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class SlowRequestLogTest {
+
+    private SlowRequestLog slowRequestLog;
+
+    @Before
+    public void setup() {
+        slowRequestLog = new SlowRequestLog();
+        ReflectionTestUtils.setField(slowRequestLog, "slowThresholdMillis", 0L);
+        ReflectionTestUtils.setField(slowRequestLog, "sampleRate", 1.0);
+        ReflectionTestUtils.setField(slowRequestLog, "bufferSize", 2);
+        slowRequestLog.init();
+    }
+
+    @After
+    public void tearDown() {
+        RequestContext.close();
+    }
+
+    @Test
+    public void record_whenSearchIsSlow_thenKeepItsTimings() {
+
+        // arrange
+        RequestContext context = RequestContext.open(3000);
+        context.addTiming("supplier-dave", 2_500_000);
+
+        // act
+        slowRequestLog.record(request("/ride"), 200, context);
+        List<Map<String, Object>> recent = slowRequestLog.getRecent();
+
+        // assert
+        assertEquals(1, recent.size());
+        assertEquals("/ride?pickup=51.470020,-0.454295", recent.get(0).get("request"));
+        assertEquals(200, recent.get(0).get("status"));
+        assertEquals(2.5, ((Map<?, ?>) recent.get(0).get("timings_ms")).get("supplier-dave"));
+    }
+
+    @Test
+    public void record_whenSearchIsFast_thenSkipIt() {
+
+        // arrange
+        ReflectionTestUtils.setField(slowRequestLog, "slowThresholdMillis", 60000L);
+
+        // act
+        slowRequestLog.record(request("/ride"), 200, RequestContext.open(3000));
+
+        // assert
+        assertTrue(slowRequestLog.getRecent().isEmpty());
+    }
+
+    @Test
+    public void record_whenBufferIsFull_thenOverwriteTheOldest() {
+
+        // act
+        slowRequestLog.record(request("/ride/dave"), 200, RequestContext.open(3000));
+        slowRequestLog.record(request("/ride/eric"), 200, RequestContext.open(3000));
+        slowRequestLog.record(request("/ride/jeff"), 503, RequestContext.open(3000));
+        List<Map<String, Object>> recent = slowRequestLog.getRecent();
+
+        // assert
+        assertEquals(2, recent.size());
+        assertEquals(503, recent.get(0).get("status"));
+        assertEquals("/ride/eric?pickup=51.470020,-0.454295", recent.get(1).get("request"));
+    }
+
+    private static MockHttpServletRequest request(String uri) {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", uri);
+        request.setQueryString("pickup=51.470020,-0.454295");
+        return request;
+    }
+}
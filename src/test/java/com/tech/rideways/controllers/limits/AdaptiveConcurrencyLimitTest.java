@@ -0,0 +1,122 @@
+package com.tech.rideways.controllers.limits;
+
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class AdaptiveConcurrencyLimitTest {
+
+    private static final long DEADLINE_NANOS = TimeUnit.SECONDS.toNanos(3);
+    private static final long FAST_RTT_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+    private static final long SLOW_RTT_NANOS = TimeUnit.MILLISECONDS.toNanos(1000);
+
+    @Test
+    public void tryAcquire_whenLimitReached_thenRequestIsShed() {
+        // arrange
+        AdaptiveConcurrencyLimit concurrencyLimit = new AdaptiveConcurrencyLimit(2, 1, 10, DEADLINE_NANOS);
+
+        // act
+        boolean first = concurrencyLimit.tryAcquire();
+        boolean second = concurrencyLimit.tryAcquire();
+        boolean third = concurrencyLimit.tryAcquire();
+
+        // assert
+        assertTrue(first);
+        assertTrue(second);
+        assertFalse(third);
+        assertEquals(1, concurrencyLimit.getShed());
+        assertEquals(2, concurrencyLimit.getInFlight());
+    }
+
+    @Test
+    public void tryAcquire_whenShareOfLimitReached_thenOnlyRequestsWithTheWholeLimitAreAdmitted() {
+        // arrange
+        AdaptiveConcurrencyLimit concurrencyLimit = new AdaptiveConcurrencyLimit(4, 1, 10, DEADLINE_NANOS);
+        concurrencyLimit.tryAcquire(0.75);
+        concurrencyLimit.tryAcquire(0.75);
+        concurrencyLimit.tryAcquire(0.75);
+
+        // act
+        boolean bulk = concurrencyLimit.tryAcquire(0.75);
+        boolean interactive = concurrencyLimit.tryAcquire();
+
+        // assert
+        assertFalse(bulk);
+        assertTrue(interactive);
+        assertEquals(4, concurrencyLimit.getInFlight());
+    }
+
+    @Test
+    public void release_whenDeadlineOverrun_thenLimitDecreases() {
+        // arrange
+        AdaptiveConcurrencyLimit concurrencyLimit = new AdaptiveConcurrencyLimit(20, 1, 100, DEADLINE_NANOS);
+        concurrencyLimit.tryAcquire();
+
+        // act
+        concurrencyLimit.release(DEADLINE_NANOS);
+
+        // assert
+        assertEquals(16, concurrencyLimit.getLimit());
+        assertEquals(0, concurrencyLimit.getInFlight());
+    }
+
+    @Test
+    public void release_whenLatencyRises_thenLimitDecreases() {
+        // arrange
+        AdaptiveConcurrencyLimit concurrencyLimit = new AdaptiveConcurrencyLimit(20, 1, 100, DEADLINE_NANOS);
+        saturate(concurrencyLimit, FAST_RTT_NANOS, 50);
+        int limitBeforeSlowdown = concurrencyLimit.getLimit();
+
+        // act
+        saturate(concurrencyLimit, SLOW_RTT_NANOS, 1);
+
+        // assert
+        assertTrue(concurrencyLimit.getLimit() < limitBeforeSlowdown);
+    }
+
+    @Test
+    public void release_whenSaturatedWithStableLatency_thenLimitIncreases() {
+        // arrange
+        AdaptiveConcurrencyLimit concurrencyLimit = new AdaptiveConcurrencyLimit(10, 1, 100, DEADLINE_NANOS);
+
+        // act
+        saturate(concurrencyLimit, FAST_RTT_NANOS, 10);
+
+        // assert
+        assertTrue(concurrencyLimit.getLimit() > 10);
+    }
+
+    @Test
+    public void release_whenIdle_thenLimitDoesNotGrow() {
+        // arrange
+        AdaptiveConcurrencyLimit concurrencyLimit = new AdaptiveConcurrencyLimit(10, 1, 100, DEADLINE_NANOS);
+
+        // act
+        for (int i = 0; i < 10; i++) {
+            concurrencyLimit.tryAcquire();
+            concurrencyLimit.release(FAST_RTT_NANOS);
+        }
+
+        // assert
+        assertEquals(10, concurrencyLimit.getLimit());
+    }
+
+    /**
+     * Fills the limit with requests and then completes them all with the given latency.
+     */
+    private void saturate(AdaptiveConcurrencyLimit concurrencyLimit, long rttNanos, int rounds) {
+        for (int round = 0; round < rounds; round++) {
+            int admitted = 0;
+            while (concurrencyLimit.tryAcquire()) {
+                admitted++;
+            }
+            for (int i = 0; i < admitted; i++) {
+                concurrencyLimit.release(rttNanos);
+            }
+        }
+    }
+}
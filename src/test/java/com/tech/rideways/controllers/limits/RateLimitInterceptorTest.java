@@ -0,0 +1,148 @@
+package com.tech.rideways.controllers.limits;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+public class RateLimitInterceptorTest {
+
+    private static final String API_KEY_HEADER = "X-Api-Key";
+
+    private RateLimitInterceptor rateLimitInterceptor;
+
+    @Before
+    public void setup() {
+        rateLimitInterceptor = new RateLimitInterceptor();
+        ReflectionTestUtils.setField(rateLimitInterceptor, "requestsPerSecond", 1);
+        ReflectionTestUtils.setField(rateLimitInterceptor, "burst", 2);
+    }
+
+    @Test
+    public void preHandle_whenWithinBurst_thenRequestIsAllowed() throws IOException {
+        // arrange
+        MockHttpServletRequest request = requestWithApiKey("partner");
+
+        // act
+        boolean first = rateLimitInterceptor.preHandle(request, new MockHttpServletResponse(), null);
+        boolean second = rateLimitInterceptor.preHandle(request, new MockHttpServletResponse(), null);
+
+        // assert
+        assertTrue(first);
+        assertTrue(second);
+    }
+
+    @Test
+    public void preHandle_whenBurstExceeded_thenReturn429WithRetryAfter() throws IOException {
+        // arrange
+        MockHttpServletRequest request = requestWithApiKey("partner");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        rateLimitInterceptor.preHandle(request, new MockHttpServletResponse(), null);
+        rateLimitInterceptor.preHandle(request, new MockHttpServletResponse(), null);
+
+        // act
+        boolean allowed = rateLimitInterceptor.preHandle(request, response, null);
+
+        // assert
+        assertFalse(allowed);
+        assertEquals(HttpStatus.TOO_MANY_REQUESTS.value(), response.getStatus());
+        assertEquals("1", response.getHeader(HttpHeaders.RETRY_AFTER));
+    }
+
+    @Test
+    public void preHandle_whenDifferentClients_thenLimitedSeparately() throws IOException {
+        // arrange
+        MockHttpServletRequest partnerRequest = requestWithApiKey("partner");
+        rateLimitInterceptor.preHandle(partnerRequest, new MockHttpServletResponse(), null);
+        rateLimitInterceptor.preHandle(partnerRequest, new MockHttpServletResponse(), null);
+
+        MockHttpServletRequest anonymousRequest = new MockHttpServletRequest();
+        anonymousRequest.setRemoteAddr("10.0.0.1");
+
+        // act
+        boolean partnerAllowed = rateLimitInterceptor.preHandle(partnerRequest, new MockHttpServletResponse(), null);
+        boolean anonymousAllowed = rateLimitInterceptor.preHandle(anonymousRequest, new MockHttpServletResponse(), null);
+
+        // assert
+        assertFalse(partnerAllowed);
+        assertTrue(anonymousAllowed);
+    }
+
+    @Test
+    public void preHandle_whenMaxClientsReachedAndOldestIsIdle_thenEvictIt() throws IOException {
+        // arrange
+        ReflectionTestUtils.setField(rateLimitInterceptor, "maxClients", 1);
+        ReflectionTestUtils.setField(rateLimitInterceptor, "requestsPerSecond", 1000000);
+        rateLimitInterceptor.preHandle(requestWithApiKey("partner"), new MockHttpServletResponse(), null);
+
+        // act
+        boolean allowed = rateLimitInterceptor.preHandle(requestWithApiKey("newcomer"), new MockHttpServletResponse(),
+                null);
+
+        // assert
+        assertTrue(allowed);
+        Map<String, Object> stats = rateLimitInterceptor.getStats();
+        assertEquals(1, stats.get("tracked_clients"));
+        assertEquals(1L, stats.get("evicted_clients"));
+        assertEquals(0L, stats.get("overflow_requests"));
+    }
+
+    @Test
+    public void preHandle_whenMaxClientsReachedAndOldestIsActive_thenNewClientsShareTheOverflowBucket()
+            throws IOException {
+        // arrange
+        ReflectionTestUtils.setField(rateLimitInterceptor, "maxClients", 1);
+        rateLimitInterceptor.preHandle(requestWithApiKey("partner"), new MockHttpServletResponse(), null);
+
+        // act
+        boolean first = rateLimitInterceptor.preHandle(requestWithApiKey("first"), new MockHttpServletResponse(),
+                null);
+        boolean second = rateLimitInterceptor.preHandle(requestWithApiKey("second"), new MockHttpServletResponse(),
+                null);
+        boolean third = rateLimitInterceptor.preHandle(requestWithApiKey("third"), new MockHttpServletResponse(),
+                null);
+
+        // assert
+        assertTrue(first);
+        assertTrue(second);
+        assertFalse(third);
+        Map<String, Object> stats = rateLimitInterceptor.getStats();
+        assertEquals(1, stats.get("tracked_clients"));
+        assertEquals(0L, stats.get("evicted_clients"));
+        assertEquals(3L, stats.get("overflow_requests"));
+    }
+
+    @Test
+    public void getStats_whenRequestsRejected_thenCountersAreExposed() throws IOException {
+        // arrange
+        MockHttpServletRequest request = requestWithApiKey("partner");
+        for (int i = 0; i < 3; i++) {
+            rateLimitInterceptor.preHandle(request, new MockHttpServletResponse(), null);
+        }
+
+        // act
+        Map<String, Object> stats = rateLimitInterceptor.getStats();
+
+        // assert
+        assertEquals(2L, stats.get("allowed"));
+        assertEquals(1L, stats.get("rejected"));
+        assertNotNull(((Map) stats.get("rejected_by_client")).get("key:partner"));
+    }
+
+    private MockHttpServletRequest requestWithApiKey(String apiKey) {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.addHeader(API_KEY_HEADER, apiKey);
+        return request;
+    }
+}
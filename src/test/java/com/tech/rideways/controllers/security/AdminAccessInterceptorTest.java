@@ -0,0 +1,65 @@
+package com.tech.rideways.controllers.security;
+
+import org.junit.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class AdminAccessInterceptorTest {
+
+    private final AdminAccessInterceptor adminAccessInterceptor = new AdminAccessInterceptor();
+
+    @Test
+    public void preHandle_whenNoTokenIsSetAndCallerIsRemote_thenReturn403() throws IOException {
+        // arrange
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/admin/jfr");
+        request.setRemoteAddr("203.0.113.7");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        // act
+        boolean allowed = adminAccessInterceptor.preHandle(request, response, null);
+
+        // assert
+        assertFalse(allowed);
+        assertEquals(HttpStatus.FORBIDDEN.value(), response.getStatus());
+    }
+
+    @Test
+    public void preHandle_whenNoTokenIsSetAndCallerIsLocal_thenAllow() throws IOException {
+        // arrange
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/admin/retries");
+        request.setRemoteAddr("127.0.0.1");
+
+        // act
+        boolean allowed = adminAccessInterceptor.preHandle(request, new MockHttpServletResponse(), null);
+
+        // assert
+        assertTrue(allowed);
+    }
+
+    @Test
+    public void preHandle_whenTokenIsSet_thenOnlyAllowCallersSendingIt() throws IOException {
+        // arrange
+        ReflectionTestUtils.setField(adminAccessInterceptor, "token", "s3cret");
+        MockHttpServletRequest local = new MockHttpServletRequest("GET", "/admin/retries");
+        local.setRemoteAddr("127.0.0.1");
+        MockHttpServletRequest withToken = new MockHttpServletRequest("GET", "/admin/retries");
+        withToken.setRemoteAddr("203.0.113.7");
+        withToken.addHeader(AdminAccessInterceptor.TOKEN_HEADER, "s3cret");
+
+        // act
+        boolean localAllowed = adminAccessInterceptor.preHandle(local, new MockHttpServletResponse(), null);
+        boolean withTokenAllowed = adminAccessInterceptor.preHandle(withToken, new MockHttpServletResponse(), null);
+
+        // assert
+        assertFalse(localAllowed);
+        assertTrue(withTokenAllowed);
+    }
+}
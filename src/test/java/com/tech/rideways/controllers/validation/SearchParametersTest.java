@@ -0,0 +1,70 @@
+package com.tech.rideways.controllers.validation;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+public class SearchParametersTest {
+
+    private static final String VALIDATION_REGEX = "(\\s*-?\\d+(\\.\\d+)?)(\\s*,\\s*-?\\d+(\\.\\d+)?)";
+
+    @Test
+    public void isCoordinates_whenComparedWithTheValidationRegex_thenAgree() {
+        // arrange
+        List<String> coordinates = Arrays.asList("51.470020,-0.454295", " 51 , -0", "\t-1.5,\n2", "51.470020",
+                "51.470020,", ",-0.45", "51.,0.45", "51.4,.45", "51.4,0.45 ", "--51,0", "51,0,1", "+51,0", "51;0",
+                "", " ", "٥١,٠");
+
+        for (String value : coordinates) {
+            // act
+            boolean valid = SearchParameters.isCoordinates(value);
+
+            // assert
+            assertEquals(value, value.matches(VALIDATION_REGEX), valid);
+        }
+    }
+
+    @Test
+    public void isCoordinates_whenMissing_thenInvalid() {
+        // act
+        boolean valid = SearchParameters.isCoordinates(null);
+
+        // assert
+        assertEquals(false, valid);
+    }
+
+    @Test
+    public void parsePassengers_whenValueIsAPositiveWholeNumber_thenReturnIt() {
+        // act
+        int passengers = SearchParameters.parsePassengers("7");
+
+        // assert
+        assertEquals(7, passengers);
+    }
+
+    @Test
+    public void parsePassengers_whenMissing_thenReturnAny() {
+        // act
+        int passengers = SearchParameters.parsePassengers(null);
+
+        // assert
+        assertEquals(SearchParameters.ANY_PASSENGERS, passengers);
+    }
+
+    @Test
+    public void parsePassengers_whenValueIsNotAPositiveWholeNumber_thenReturnInvalid() {
+        // arrange
+        List<String> passengers = Arrays.asList("", "four", "0", "-1", "+4", "4.0", "2147483648", "99999999999");
+
+        for (String value : passengers) {
+            // act
+            int parsed = SearchParameters.parsePassengers(value);
+
+            // assert
+            assertEquals(value, SearchParameters.INVALID_PASSENGERS, parsed);
+        }
+    }
+}
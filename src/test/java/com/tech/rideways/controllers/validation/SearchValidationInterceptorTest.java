@@ -0,0 +1,105 @@
+package com.tech.rideways.controllers.validation;
+
+import org.junit.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.io.IOException;
+import java.util.Collections;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class SearchValidationInterceptorTest {
+
+    private final SearchValidationInterceptor searchValidationInterceptor = new SearchValidationInterceptor();
+
+    @Test
+    public void preHandle_whenParametersAreValid_thenSearchIsAllowed() throws IOException {
+        // arrange
+        MockHttpServletRequest request = search("51.470020,-0.454295", "53.470020,-0.454295", "4");
+
+        // act
+        boolean allowed = searchValidationInterceptor.preHandle(request, new MockHttpServletResponse(), null);
+
+        // assert
+        assertTrue(allowed);
+        assertEquals(1L, searchValidationInterceptor.getStats().get("accepted"));
+    }
+
+    @Test
+    public void preHandle_whenPassengersIsNotANumber_thenReturn400() throws IOException {
+        // arrange
+        MockHttpServletRequest request = search("51.470020,-0.454295", "53.470020,-0.454295", "four");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        // act
+        boolean allowed = searchValidationInterceptor.preHandle(request, response, null);
+
+        // assert
+        assertFalse(allowed);
+        assertEquals(HttpStatus.BAD_REQUEST.value(), response.getStatus());
+        assertEquals("{\"Error: \":\"invalid parameters\"}", response.getContentAsString());
+        assertEquals(1L, searchValidationInterceptor.getStats().get("rejected"));
+    }
+
+    @Test
+    public void preHandle_whenDropoffIsMissing_thenReturn400() throws IOException {
+        // arrange
+        MockHttpServletRequest request = search("51.470020,-0.454295", null, null);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        // act
+        boolean allowed = searchValidationInterceptor.preHandle(request, response, null);
+
+        // assert
+        assertFalse(allowed);
+        assertEquals(HttpStatus.BAD_REQUEST.value(), response.getStatus());
+    }
+
+    @Test
+    public void preHandle_whenSupplierIsUnknown_thenReturn404() throws IOException {
+        // arrange
+        MockHttpServletRequest request = search("51.470020,-0.454295", "53.470020,-0.454295", null);
+        request.setAttribute(HandlerMapping.URI_TEMPLATE_VARIABLES_ATTRIBUTE,
+                Collections.singletonMap("supplier", "mallory"));
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        // act
+        boolean allowed = searchValidationInterceptor.preHandle(request, response, null);
+
+        // assert
+        assertFalse(allowed);
+        assertEquals(HttpStatus.NOT_FOUND.value(), response.getStatus());
+        assertEquals("{\"Error: \":\"unknown supplier\"}", response.getContentAsString());
+    }
+
+    @Test
+    public void preHandle_whenSupplierIsKnown_thenSearchIsAllowed() throws IOException {
+        // arrange
+        MockHttpServletRequest request = search("51.470020,-0.454295", "53.470020,-0.454295", null);
+        request.setAttribute(HandlerMapping.URI_TEMPLATE_VARIABLES_ATTRIBUTE,
+                Collections.singletonMap("supplier", "dave"));
+
+        // act
+        boolean allowed = searchValidationInterceptor.preHandle(request, new MockHttpServletResponse(), null);
+
+        // assert
+        assertTrue(allowed);
+    }
+
+    private MockHttpServletRequest search(String pickup, String dropoff, String passengers) {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/ride");
+        request.setParameter("pickup", pickup);
+        if (dropoff != null) {
+            request.setParameter("dropoff", dropoff);
+        }
+        if (passengers != null) {
+            request.setParameter("passengers", passengers);
+        }
+        return request;
+    }
+}
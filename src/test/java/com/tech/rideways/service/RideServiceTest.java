@@ -2,7 +2,14 @@ package com.tech.rideways.service;
 
 import com.tech.rideways.entities.Option;
 import com.tech.rideways.entities.Ride;
+import com.tech.rideways.service.cache.NegativeQuoteCache;
+import com.tech.rideways.service.cache.NegativeQuoteCache.Failure;
+import com.tech.rideways.service.capability.SupplierCapabilityIndex;
+import com.tech.rideways.service.cluster.ClusterQuoteCache;
+import com.tech.rideways.service.health.SupplierHealthMonitor;
 import com.tech.rideways.service.utils.Client;
+import com.tech.rideways.service.utils.RequestContext;
+import com.tech.rideways.service.utils.Lane;
 import org.junit.Before;
 import org.junit.Test;
 import org.mockito.InjectMocks;
@@ -11,6 +18,7 @@ import org.mockito.MockitoAnnotations;
 import org.mockito.Spy;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.test.util.ReflectionTestUtils;
 
 import java.io.File;
 import java.io.IOException;
@@ -18,7 +26,15 @@ import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Paths;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
 import static junit.framework.TestCase.assertTrue;
@@ -28,7 +44,11 @@ import static org.hamcrest.Matchers.empty;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNull;
 import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.when;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.times;
@@ -38,6 +58,18 @@ public class RideServiceTest {
     @Mock
     private Client client;
 
+    @Spy
+    private ClusterQuoteCache quoteCache;
+
+    @Spy
+    private NegativeQuoteCache negativeCache;
+
+    @Spy
+    private SupplierCapabilityIndex capabilityIndex;
+
+    @Mock
+    private SupplierHealthMonitor healthMonitor;
+
     @Spy
     @InjectMocks
     private RideService rideService;
@@ -103,6 +135,34 @@ public class RideServiceTest {
         assertThat(ride.getOptions(), is(empty()));
     }
 
+    @Test
+    public void findRide_whenResponseHasNoBody_thenReturnEmptyRide() {
+        // arrange
+        when(client.get(TAXI_API_URL, DAVE_PATH, rideService.buildParamsMap(pickup, dropoff)))
+                .thenReturn(ResponseEntity.ok().build());
+
+        // act
+        Ride ride = rideService.findRide(DAVE_PATH, pickup, dropoff);
+
+        // assert
+        assertNull(ride.getSupplierId());
+        assertThat(ride.getOptions(), is(empty()));
+    }
+
+    @Test
+    public void findRide_whenOptionsAreNull_thenReturnEmptyRide() {
+        // arrange
+        when(client.get(TAXI_API_URL, DAVE_PATH, rideService.buildParamsMap(pickup, dropoff)))
+                .thenReturn(ResponseEntity.ok("{\"supplier_id\":\"DAVE\",\"options\":null}"));
+
+        // act
+        Ride ride = rideService.findRide(DAVE_PATH, pickup, dropoff);
+
+        // assert
+        assertThat(ride.getOptions(), is(empty()));
+        verify(negativeCache).put(DAVE_PATH, pickup, dropoff, Failure.NO_OPTIONS);
+    }
+
     @Test
     public void findRide_whenExternalApiRequestIsSuccessful_thenReturnRide() throws IOException {
         // arrange
@@ -227,6 +287,94 @@ public class RideServiceTest {
         verify(rideService, times(1)).findRide(DAVE_PATH, pickup, dropoff);
     }
 
+    @Test
+    public void findOptions_whenRouteWasFetchedRecently_thenReturnOptionsFromQuoteCache() {
+        // arrange
+        Ride ride = new Ride(DAVE_PATH, pickup, dropoff);
+
+        List<Option> rideOptions = new ArrayList<>();
+        rideOptions.add(new Option("PEOPLE_CARRIER", 41592));
+        ride.setOptions(rideOptions);
+
+        doReturn(ride).when(rideService).findRide(DAVE_PATH, pickup, dropoff);
+
+        // act
+        rideService.findOptions(DAVE_PATH, pickup, dropoff, null);
+        List<Option> options = rideService.findOptions(DAVE_PATH, pickup, dropoff, 5);
+
+        // assert
+        assertEquals(1, options.size());
+        assertEquals("PEOPLE_CARRIER", options.get(0).getCarType());
+        assertEquals(41592, options.get(0).getPrice());
+
+        // verify
+        verify(rideService, times(1)).findRide(DAVE_PATH, pickup, dropoff);
+    }
+
+    @Test
+    public void findOptions_whenSupplierIsDown_thenDoNotCallIt() {
+        // arrange
+        when(healthMonitor.isDown(DAVE_PATH)).thenReturn(true);
+
+        // act
+        List<Option> options = rideService.findOptions(DAVE_PATH, pickup, dropoff, null);
+
+        // assert
+        assertThat(options, is(empty()));
+
+        // verify
+        verify(rideService, never()).findRide(anyString(), anyString(), anyString());
+        verify(healthMonitor, times(1)).recordSkip();
+    }
+
+    @Test
+    public void findOptions_whenSupplierTimedOutForTheRoute_thenDoNotCallItAgain() {
+        // arrange
+        when(client.get(TAXI_API_URL, DAVE_PATH, rideService.buildParamsMap(pickup, dropoff)))
+                .thenReturn(ResponseEntity.status(HttpStatus.REQUEST_TIMEOUT).body(""));
+        rideService.findOptions(DAVE_PATH, pickup, dropoff, null);
+
+        // act
+        List<Option> options = rideService.findOptions(DAVE_PATH, pickup, dropoff, null);
+
+        // assert
+        assertThat(options, is(empty()));
+
+        // verify
+        verify(rideService, times(1)).findRide(DAVE_PATH, pickup, dropoff);
+        verify(negativeCache).put(DAVE_PATH, pickup, dropoff, Failure.TIMEOUT);
+    }
+
+    @Test
+    public void findOptions_whenNoSupplierConnectionWasFree_thenCallTheSupplierAgain() {
+        // arrange
+        when(client.get(TAXI_API_URL, DAVE_PATH, rideService.buildParamsMap(pickup, dropoff)))
+                .thenReturn(ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(""));
+        rideService.findOptions(DAVE_PATH, pickup, dropoff, null);
+
+        // act
+        rideService.findOptions(DAVE_PATH, pickup, dropoff, null);
+
+        // assert
+        verify(rideService, times(2)).findRide(DAVE_PATH, pickup, dropoff);
+        verify(negativeCache, never()).put(anyString(), anyString(), anyString(), any());
+    }
+
+    @Test
+    public void findOptions_whenSupplierHadNoOptionsForAnotherRoute_thenCallIt() {
+        // arrange
+        when(client.get(anyString(), anyString(), any()))
+                .thenReturn(ResponseEntity.ok("{\"supplier_id\":\"DAVE\",\"options\":[]}"));
+        rideService.findOptions(DAVE_PATH, pickup, dropoff, null);
+
+        // act
+        rideService.findOptions(DAVE_PATH, dropoff, pickup, null);
+
+        // assert
+        verify(negativeCache).put(DAVE_PATH, pickup, dropoff, Failure.NO_OPTIONS);
+        verify(rideService, times(1)).findRide(DAVE_PATH, dropoff, pickup);
+    }
+
     @Test
     public void findOptionsByPriceDescending_whenEmptyOptionList_thenReturnEmptyOptionList() {
         // arrange
@@ -368,4 +516,168 @@ public class RideServiceTest {
         verify(rideService, times(1)).findOptions(ERIC_PATH, pickup, dropoff, null);
         verify(rideService, times(1)).findOptions(JEFF_PATH, pickup, dropoff, null);
     }
+
+    @Test
+    public void findOptionsByCarTypeWithCheapestSupplier_whenFiltered_thenReturnCheapestAcceptedOptions()
+            throws IOException {
+        // arrange
+        List<Option> daveOptions = new ArrayList<>(Arrays.asList(
+                new Option("STANDARD", 392299), new Option("LUXURY", 810777), new Option("MINIBUS", 665975)));
+        List<Option> ericOptions = new ArrayList<>(Arrays.asList(
+                new Option("LUXURY", 235868), new Option("MINIBUS", 103801)));
+        List<Option> jeffOptions = new ArrayList<>(Collections.singletonList(new Option("LUXURY", 200000)));
+
+        doReturn(daveOptions).when(rideService).findOptions(DAVE_PATH, pickup, dropoff, null);
+        doReturn(ericOptions).when(rideService).findOptions(ERIC_PATH, pickup, dropoff, null);
+        doReturn(jeffOptions).when(rideService).findOptions(JEFF_PATH, pickup, dropoff, null);
+
+        RideFilter filter = new RideFilter(Arrays.asList("luxury", "MINIBUS", "STANDARD"), 400000, 2);
+
+        // act
+        List<Option> options =
+                rideService.findOptionsByCarTypeWithCheapestSupplier(pickup, dropoff, null, filter);
+
+        // assert - STANDARD (392299) is dropped by the limit, dave's LUXURY and MINIBUS by the cheaper suppliers
+        assertEquals(2, options.size());
+        assertEquals(JEFF_PATH, options.get(0).getSupplier());
+        assertEquals("LUXURY", options.get(0).getCarType());
+        assertEquals(ERIC_PATH, options.get(1).getSupplier());
+        assertEquals("MINIBUS", options.get(1).getCarType());
+    }
+
+    @Test
+    public void findOptionsByPriceDescendingAsync_whenSearchIsBulk_thenRunOnTheBulkExecutor() throws Exception {
+        // arrange
+        List<String> executors = new ArrayList<>();
+        ReflectionTestUtils.setField(rideService, "supplierExecutor", (Executor) task -> {
+            executors.add("interactive");
+            task.run();
+        });
+        ReflectionTestUtils.setField(rideService, "bulkSupplierExecutor", (Executor) task -> {
+            executors.add("bulk");
+            task.run();
+        });
+        doReturn(new ArrayList<>()).when(rideService).findOptions(DAVE_PATH, pickup, dropoff, null);
+
+        // act
+        RequestContext.open(3000, Lane.BULK);
+        try {
+            rideService.findOptionsByPriceDescendingAsync(DAVE_PATH, pickup, dropoff, null, RideFilter.NONE)
+                    .get(5, TimeUnit.SECONDS);
+        } finally {
+            RequestContext.close();
+        }
+        RequestContext.open(3000, Lane.INTERACTIVE);
+        try {
+            rideService.findOptionsByPriceDescendingAsync(DAVE_PATH, pickup, dropoff, null, RideFilter.NONE)
+                    .get(5, TimeUnit.SECONDS);
+        } finally {
+            RequestContext.close();
+        }
+
+        // assert
+        assertEquals(Arrays.asList("bulk", "interactive"), executors);
+    }
+
+    @Test
+    public void findOptionsByCarTypeWithCheapestSupplierAsync_whenSuppliersAnswer_thenReturnCheapestOptions()
+            throws Exception {
+        // arrange
+        ExecutorService executor = Executors.newFixedThreadPool(3);
+        ReflectionTestUtils.setField(rideService, "supplierExecutor", executor);
+
+        Set<RequestContext> contexts = ConcurrentHashMap.newKeySet();
+        doAnswer(invocation -> {
+            contexts.add(RequestContext.current());
+            return new ArrayList<>(Arrays.asList(new Option("STANDARD", 392299), new Option("LUXURY", 810777)));
+        }).when(rideService).findOptions(DAVE_PATH, pickup, dropoff, null);
+        doAnswer(invocation -> {
+            contexts.add(RequestContext.current());
+            return new ArrayList<>(Collections.singletonList(new Option("LUXURY", 235868)));
+        }).when(rideService).findOptions(ERIC_PATH, pickup, dropoff, null);
+        doAnswer(invocation -> {
+            contexts.add(RequestContext.current());
+            return new ArrayList<>();
+        }).when(rideService).findOptions(JEFF_PATH, pickup, dropoff, null);
+
+        RequestContext context = RequestContext.open(3000);
+
+        // act
+        List<Option> options;
+        try {
+            options = rideService.findOptionsByCarTypeWithCheapestSupplierAsync(pickup, dropoff, null,
+                    RideFilter.NONE).get(5, TimeUnit.SECONDS);
+        } finally {
+            RequestContext.close();
+            executor.shutdown();
+        }
+
+        // assert
+        assertEquals(2, options.size());
+        assertEquals(DAVE_PATH, options.get(0).getSupplier());
+        assertEquals("STANDARD", options.get(0).getCarType());
+        assertEquals(ERIC_PATH, options.get(1).getSupplier());
+        assertEquals("LUXURY", options.get(1).getCarType());
+        assertEquals(Collections.singleton(context), contexts);
+    }
+
+    @Test
+    public void findOptionsByCarTypeWithCheapestSupplier_whenNoAcceptedCarTypeSeatsPassengers_thenCallNoSupplier()
+            throws IOException {
+        // arrange
+        RideFilter filter = new RideFilter(Collections.singletonList("LUXURY"), null, null);
+
+        // act
+        List<Option> options =
+                rideService.findOptionsByCarTypeWithCheapestSupplier(pickup, dropoff, 6, filter);
+
+        // assert
+        assertThat(options, is(empty()));
+
+        // verify
+        verify(rideService, never()).findOptions(anyString(), anyString(), anyString(), any());
+    }
+
+    @Test
+    public void findOptionsByPriceDescending_whenFilteredByMaxPrice_thenReturnCheaperOptions() {
+        // arrange
+        List<Option> rideOptions = new ArrayList<>(Arrays.asList(
+                new Option("EXECUTIVE", 279000), new Option("PEOPLE_CARRIER", 329000), new Option("STANDARD", 99000)));
+
+        doReturn(rideOptions).when(rideService).findOptions(DAVE_PATH, pickup, dropoff, null);
+
+        // act
+        List<Option> options = rideService.findOptionsByPriceDescending(DAVE_PATH, pickup, dropoff, null,
+                new RideFilter(null, 300000, null));
+
+        // assert
+        assertEquals(2, options.size());
+        assertEquals("EXECUTIVE", options.get(0).getCarType());
+        assertEquals("STANDARD", options.get(1).getCarType());
+    }
+
+    @Test
+    public void findOptionsByCarTypeWithCheapestSupplier_whenSupplierNeverOffersTheCarType_thenSkipIt()
+            throws IOException {
+        // arrange - jeff only ever returned STANDARD cars around the pickup
+        for (int i = 0; i < 3; i++) {
+            capabilityIndex.record(JEFF_PATH, pickup, Collections.singletonList(new Option("STANDARD", 513)));
+        }
+        List<Option> daveOptions = new ArrayList<>(Collections.singletonList(new Option("MINIBUS", 665975)));
+        List<Option> ericOptions = new ArrayList<>(Collections.singletonList(new Option("MINIBUS", 103801)));
+
+        doReturn(daveOptions).when(rideService).findOptions(DAVE_PATH, pickup, dropoff, 10);
+        doReturn(ericOptions).when(rideService).findOptions(ERIC_PATH, pickup, dropoff, 10);
+
+        // act
+        List<Option> options = rideService.findOptionsByCarTypeWithCheapestSupplier(pickup, dropoff, 10);
+
+        // assert
+        assertEquals(1, options.size());
+        assertEquals(ERIC_PATH, options.get(0).getSupplier());
+        assertEquals(1L, capabilityIndex.getStats().get("skipped_calls"));
+
+        // verify
+        verify(rideService, never()).findOptions(JEFF_PATH, pickup, dropoff, 10);
+    }
 }
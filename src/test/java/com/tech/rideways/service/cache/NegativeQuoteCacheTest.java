@@ -0,0 +1,108 @@
+package com.tech.rideways.service.cache;
+
+import com.tech.rideways.service.cache.NegativeQuoteCache.Failure;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class NegativeQuoteCacheTest {
+
+    private static final String DAVE = "dave";
+    private static final String PICKUP = "51.470020,-0.454295";
+    private static final String DROPOFF = "53.470020,-0.454295";
+
+    private NegativeQuoteCache negativeCache;
+
+    @Before
+    public void setup() {
+        negativeCache = new NegativeQuoteCache();
+    }
+
+    @Test
+    public void get_whenRouteFailed_thenReturnTheFailure() {
+        // arrange
+        negativeCache.put(DAVE, PICKUP, DROPOFF, Failure.BAD_REQUEST);
+
+        // act
+        Failure failure = negativeCache.get(DAVE, PICKUP, DROPOFF);
+
+        // assert
+        assertEquals(Failure.BAD_REQUEST, failure);
+        assertNull(negativeCache.get("eric", PICKUP, DROPOFF));
+        assertNull(negativeCache.get(DAVE, DROPOFF, PICKUP));
+    }
+
+    @Test
+    public void get_whenFailureExpired_thenReturnNull() throws InterruptedException {
+        // arrange
+        ReflectionTestUtils.setField(negativeCache, "timeoutTtlMillis", 20);
+        negativeCache.put(DAVE, PICKUP, DROPOFF, Failure.TIMEOUT);
+        negativeCache.put("eric", PICKUP, DROPOFF, Failure.NO_OPTIONS);
+        Thread.sleep(50);
+
+        // act
+        Failure failure = negativeCache.get(DAVE, PICKUP, DROPOFF);
+
+        // assert
+        assertNull(failure);
+        assertEquals(Failure.NO_OPTIONS, negativeCache.get("eric", PICKUP, DROPOFF));
+    }
+
+    @Test
+    public void put_whenTtlOfTheFailureIsZero_thenDoNotStoreIt() {
+        // arrange
+        ReflectionTestUtils.setField(negativeCache, "serverErrorTtlMillis", 0);
+
+        // act
+        negativeCache.put(DAVE, PICKUP, DROPOFF, Failure.SERVER_ERROR);
+
+        // assert
+        assertNull(negativeCache.get(DAVE, PICKUP, DROPOFF));
+    }
+
+    @Test
+    public void put_whenCacheIsFullOfLiveEntries_thenEvictTheOldest() {
+        // arrange
+        ReflectionTestUtils.setField(negativeCache, "maxEntries", 2);
+        negativeCache.put(DAVE, PICKUP, DROPOFF, Failure.BAD_REQUEST);
+        negativeCache.put("eric", PICKUP, DROPOFF, Failure.BAD_REQUEST);
+        negativeCache.put(DAVE, PICKUP, DROPOFF, Failure.NO_OPTIONS);
+
+        // act
+        negativeCache.put("jeff", PICKUP, DROPOFF, Failure.SERVER_ERROR);
+
+        // assert
+        assertNull(negativeCache.get(DAVE, PICKUP, DROPOFF));
+        assertEquals(Failure.BAD_REQUEST, negativeCache.get("eric", PICKUP, DROPOFF));
+        assertEquals(Failure.SERVER_ERROR, negativeCache.get("jeff", PICKUP, DROPOFF));
+        assertEquals(2, negativeCache.getStats().get("size"));
+        assertEquals(1L, negativeCache.getStats().get("evictions"));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void getStats_whenFailuresWereStoredAndHit_thenCountThemByFailure() {
+        // arrange
+        negativeCache.put(DAVE, PICKUP, DROPOFF, Failure.INVALID_PAYLOAD);
+        negativeCache.get(DAVE, PICKUP, DROPOFF);
+        negativeCache.get(DAVE, PICKUP, DROPOFF);
+        negativeCache.get("jeff", PICKUP, DROPOFF);
+
+        // act
+        Map<String, Object> stats = negativeCache.getStats();
+
+        // assert
+        assertEquals(1, stats.get("size"));
+        assertEquals(2L, stats.get("hits"));
+        assertEquals(1L, stats.get("misses"));
+        Map<String, Object> invalidPayload =
+                (Map<String, Object>) ((Map<String, Object>) stats.get("failures")).get("invalid_payload");
+        assertEquals(1L, invalidPayload.get("stored"));
+        assertEquals(2L, invalidPayload.get("hits"));
+    }
+}
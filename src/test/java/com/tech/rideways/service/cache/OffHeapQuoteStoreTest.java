@@ -0,0 +1,121 @@
+package com.tech.rideways.service.cache;
+
+import com.tech.rideways.entities.Option;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class OffHeapQuoteStoreTest {
+
+    private static final String DAVE = "dave";
+    private static final String PICKUP = "51.470020,-0.454295";
+    private static final String DROPOFF = "53.470020,-0.454295";
+
+    private OffHeapQuoteStore quoteStore;
+
+    @Before
+    public void setup() {
+        quoteStore = new OffHeapQuoteStore();
+    }
+
+    @Test
+    public void get_whenRouteWasPut_thenReturnEqualOptions() {
+
+        // arrange
+        List<Option> options = Arrays.asList(new Option("STANDARD", 513), new Option("MINIBUS", 871));
+
+        // act
+        quoteStore.put(DAVE, PICKUP, DROPOFF, options);
+        List<Option> cached = quoteStore.get(DAVE, PICKUP, DROPOFF);
+
+        // assert
+        assertEquals(2, cached.size());
+        assertEquals("STANDARD", cached.get(0).getCarType());
+        assertEquals(513, cached.get(0).getPrice());
+        assertEquals("MINIBUS", cached.get(1).getCarType());
+        assertEquals(871, cached.get(1).getPrice());
+        assertEquals(16, cached.get(1).getMaxPassengers());
+    }
+
+    @Test
+    public void get_whenRouteWasNotPut_thenReturnNull() {
+
+        // arrange
+        quoteStore.put(DAVE, PICKUP, DROPOFF, Collections.singletonList(new Option("STANDARD", 513)));
+
+        // act
+        List<Option> cached = quoteStore.get("eric", PICKUP, DROPOFF);
+
+        // assert
+        assertNull(cached);
+    }
+
+    @Test
+    public void get_whenEntryExpired_thenReturnNull() throws InterruptedException {
+
+        // arrange
+        ReflectionTestUtils.setField(quoteStore, "ttlMillis", 1);
+        quoteStore.put(DAVE, PICKUP, DROPOFF, Collections.singletonList(new Option("STANDARD", 513)));
+        Thread.sleep(5);
+
+        // act
+        List<Option> cached = quoteStore.get(DAVE, PICKUP, DROPOFF);
+
+        // assert
+        assertNull(cached);
+        assertEquals(0, quoteStore.getStats().get("size"));
+    }
+
+    @Test
+    public void put_whenCarTypeIsUnknown_thenDoNotCacheTheRoute() {
+
+        // act
+        quoteStore.put(DAVE, PICKUP, DROPOFF, Arrays.asList(new Option("STANDARD", 513), carType("HELICOPTER")));
+
+        // assert
+        assertNull(quoteStore.get(DAVE, PICKUP, DROPOFF));
+    }
+
+    @Test
+    public void put_whenStoreIsFull_thenEvictAndKeepEveryRemainingRouteIntact() {
+
+        // arrange
+        ReflectionTestUtils.setField(quoteStore, "maxEntries", 100);
+        int routes = 5000;
+
+        // act
+        for (int i = 0; i < routes; i++) {
+            quoteStore.put(DAVE, PICKUP, "route " + i, Collections.singletonList(new Option("LUXURY", i)));
+        }
+
+        // assert - the size stays bounded and the entries moved around by removals are still found under their key
+        int found = 0;
+        for (int i = 0; i < routes; i++) {
+            List<Option> cached = quoteStore.get(DAVE, PICKUP, "route " + i);
+            if (cached != null) {
+                assertEquals(i, cached.get(0).getPrice());
+                found++;
+            }
+        }
+        assertTrue((int) quoteStore.getStats().get("size") <= 100 + 16);
+        assertEquals(quoteStore.getStats().get("size"), found);
+        assertTrue((long) quoteStore.getStats().get("evictions") >= routes - 100 - 16);
+        assertNotNull(quoteStore.get(DAVE, PICKUP, "route " + (routes - 1)));
+    }
+
+    private static Option carType(String carType) {
+        Option option = new Option();
+        option.setPrice(100);
+        ReflectionTestUtils.setField(option, "carType", carType);
+        return option;
+    }
+}
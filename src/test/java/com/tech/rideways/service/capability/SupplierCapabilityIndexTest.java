@@ -0,0 +1,119 @@
+package com.tech.rideways.service.capability;
+
+import com.tech.rideways.entities.Option;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Set;
+import java.util.TreeSet;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class SupplierCapabilityIndexTest {
+
+    private static final String DAVE = "dave";
+    private static final String PICKUP = "51.470020,-0.454295";
+    private static final String PICKUP_NEARBY = "51.9,-0.1";
+    private static final String PICKUP_ELSEWHERE = "48.856613,2.352222";
+
+    private SupplierCapabilityIndex capabilityIndex;
+
+    @Before
+    public void setup() {
+        capabilityIndex = new SupplierCapabilityIndex();
+    }
+
+    @Test
+    public void getCarTypes_whenSupplierWasSeenEnough_thenReturnEveryCarTypeSeenInTheRegion() {
+
+        // act
+        capabilityIndex.record(DAVE, PICKUP, Collections.singletonList(new Option("STANDARD", 513)));
+        capabilityIndex.record(DAVE, PICKUP_NEARBY, Collections.singletonList(new Option("LUXURY", 2000)));
+        capabilityIndex.record(DAVE, PICKUP, Collections.singletonList(new Option("STANDARD", 600)));
+        Set<String> carTypes = capabilityIndex.getCarTypes(DAVE, PICKUP);
+
+        // assert
+        assertEquals(new TreeSet<>(Arrays.asList("LUXURY", "STANDARD")), carTypes);
+        assertEquals(1L, capabilityIndex.getStats().get("hits"));
+    }
+
+    @Test
+    public void getCarTypes_whenTooFewSamples_thenReturnNull() {
+
+        // act
+        capabilityIndex.record(DAVE, PICKUP, Collections.singletonList(new Option("STANDARD", 513)));
+        capabilityIndex.record(DAVE, PICKUP, Collections.singletonList(new Option("STANDARD", 600)));
+
+        // assert
+        assertNull(capabilityIndex.getCarTypes(DAVE, PICKUP));
+        assertEquals(1L, capabilityIndex.getStats().get("misses"));
+    }
+
+    @Test
+    public void getCarTypes_whenOtherRegion_thenReturnNull() {
+
+        // arrange
+        for (int i = 0; i < 3; i++) {
+            capabilityIndex.record(DAVE, PICKUP, Collections.singletonList(new Option("STANDARD", 513)));
+        }
+
+        // act
+        Set<String> carTypes = capabilityIndex.getCarTypes(DAVE, PICKUP_ELSEWHERE);
+
+        // assert
+        assertNull(carTypes);
+    }
+
+    @Test
+    public void getCarTypes_whenLearnedLongAgo_thenReturnNull() {
+
+        // arrange
+        ReflectionTestUtils.setField(capabilityIndex, "ttlMillis", 0L);
+        for (int i = 0; i < 3; i++) {
+            capabilityIndex.record(DAVE, PICKUP, Collections.singletonList(new Option("STANDARD", 513)));
+        }
+
+        // act
+        Set<String> carTypes = capabilityIndex.getCarTypes(DAVE, PICKUP);
+
+        // assert
+        assertNull(carTypes);
+    }
+
+    @Test
+    public void record_whenIndexIsFull_thenEvictTheOldestEntry() {
+
+        // arrange
+        ReflectionTestUtils.setField(capabilityIndex, "maxEntries", 2);
+        ReflectionTestUtils.setField(capabilityIndex, "minSamples", 1);
+        capabilityIndex.record(DAVE, PICKUP, Collections.singletonList(new Option("STANDARD", 513)));
+        capabilityIndex.record(DAVE, PICKUP_ELSEWHERE, Collections.singletonList(new Option("STANDARD", 513)));
+
+        // act
+        capabilityIndex.record("eric", PICKUP, Collections.singletonList(new Option("LUXURY", 2000)));
+
+        // assert
+        assertNull(capabilityIndex.getCarTypes(DAVE, PICKUP));
+        assertEquals(Collections.singleton("STANDARD"), capabilityIndex.getCarTypes(DAVE, PICKUP_ELSEWHERE));
+        assertEquals(Collections.singleton("LUXURY"), capabilityIndex.getCarTypes("eric", PICKUP));
+        assertEquals(2, capabilityIndex.getStats().get("entries"));
+        assertEquals(1L, capabilityIndex.getStats().get("evictions"));
+    }
+
+    @Test
+    public void record_whenResponseIsEmpty_thenLearnNothing() {
+
+        // act
+        for (int i = 0; i < 3; i++) {
+            capabilityIndex.record(DAVE, PICKUP, Collections.emptyList());
+        }
+
+        // assert
+        assertNull(capabilityIndex.getCarTypes(DAVE, PICKUP));
+        assertEquals(0, capabilityIndex.getStats().get("entries"));
+    }
+}
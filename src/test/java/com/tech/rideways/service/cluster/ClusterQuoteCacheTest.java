@@ -0,0 +1,206 @@
+package com.tech.rideways.service.cluster;
+
+import com.tech.rideways.entities.Option;
+import com.tech.rideways.service.cache.OffHeapQuoteStore;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.test.web.client.MockRestServiceServer;
+import org.springframework.web.client.RestTemplate;
+
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.springframework.test.web.client.ExpectedCount.times;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.content;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.header;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.method;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.requestTo;
+import static org.springframework.test.web.client.response.MockRestResponseCreators.withNoContent;
+import static org.springframework.test.web.client.response.MockRestResponseCreators.withServerError;
+import static org.springframework.test.web.client.response.MockRestResponseCreators.withSuccess;
+
+public class ClusterQuoteCacheTest {
+
+    private static final String SELF = "http://localhost:8080";
+    private static final String OTHER = "http://localhost:8082";
+    private static final String DAVE = "dave";
+    private static final String PICKUP = "51.470020,-0.454295";
+    private static final String SECRET = "s3cret";
+
+    private ClusterQuoteCache clusterQuoteCache;
+
+    private OffHeapQuoteStore localStore;
+
+    private MockRestServiceServer otherNode;
+
+    @Before
+    public void setup() {
+        clusterQuoteCache = new ClusterQuoteCache();
+        localStore = new OffHeapQuoteStore();
+        ReflectionTestUtils.setField(clusterQuoteCache, "localStore", localStore);
+        ReflectionTestUtils.setField(clusterQuoteCache, "enabled", true);
+        ReflectionTestUtils.setField(clusterQuoteCache, "advertisedUrl", SELF);
+        ReflectionTestUtils.setField(clusterQuoteCache, "secret", SECRET);
+        clusterQuoteCache.start();
+        clusterQuoteCache.join(OTHER);
+
+        RestTemplate restTemplate = new RestTemplate();
+        otherNode = MockRestServiceServer.createServer(restTemplate);
+        ReflectionTestUtils.setField(clusterQuoteCache, "restTemplate", restTemplate);
+    }
+
+    @Test
+    public void get_whenRouteIsOwnedByThisNode_thenReadTheLocalStore() {
+
+        // arrange
+        String dropoff = dropoffOwnedBy(SELF);
+        localStore.put(DAVE, PICKUP, dropoff, Collections.singletonList(new Option("STANDARD", 513)));
+
+        // act
+        List<Option> options = clusterQuoteCache.get(DAVE, PICKUP, dropoff);
+
+        // assert
+        assertEquals(513, options.get(0).getPrice());
+        otherNode.verify();
+    }
+
+    @Test
+    public void get_whenRouteIsOwnedByAnotherNode_thenForwardTheLookup() {
+
+        // arrange
+        String dropoff = dropoffOwnedBy(OTHER);
+        otherNode.expect(requestTo(OTHER + "/cluster/quotes?supplier=dave&pickup=" + PICKUP + "&dropoff=" + dropoff))
+                .andExpect(method(HttpMethod.GET))
+                .andExpect(header(ClusterQuoteCache.SECRET_HEADER, SECRET))
+                .andRespond(withSuccess("[{\"car_type\":\"MINIBUS\",\"price\":871}]", MediaType.APPLICATION_JSON));
+
+        // act
+        List<Option> options = clusterQuoteCache.get(DAVE, PICKUP, dropoff);
+
+        // assert
+        otherNode.verify();
+        assertEquals("MINIBUS", options.get(0).getCarType());
+        assertEquals(871, options.get(0).getPrice());
+        assertEquals(16, options.get(0).getMaxPassengers());
+    }
+
+    @Test
+    public void get_whenOwnerHasNoQuotes_thenReturnNull() {
+
+        // arrange
+        String dropoff = dropoffOwnedBy(OTHER);
+        otherNode.expect(method(HttpMethod.GET)).andRespond(withNoContent());
+
+        // act
+        List<Option> options = clusterQuoteCache.get(DAVE, PICKUP, dropoff);
+
+        // assert
+        otherNode.verify();
+        assertNull(options);
+    }
+
+    @Test
+    public void put_whenOwnerFails_thenKeepTheQuotesLocally() {
+
+        // arrange
+        String dropoff = dropoffOwnedBy(OTHER);
+        otherNode.expect(method(HttpMethod.PUT))
+                .andExpect(content().json("[{\"car_type\":\"LUXURY\",\"price\":2000}]"))
+                .andRespond(withServerError());
+
+        // act
+        clusterQuoteCache.put(DAVE, PICKUP, dropoff, Collections.singletonList(new Option("LUXURY", 2000)));
+
+        // assert
+        otherNode.verify();
+        assertEquals(2000, localStore.get(DAVE, PICKUP, dropoff).get(0).getPrice());
+        assertEquals(1L, clusterQuoteCache.getStats().get("forward_failures"));
+    }
+
+    @Test
+    public void leave_whenOtherNodeLeaves_thenOwnEveryRoute() {
+
+        // arrange
+        String dropoff = dropoffOwnedBy(OTHER);
+        localStore.put(DAVE, PICKUP, dropoff, Collections.singletonList(new Option("STANDARD", 513)));
+
+        // act
+        clusterQuoteCache.leave(OTHER);
+        List<Option> options = clusterQuoteCache.get(DAVE, PICKUP, dropoff);
+
+        // assert
+        otherNode.verify();
+        assertEquals(Collections.singleton(SELF), clusterQuoteCache.getNodes());
+        assertEquals(513, options.get(0).getPrice());
+    }
+
+    @Test
+    public void get_whenOwnerFailsRepeatedly_thenEvictIt() {
+
+        // arrange
+        String dropoff = dropoffOwnedBy(OTHER);
+        otherNode.expect(times(3), method(HttpMethod.GET)).andRespond(withServerError());
+
+        // act
+        clusterQuoteCache.get(DAVE, PICKUP, dropoff);
+        clusterQuoteCache.get(DAVE, PICKUP, dropoff);
+        clusterQuoteCache.get(DAVE, PICKUP, dropoff);
+        clusterQuoteCache.get(DAVE, PICKUP, dropoff);
+
+        // assert
+        otherNode.verify();
+        assertEquals(Collections.singleton(SELF), clusterQuoteCache.getNodes());
+        assertEquals(1L, clusterQuoteCache.getStats().get("evictions"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void join_whenUrlIsNotANodeBaseUrl_thenThrow() {
+        // act
+        clusterQuoteCache.join("http://169.254.169.254/latest/meta-data?x=");
+    }
+
+    @Test
+    public void isAuthorized_whenSecretDiffers_thenReturnFalse() {
+        // act
+        boolean authorized = clusterQuoteCache.isAuthorized("guess");
+
+        // assert
+        assertFalse(authorized);
+        assertTrue(clusterQuoteCache.isAuthorized(SECRET));
+        assertFalse(clusterQuoteCache.isAuthorized(null));
+    }
+
+    @Test
+    public void start_whenSecretIsMissing_thenDoNotStart() {
+        // arrange
+        ClusterQuoteCache withoutSecret = new ClusterQuoteCache();
+        ReflectionTestUtils.setField(withoutSecret, "enabled", true);
+        ReflectionTestUtils.setField(withoutSecret, "advertisedUrl", SELF);
+
+        // act
+        withoutSecret.start();
+
+        // assert
+        assertTrue(withoutSecret.getNodes().isEmpty());
+        assertFalse(withoutSecret.isAuthorized(""));
+    }
+
+    private static String dropoffOwnedBy(String node) {
+        ConsistentHashRing ring = new ConsistentHashRing(100);
+        ring.add(SELF);
+        ring.add(OTHER);
+        for (int i = 0; ; i++) {
+            String dropoff = "53." + i + ",-0.454295";
+            if (ring.ownerOf(DAVE + "|" + PICKUP + "|" + dropoff).equals(node)) {
+                return dropoff;
+            }
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package com.tech.rideways.service.cluster;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class ConsistentHashRingTest {
+
+    private static final String NODE_A = "http://localhost:8080";
+    private static final String NODE_B = "http://localhost:8082";
+    private static final String NODE_C = "http://localhost:8083";
+    private static final String NODE_D = "http://localhost:8084";
+    private static final int KEYS = 10000;
+
+    private ConsistentHashRing ring;
+
+    @Before
+    public void setup() {
+        ring = new ConsistentHashRing(100);
+        ring.add(NODE_A);
+        ring.add(NODE_B);
+        ring.add(NODE_C);
+    }
+
+    @Test
+    public void ownerOf_whenRingIsEmpty_thenReturnNull() {
+
+        // act
+        String owner = new ConsistentHashRing(100).ownerOf("dave|51.470020,-0.454295|53.470020,-0.454295");
+
+        // assert
+        assertNull(owner);
+    }
+
+    @Test
+    public void ownerOf_whenSeveralNodes_thenSpreadKeysEvenly() {
+
+        // act
+        Map<String, Integer> keysPerNode = new HashMap<>();
+        for (int i = 0; i < KEYS; i++) {
+            keysPerNode.merge(ring.ownerOf(key(i)), 1, Integer::sum);
+        }
+
+        // assert - every node owns roughly a third of the keys
+        assertEquals(3, keysPerNode.size());
+        keysPerNode.values().forEach(keys -> assertTrue(keys > KEYS / 5 && keys < KEYS / 2));
+    }
+
+    @Test
+    public void add_whenNodeJoins_thenOnlyMoveKeysToTheNewNode() {
+
+        // arrange
+        Map<String, String> owners = owners();
+
+        // act
+        ring.add(NODE_D);
+
+        // assert
+        int moved = 0;
+        for (int i = 0; i < KEYS; i++) {
+            String owner = ring.ownerOf(key(i));
+            if (!owner.equals(owners.get(key(i)))) {
+                assertEquals(NODE_D, owner);
+                moved++;
+            }
+        }
+        assertTrue(moved > KEYS / 8 && moved < KEYS / 3);
+    }
+
+    @Test
+    public void remove_whenNodeLeaves_thenOnlyMoveItsOwnKeys() {
+
+        // arrange
+        Map<String, String> owners = owners();
+
+        // act
+        ring.remove(NODE_B);
+
+        // assert
+        for (int i = 0; i < KEYS; i++) {
+            String previousOwner = owners.get(key(i));
+            if (!previousOwner.equals(NODE_B)) {
+                assertEquals(previousOwner, ring.ownerOf(key(i)));
+            }
+        }
+        assertEquals(2, ring.getNodes().size());
+    }
+
+    private Map<String, String> owners() {
+        Map<String, String> owners = new HashMap<>();
+        for (int i = 0; i < KEYS; i++) {
+            owners.put(key(i), ring.ownerOf(key(i)));
+        }
+        return owners;
+    }
+
+    private static String key(int i) {
+        return "dave|51.470020,-0.454295|" + i + ",-0.454295";
+    }
+}
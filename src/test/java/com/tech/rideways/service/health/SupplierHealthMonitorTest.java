@@ -0,0 +1,106 @@
+package com.tech.rideways.service.health;
+
+import com.tech.rideways.service.utils.Client;
+import com.tech.rideways.service.utils.Lane;
+import com.tech.rideways.service.utils.RequestContext;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.when;
+
+public class SupplierHealthMonitorTest {
+
+    private static final String DAVE_PATH = "dave";
+    private static final String ERIC_PATH = "eric";
+
+    @Mock
+    private Client client;
+
+    @InjectMocks
+    private SupplierHealthMonitor healthMonitor;
+
+    @Before
+    public void setup() {
+        MockitoAnnotations.initMocks(this);
+    }
+
+    @Test
+    public void isDown_whenSupplierWasNeverProbed_thenReturnFalse() {
+        // act & assert
+        assertFalse(healthMonitor.isDown(DAVE_PATH));
+    }
+
+    @Test
+    public void probe_whenProbesFailInARow_thenSupplierIsDownUntilOneSucceeds() {
+        // arrange
+        when(client.probe(anyString(), eq(DAVE_PATH), anyMap()))
+                .thenReturn(ResponseEntity.status(HttpStatus.REQUEST_TIMEOUT).body("dave's API timed out."));
+
+        // act
+        healthMonitor.probe(DAVE_PATH);
+        healthMonitor.probe(DAVE_PATH);
+        boolean downAfterTwoFailures = healthMonitor.isDown(DAVE_PATH);
+        healthMonitor.probe(DAVE_PATH);
+        boolean downAfterThreeFailures = healthMonitor.isDown(DAVE_PATH);
+
+        when(client.probe(anyString(), eq(DAVE_PATH), anyMap())).thenReturn(ResponseEntity.ok("{}"));
+        healthMonitor.probe(DAVE_PATH);
+
+        // assert
+        assertFalse(downAfterTwoFailures);
+        assertTrue(downAfterThreeFailures);
+        assertFalse(healthMonitor.isDown(DAVE_PATH));
+    }
+
+    @Test
+    public void probe_whenNoSupplierConnectionIsFree_thenHealthIsUnchanged() {
+        // arrange
+        when(client.probe(anyString(), eq(DAVE_PATH), anyMap()))
+                .thenReturn(ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(""));
+
+        // act
+        for (int i = 0; i < 3; i++) {
+            healthMonitor.probe(DAVE_PATH);
+        }
+
+        // assert
+        assertFalse(healthMonitor.isDown(DAVE_PATH));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void probe_whenSupplierAnswers_thenProbeRunsInTheBulkLaneAndScoresAreKept() {
+        // arrange
+        Lane[] lanes = new Lane[1];
+        when(client.probe(anyString(), eq(ERIC_PATH), anyMap())).thenAnswer(invocation -> {
+            lanes[0] = RequestContext.current().getLane();
+            return ResponseEntity.ok("{}");
+        });
+
+        // act
+        healthMonitor.probe(ERIC_PATH);
+
+        // assert
+        assertEquals(Lane.BULK, lanes[0]);
+        assertNull(RequestContext.current());
+        Map<String, Object> suppliers = (Map<String, Object>) healthMonitor.getStats().get("suppliers");
+        Map<String, Object> eric = (Map<String, Object>) suppliers.get(ERIC_PATH);
+        assertEquals(false, eric.get("down"));
+        assertEquals(1.0, (double) eric.get("availability"), 0);
+        assertEquals(1L, eric.get("probes"));
+    }
+}
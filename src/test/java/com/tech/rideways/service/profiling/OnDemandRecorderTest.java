@@ -0,0 +1,90 @@
+package com.tech.rideways.service.profiling;
+
+import com.tech.rideways.service.utils.Lane;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.After;
+import org.junit.Test;
+import org.springframework.http.ResponseEntity;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertEquals;
+
+public class OnDemandRecorderTest {
+
+    private final OnDemandRecorder onDemandRecorder = new OnDemandRecorder();
+
+    @After
+    public void tearDown() {
+        onDemandRecorder.shutdown();
+    }
+
+    @Test
+    public void record_whenSupplierIsCalledDuringTheRecording_thenRecordingHoldsTheCall() throws Exception {
+        // arrange
+        CompletableFuture<byte[]> recording = onDemandRecorder.record(1, "default");
+
+        // act
+        SupplierCallEvent event = new SupplierCallEvent();
+        event.begin();
+        event.commit("dave", Lane.BULK, ResponseEntity.ok("{\"options\":[]}"));
+        byte[] jfr = recording.get();
+
+        // assert
+        Path file = Files.createTempFile("recording", ".jfr");
+        try {
+            Files.write(file, jfr);
+            List<RecordedEvent> supplierCalls = RecordingFile.readAllEvents(file).stream()
+                    .filter(recorded -> recorded.getEventType().getName().equals("com.tech.rideways.SupplierCall"))
+                    .collect(Collectors.toList());
+            assertEquals(1, supplierCalls.size());
+            assertEquals("dave", supplierCalls.get(0).getString("supplier"));
+            assertEquals("BULK", supplierCalls.get(0).getString("lane"));
+            assertEquals(200, supplierCalls.get(0).getInt("status"));
+            assertEquals(14, supplierCalls.get(0).getLong("bytes"));
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    public void record_whenRecordingStops_thenItHoldsNoEnvironmentOrSystemProperties() throws Exception {
+        // act
+        byte[] jfr = onDemandRecorder.record(1, "profile").get();
+
+        // assert
+        Path file = Files.createTempFile("recording", ".jfr");
+        try {
+            Files.write(file, jfr);
+            List<String> leaking = RecordingFile.readAllEvents(file).stream()
+                    .map(recorded -> recorded.getEventType().getName())
+                    .filter(name -> name.equals("jdk.InitialEnvironmentVariable")
+                            || name.equals("jdk.InitialSystemProperty") || name.equals("jdk.JVMInformation"))
+                    .collect(Collectors.toList());
+            assertEquals(Collections.emptyList(), leaking);
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void record_whenARecordingIsRunning_thenThrow() {
+        // arrange
+        onDemandRecorder.record(1, "default");
+
+        // act
+        onDemandRecorder.record(1, "default");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void record_whenDurationIsLongerThanTheMaximum_thenThrow() {
+        // act
+        onDemandRecorder.record(301, "default");
+    }
+}
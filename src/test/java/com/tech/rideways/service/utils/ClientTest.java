@@ -1,6 +1,7 @@
 package com.tech.rideways.service.utils;
 
 import com.tech.rideways.service.RideService;
+import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 import org.mockito.InjectMocks;
@@ -12,18 +13,28 @@ import org.springframework.http.HttpMethod;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.client.ResourceAccessException;
 import org.springframework.web.client.RestTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
 
 import java.io.File;
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Paths;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.Map;
 import java.util.stream.Collectors;
 
 import static org.junit.Assert.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.when;
 
 public class ClientTest {
@@ -43,6 +54,13 @@ public class ClientTest {
     @Before
     public void setup() {
         MockitoAnnotations.initMocks(this);
+        ReflectionTestUtils.setField(client, "baseBackoffMillis", 1);
+        ReflectionTestUtils.setField(client, "attemptTimeoutMillis", 100);
+    }
+
+    @After
+    public void closeRequestContext() {
+        RequestContext.close();
     }
 
     @Test
@@ -113,4 +131,193 @@ public class ClientTest {
         // assert
         assertEquals(HttpStatus.SERVICE_UNAVAILABLE, response.getStatusCode());
     }
+
+    @Test
+    public void get_whenServerErrorIsTransient_thenRetryAndReturn200() {
+
+        // arrange
+        HttpEntity entity = jsonRequestEntity();
+        String url = TAXI_API_URL + "/" + DAVE_PATH;
+        when(restTemplate.exchange(url, HttpMethod.GET, entity, String.class))
+                .thenThrow(new HttpServerErrorException(HttpStatus.BAD_GATEWAY))
+                .thenReturn(ResponseEntity.ok("{}"));
+
+        // act
+        ResponseEntity<String> response = client.get(TAXI_API_URL, DAVE_PATH, new HashMap<>());
+
+        // assert
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        verify(restTemplate, times(2)).exchange(url, HttpMethod.GET, entity, String.class);
+    }
+
+    @Test
+    public void get_whenServerErrorPersists_thenReturn500AfterMaxAttempts() {
+
+        // arrange
+        HttpEntity entity = jsonRequestEntity();
+        String url = TAXI_API_URL + "/" + DAVE_PATH;
+        when(restTemplate.exchange(url, HttpMethod.GET, entity, String.class))
+                .thenThrow(new HttpServerErrorException(HttpStatus.INTERNAL_SERVER_ERROR));
+
+        // act
+        ResponseEntity<String> response = client.get(TAXI_API_URL, DAVE_PATH, new HashMap<>());
+
+        // assert
+        assertEquals(HttpStatus.INTERNAL_SERVER_ERROR, response.getStatusCode());
+        verify(restTemplate, times(3)).exchange(url, HttpMethod.GET, entity, String.class);
+    }
+
+    @Test
+    public void get_whenClientError_thenReturn400WithoutRetrying() {
+
+        // arrange
+        HttpEntity entity = jsonRequestEntity();
+        String url = TAXI_API_URL + "/" + DAVE_PATH;
+        when(restTemplate.exchange(url, HttpMethod.GET, entity, String.class))
+                .thenThrow(new HttpClientErrorException(HttpStatus.BAD_REQUEST));
+
+        // act
+        ResponseEntity<String> response = client.get(TAXI_API_URL, DAVE_PATH, new HashMap<>());
+
+        // assert
+        assertEquals(HttpStatus.BAD_REQUEST, response.getStatusCode());
+        verify(restTemplate, times(1)).exchange(url, HttpMethod.GET, entity, String.class);
+    }
+
+    @Test
+    public void get_whenRetryDoesNotFitBeforeDeadline_thenReturn408WithoutRetrying() {
+
+        // arrange
+        HttpEntity entity = jsonRequestEntity();
+        String url = TAXI_API_URL + "/" + DAVE_PATH;
+        when(restTemplate.exchange(url, HttpMethod.GET, entity, String.class))
+                .thenThrow(new ResourceAccessException("Read timed out"));
+        RequestContext.open(50);
+
+        // act
+        ResponseEntity<String> response = client.get(TAXI_API_URL, DAVE_PATH, new HashMap<>());
+
+        // assert
+        assertEquals(HttpStatus.REQUEST_TIMEOUT, response.getStatusCode());
+        verify(restTemplate, times(1)).exchange(url, HttpMethod.GET, entity, String.class);
+    }
+
+    @Test
+    public void get_whenRetryBudgetIsExhausted_thenStopRetrying() {
+
+        // arrange
+        ReflectionTestUtils.setField(client, "retryBudgetMax", 1);
+        ReflectionTestUtils.setField(client, "retryBudgetRatio", 0);
+        HttpEntity entity = jsonRequestEntity();
+        String url = TAXI_API_URL + "/" + DAVE_PATH;
+        when(restTemplate.exchange(url, HttpMethod.GET, entity, String.class))
+                .thenThrow(new HttpServerErrorException(HttpStatus.INTERNAL_SERVER_ERROR));
+
+        // act
+        client.get(TAXI_API_URL, DAVE_PATH, new HashMap<>());
+        client.get(TAXI_API_URL, DAVE_PATH, new HashMap<>());
+
+        // assert - the first request used the only retry available, the second one could not retry
+        verify(restTemplate, times(3)).exchange(url, HttpMethod.GET, entity, String.class);
+    }
+
+    @Test
+    public void get_whenNoConnectionGetsFreeBeforeDeadline_thenReturn503WithoutCallingOrRetrying()
+            throws InterruptedException {
+
+        // arrange
+        PriorityGate gate = new PriorityGate(1, 0);
+        gate.acquire(Lane.INTERACTIVE, 0);
+        ReflectionTestUtils.setField(client, "connectionGate", gate);
+        RequestContext.open(20);
+
+        // act
+        ResponseEntity<String> response = client.get(TAXI_API_URL, DAVE_PATH, new HashMap<>());
+
+        // assert
+        assertEquals(HttpStatus.SERVICE_UNAVAILABLE, response.getStatusCode());
+        verifyNoInteractions(restTemplate);
+        assertEquals(0L, ((Map<?, ?>) client.getRetryStats().get(DAVE_PATH)).get("retries"));
+    }
+
+    @Test
+    public void get_whenUnexpectedErrorOccurs_thenReturn502WithoutRetrying() {
+
+        // arrange
+        HttpEntity entity = jsonRequestEntity();
+        String url = TAXI_API_URL + "/" + DAVE_PATH;
+        when(restTemplate.exchange(url, HttpMethod.GET, entity, String.class))
+                .thenThrow(new IllegalStateException("unexpected"));
+
+        // act
+        ResponseEntity<String> response = client.get(TAXI_API_URL, DAVE_PATH, new HashMap<>());
+
+        // assert
+        assertEquals(HttpStatus.BAD_GATEWAY, response.getStatusCode());
+        verify(restTemplate, times(1)).exchange(url, HttpMethod.GET, entity, String.class);
+    }
+
+    @Test
+    public void get_whenPathIsNotASupplier_thenCallItOnceWithoutARetryBudget() {
+
+        // arrange
+        HttpEntity entity = jsonRequestEntity();
+        String url = TAXI_API_URL + "/mallory";
+        when(restTemplate.exchange(url, HttpMethod.GET, entity, String.class))
+                .thenThrow(new HttpServerErrorException(HttpStatus.INTERNAL_SERVER_ERROR));
+
+        // act
+        ResponseEntity<String> response = client.get(TAXI_API_URL, "mallory", new HashMap<>());
+
+        // assert
+        assertEquals(HttpStatus.INTERNAL_SERVER_ERROR, response.getStatusCode());
+        verify(restTemplate, times(1)).exchange(url, HttpMethod.GET, entity, String.class);
+        assertEquals(RideService.getSuppliers(), new ArrayList<>(client.getRetryStats().keySet()));
+    }
+
+    @Test
+    public void probe_whenServerErrorOccurs_thenReturn500WithoutRetryingOrTouchingTheRetryBudget() {
+
+        // arrange
+        HttpEntity entity = jsonRequestEntity();
+        String url = TAXI_API_URL + "/" + DAVE_PATH;
+        when(restTemplate.exchange(url, HttpMethod.GET, entity, String.class))
+                .thenThrow(new HttpServerErrorException(HttpStatus.INTERNAL_SERVER_ERROR));
+
+        // act
+        ResponseEntity<String> response = client.probe(TAXI_API_URL, DAVE_PATH, new HashMap<>());
+
+        // assert
+        assertEquals(HttpStatus.INTERNAL_SERVER_ERROR, response.getStatusCode());
+        verify(restTemplate, times(1)).exchange(url, HttpMethod.GET, entity, String.class);
+        Map<?, ?> retryStats = (Map<?, ?>) client.getRetryStats().get(DAVE_PATH);
+        assertEquals(0L, retryStats.get("retries"));
+        assertEquals(10.0, retryStats.get("budget_balance"));
+    }
+
+    @Test
+    public void get_whenHttp2EngineIsSelected_thenCallTheSupplierThroughItAndRetryTheSameWay() {
+
+        // arrange
+        Http2Engine http2Engine = mock(Http2Engine.class);
+        ReflectionTestUtils.setField(client, "http2Engine", http2Engine);
+        String url = TAXI_API_URL + "/" + DAVE_PATH;
+        when(http2Engine.exchange(url, jsonRequestEntity().getHeaders()))
+                .thenThrow(new HttpServerErrorException(HttpStatus.SERVICE_UNAVAILABLE))
+                .thenReturn(ResponseEntity.ok("{}"));
+
+        // act
+        ResponseEntity<String> response = client.get(TAXI_API_URL, DAVE_PATH, new HashMap<>());
+
+        // assert
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        verify(http2Engine, times(2)).exchange(url, jsonRequestEntity().getHeaders());
+        verifyNoInteractions(restTemplate);
+    }
+
+    private HttpEntity jsonRequestEntity() {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setAccept(Collections.singletonList(MediaType.APPLICATION_JSON));
+        return new HttpEntity<>(headers);
+    }
 }
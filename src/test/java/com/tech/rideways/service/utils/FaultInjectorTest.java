@@ -0,0 +1,97 @@
+package com.tech.rideways.service.utils;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.client.ResourceAccessException;
+
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class FaultInjectorTest {
+
+    private static final String DAVE_PATH = "dave";
+    private static final String ERIC_PATH = "eric";
+    private static final String BODY = "{\"supplier_id\":\"DAVE\",\"options\":[]}";
+
+    private MockEnvironment environment;
+
+    private FaultInjector faultInjector;
+
+    @Before
+    public void setup() {
+        environment = new MockEnvironment();
+        faultInjector = new FaultInjector();
+        ReflectionTestUtils.setField(faultInjector, "environment", environment);
+        ReflectionTestUtils.setField(faultInjector, "enabled", true);
+    }
+
+    @Test
+    public void call_whenDisabled_thenReturnRealResponse() {
+        // arrange
+        environment.setProperty("fault_injection.error_rate", "1");
+        ReflectionTestUtils.setField(faultInjector, "enabled", false);
+
+        // act
+        ResponseEntity<String> response = faultInjector.call(DAVE_PATH, 10, () -> ResponseEntity.ok(BODY));
+
+        // assert
+        assertEquals(BODY, response.getBody());
+    }
+
+    @Test
+    public void call_whenErrorsInjectedForOneSupplier_thenOnlyThatSupplierFails() {
+        // arrange
+        environment.setProperty("fault_injection.dave.error_rate", "1");
+
+        // act
+        ResponseEntity<String> ericResponse = faultInjector.call(ERIC_PATH, 10, () -> ResponseEntity.ok(BODY));
+        try {
+            faultInjector.call(DAVE_PATH, 10, () -> ResponseEntity.ok(BODY));
+            fail("Expected an injected server error");
+        } catch (HttpServerErrorException exception) {
+            // assert
+            assertEquals(HttpStatus.SERVICE_UNAVAILABLE, exception.getStatusCode());
+        }
+
+        // assert
+        assertEquals(BODY, ericResponse.getBody());
+        assertEquals(1L, ((Map) faultInjector.getStats().get("injected")).get("dave.error"));
+    }
+
+    @Test
+    public void call_whenTimeoutsInjected_thenThrowAfterTheAttemptTimeout() {
+        // arrange
+        environment.setProperty("fault_injection.timeout_rate", "1");
+        long start = System.nanoTime();
+
+        // act
+        try {
+            faultInjector.call(DAVE_PATH, 50, () -> ResponseEntity.ok(BODY));
+            fail("Expected an injected timeout");
+        } catch (ResourceAccessException exception) {
+            // assert
+            assertTrue(System.nanoTime() - start >= 50_000_000L);
+        }
+    }
+
+    @Test
+    public void call_whenTruncatedBodiesInjected_thenReturnHalfTheRealBody() {
+        // arrange
+        environment.setProperty("fault_injection.truncated_rate", "1");
+
+        // act
+        ResponseEntity<String> response = faultInjector.call(DAVE_PATH, 10, () -> ResponseEntity.ok(BODY));
+
+        // assert
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals(BODY.substring(0, BODY.length() / 2), response.getBody());
+    }
+}
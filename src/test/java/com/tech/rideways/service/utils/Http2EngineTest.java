@@ -0,0 +1,104 @@
+package com.tech.rideways.service.utils;
+
+import com.github.tomakehurst.wiremock.WireMockServer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.client.ResourceAccessException;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.GZIPOutputStream;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.aResponse;
+import static com.github.tomakehurst.wiremock.client.WireMock.get;
+import static com.github.tomakehurst.wiremock.core.WireMockConfiguration.options;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class Http2EngineTest {
+
+    private static final String BODY = "{\"supplier_id\":\"DAVE\",\"options\":[]}";
+
+    private WireMockServer wireMockServer;
+
+    private Http2Engine http2Engine;
+
+    private String url;
+
+    @Before
+    public void setup() {
+        wireMockServer = new WireMockServer(options().dynamicPort());
+        wireMockServer.start();
+        url = "http://localhost:" + wireMockServer.port() + "/dave";
+
+        http2Engine = new Http2Engine();
+        http2Engine.init();
+    }
+
+    @After
+    public void tearDown() {
+        wireMockServer.stop();
+    }
+
+    @Test
+    public void exchange_whenSupplierAnswersWithGzip_thenReturnTheDecompressedBody() throws IOException {
+        // arrange
+        wireMockServer.stubFor(get("/dave").willReturn(aResponse()
+                .withHeader(HttpHeaders.CONTENT_TYPE, "application/json")
+                .withHeader(HttpHeaders.CONTENT_ENCODING, "gzip")
+                .withBody(gzip(BODY))));
+
+        // act
+        ResponseEntity<String> response = http2Engine.exchange(url, new HttpHeaders());
+
+        // assert
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals(BODY, response.getBody());
+        assertFalse(response.getHeaders().containsKey(HttpHeaders.CONTENT_ENCODING));
+        assertTrue(http2Engine.getStats().size() > 1);
+    }
+
+    @Test(expected = HttpServerErrorException.class)
+    public void exchange_whenSupplierIsUnavailable_thenThrowServerError() {
+        // arrange
+        wireMockServer.stubFor(get("/dave").willReturn(aResponse().withStatus(503)));
+
+        // act
+        http2Engine.exchange(url, new HttpHeaders());
+    }
+
+    @Test(expected = HttpClientErrorException.class)
+    public void exchange_whenRequestIsInvalid_thenThrowClientError() {
+        // arrange
+        wireMockServer.stubFor(get("/dave").willReturn(aResponse().withStatus(400)));
+
+        // act
+        http2Engine.exchange(url, new HttpHeaders());
+    }
+
+    @Test(expected = ResourceAccessException.class)
+    public void exchange_whenSupplierIsNotListening_thenThrowResourceAccessException() {
+        // arrange
+        wireMockServer.stop();
+
+        // act
+        http2Engine.exchange(url, new HttpHeaders());
+    }
+
+    private static byte[] gzip(String payload) throws IOException {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        try (OutputStream out = new GZIPOutputStream(buffer)) {
+            out.write(payload.getBytes(StandardCharsets.UTF_8));
+        }
+        return buffer.toByteArray();
+    }
+}
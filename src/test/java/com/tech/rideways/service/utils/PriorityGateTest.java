@@ -0,0 +1,79 @@
+package com.tech.rideways.service.utils;
+
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class PriorityGateTest {
+
+    private static final long NO_WAIT = 0;
+    private static final long WAIT_NANOS = TimeUnit.SECONDS.toNanos(5);
+
+    @Test
+    public void acquire_whenOnlyReservedPermitsAreLeft_thenOnlyInteractiveWorkGetsThem() throws Exception {
+        // arrange
+        PriorityGate gate = new PriorityGate(3, 1);
+        assertTrue(gate.acquire(Lane.BULK, NO_WAIT));
+        assertTrue(gate.acquire(Lane.BULK, NO_WAIT));
+
+        // act
+        boolean bulk = gate.acquire(Lane.BULK, NO_WAIT);
+        boolean interactive = gate.acquire(Lane.INTERACTIVE, NO_WAIT);
+
+        // assert
+        assertFalse(bulk);
+        assertTrue(interactive);
+        assertEquals(1L, gate.getStats().get("timed_out"));
+    }
+
+    @Test
+    public void release_whenBothLanesAreWaiting_thenInteractiveWorkGoesFirst() throws Exception {
+        // arrange
+        PriorityGate gate = new PriorityGate(1, 0);
+        assertTrue(gate.acquire(Lane.INTERACTIVE, NO_WAIT));
+
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        CountDownLatch bulkDone = new CountDownLatch(1);
+        try {
+            Future<Boolean> bulk = executor.submit(() -> {
+                boolean acquired = gate.acquire(Lane.BULK, WAIT_NANOS);
+                bulkDone.countDown();
+                return acquired;
+            });
+            waitUntil(() -> (long) gate.getStats().get("waited") == 1);
+            Future<Boolean> interactive = executor.submit(() -> gate.acquire(Lane.INTERACTIVE, WAIT_NANOS));
+            waitUntil(() -> (int) gate.getStats().get("interactive_waiting") == 1);
+
+            // act
+            gate.release();
+
+            // assert - the interactive waiter gets the permit although the bulk one was waiting first
+            assertTrue(interactive.get(5, TimeUnit.SECONDS));
+            assertFalse(bulkDone.await(100, TimeUnit.MILLISECONDS));
+
+            gate.release();
+            assertTrue(bulk.get(5, TimeUnit.SECONDS));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static void waitUntil(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + WAIT_NANOS;
+        while (!condition.getAsBoolean()) {
+            if (System.nanoTime() > deadline) {
+                throw new AssertionError("Condition not met in time");
+            }
+            Thread.sleep(5);
+        }
+    }
+}